@@ -0,0 +1,59 @@
+package com.sweetpotato.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Amount and date parsing as the OCR parser did it before {@link ReceiptFieldNormalizer}, kept as the
+ * benchmark baseline. The date-only branch is fixed to parse as start of day (it used to build an invalid
+ * pattern from {@code DateTimeFormatter.toString()} and throw), and logging is dropped.
+ */
+final class LegacyFieldParsing {
+
+    private LegacyFieldParsing() {
+    }
+
+    static BigDecimal parseAmount(String text) {
+        try {
+            return new BigDecimal(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static LocalDateTime parseDateTime(String dateTimeString) {
+        try {
+            // Try parsing ISO format first
+            return LocalDateTime.parse(dateTimeString);
+        } catch (DateTimeParseException e) {
+            // Try common date formats
+            List<DateTimeFormatter> formatters = Arrays.asList(
+                    DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
+                    DateTimeFormatter.ofPattern("MM/dd/yyyy HH:mm:ss"),
+                    DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss"),
+                    DateTimeFormatter.ofPattern("yyyy-MM-dd"),
+                    DateTimeFormatter.ofPattern("MM/dd/yyyy"),
+                    DateTimeFormatter.ofPattern("dd/MM/yyyy")
+            );
+
+            for (DateTimeFormatter formatter : formatters) {
+                try {
+                    if (dateTimeString.contains(":")) {
+                        return LocalDateTime.parse(dateTimeString, formatter);
+                    } else {
+                        return LocalDate.parse(dateTimeString, formatter).atStartOfDay();
+                    }
+                } catch (DateTimeParseException ignored) {
+                    // Continue with next formatter
+                }
+            }
+            
+            return null;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.sweetpotato.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetpotato.dto.fuel.ExtractedFuelData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming vs tree-model parsing of Mistral responses over the corpus in {@code ocr-responses/}.
+ * The corpus is synthetic: hand-written responses shaped like Mistral chat completions, one per
+ * content variant the parser handles (fencing, numeric types, nulls, truncation, missing choices),
+ * not captured production traffic. Setup fails if the two parsers disagree on any response; that
+ * check only runs with the benchmark, not in the regular build.
+ *
+ * Run with: {@code mvn -Pbenchmark test-compile exec:exec} (add {@code -Djmh.args="-prof gc"} for allocation rates)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OcrResponseParserBenchmark {
+
+    static final String CORPUS_DIRECTORY = "ocr-responses/";
+
+    static final List<String> CORPUS = List.of(
+            "01-fenced-string-numbers.json",
+            "02-fenced-json-numbers.json",
+            "03-unfenced-integers.json",
+            "04-nulls-and-null-strings.json",
+            "05-unparseable-numbers.json",
+            "06-date-only.json",
+            "07-extra-nested-fields.json",
+            "08-truncated-max-tokens.json",
+            "09-no-choices.json",
+            "10-zulu-timestamp-numeric-zip.json");
+
+    private List<byte[]> responses;
+    private MistralResponseParser streamingParser;
+    private TreeModelResponseParser treeModelParser;
+
+    @Setup
+    public void setUp() {
+        // Configured like the application's mapper (unknown properties ignored, java.time support)
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        ReceiptFieldNormalizer fieldNormalizer = new ReceiptFieldNormalizer(Locale.forLanguageTag("en-IN"));
+        streamingParser = new MistralResponseParser(objectMapper, fieldNormalizer);
+        treeModelParser = new TreeModelResponseParser(objectMapper, fieldNormalizer);
+
+        Map<String, byte[]> corpus = loadCorpus();
+        corpus.forEach((name, response) -> {
+            ExtractedFuelData expected = treeModelParser.parse(response);
+            ExtractedFuelData actual = streamingParser.parse(response);
+            if (!sameExtraction(expected, actual)) {
+                throw new IllegalStateException("Parsers disagree on " + name
+                        + "\n  tree model: " + expected + "\n  streaming:  " + actual);
+            }
+        });
+        responses = new ArrayList<>(corpus.values());
+    }
+
+    @Benchmark
+    public void treeModel(Blackhole blackhole) {
+        for (byte[] response : responses) {
+            blackhole.consume(treeModelParser.parse(response));
+        }
+    }
+
+    @Benchmark
+    public void streaming(Blackhole blackhole) {
+        for (byte[] response : responses) {
+            blackhole.consume(streamingParser.parse(response));
+        }
+    }
+
+    static Map<String, byte[]> loadCorpus() {
+        Map<String, byte[]> corpus = new LinkedHashMap<>();
+        for (String name : CORPUS) {
+            try (InputStream in = OcrResponseParserBenchmark.class.getClassLoader()
+                    .getResourceAsStream(CORPUS_DIRECTORY + name)) {
+                corpus.put(name, Objects.requireNonNull(in, "Missing corpus file " + name).readAllBytes());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return corpus;
+    }
+
+    // Failed parses carry different raw text (the bound DTO's toString() vs the raw body), so only the outcome is compared
+    static boolean sameExtraction(ExtractedFuelData expected, ExtractedFuelData actual) {
+        if (isFailure(expected) && isFailure(actual)) {
+            return true;
+        }
+        return expected.equals(actual);
+    }
+
+    private static boolean isFailure(ExtractedFuelData data) {
+        return ExtractedFuelData.builder().confidence(0.0).rawText(data.getRawText()).build().equals(data);
+    }
+}
@@ -0,0 +1,84 @@
+package com.sweetpotato.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link ReceiptFieldNormalizer} on values as OCR returns them, against the parsing it
+ * replaced ({@link LegacyFieldParsing}). Each invocation normalizes the whole sample set.
+ *
+ * Run with: {@code mvn -Pbenchmark test-compile exec:exec -Djmh.includes=ReceiptFieldNormalizerBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReceiptFieldNormalizerBenchmark {
+
+    // Plain values the old parsing handled as well as the Indian/European formats it rejected
+    static final String[] AMOUNTS = {
+            "2500.00", "24.18", "103.39", "1500.5", "2000", "1.23456789E7",
+            "1,234.50", "₹ 500", "₹2,500.00", "Rs. 103.39", "1,23,456.50", "24.18 L", "1.234,50", "Rs.500/-"};
+
+    static final String[] DATES = {
+            "2025-07-14T19:42:11", "2025-06-02 08:15:40", "14/07/2025 19:42:11", "07/14/2025 19:42:11",
+            "2025-07-14", "14/07/2025", "05/07/2025", "14-07-2025", "14-Jul-2025", "14/07/2025 7:42 PM"};
+
+    static final String[] FUEL_TYPES = {"Petrol", "DIESEL", "cng", "HSD", "Petrol (Regular)", "Auto LPG", "Power"};
+
+    private ReceiptFieldNormalizer normalizer;
+
+    @Setup
+    public void setUp() {
+        normalizer = new ReceiptFieldNormalizer(Locale.forLanguageTag("en-IN"));
+    }
+
+    @Benchmark
+    public void amounts(Blackhole blackhole) {
+        for (String amount : AMOUNTS) {
+            blackhole.consume(normalizer.parseAmount(amount));
+        }
+    }
+
+    @Benchmark
+    public void legacyAmounts(Blackhole blackhole) {
+        for (String amount : AMOUNTS) {
+            blackhole.consume(LegacyFieldParsing.parseAmount(amount));
+        }
+    }
+
+    @Benchmark
+    public void dates(Blackhole blackhole) {
+        for (String date : DATES) {
+            blackhole.consume(normalizer.parseDateTime(date));
+        }
+    }
+
+    @Benchmark
+    public void legacyDates(Blackhole blackhole) {
+        for (String date : DATES) {
+            blackhole.consume(LegacyFieldParsing.parseDateTime(date));
+        }
+    }
+
+    @Benchmark
+    public void fuelTypes(Blackhole blackhole) {
+        for (String fuelType : FUEL_TYPES) {
+            blackhole.consume(normalizer.normalizeFuelType(fuelType));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.sweetpotato.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetpotato.dto.fuel.ExtractedFuelData;
+import com.sweetpotato.dto.fuel.MistralOcrResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * The tree-model parser that {@link MistralResponseParser} replaced, kept as the benchmark baseline:
+ * bind the response DTO, clean the content with regexes, readTree it, then read each field.
+ * Only changes: the per-response info logging is dropped, and amounts and dates go through
+ * {@link ReceiptFieldNormalizer} like the streaming parser's, so the benchmark compares parsing alone.
+ */
+@Slf4j
+class TreeModelResponseParser {
+
+    private final ObjectMapper objectMapper;
+    private final ReceiptFieldNormalizer fieldNormalizer;
+
+    TreeModelResponseParser(ObjectMapper objectMapper, ReceiptFieldNormalizer fieldNormalizer) {
+        this.objectMapper = objectMapper;
+        this.fieldNormalizer = fieldNormalizer;
+    }
+
+    public ExtractedFuelData parse(byte[] responseBody) {
+        MistralOcrResponse response;
+        try {
+            response = objectMapper.readValue(responseBody, MistralOcrResponse.class);
+        } catch (IOException e) {
+            return createEmptyExtractedData(new String(responseBody, StandardCharsets.UTF_8));
+        }
+        return parseExtractedData(response);
+    }
+
+    private ExtractedFuelData parseExtractedData(MistralOcrResponse response) {
+        try {
+            if (response.getChoices() == null || response.getChoices().isEmpty()) {
+                log.warn("No choices in Mistral AI response");
+                return createEmptyExtractedData(response.toString());
+            }
+
+            String jsonContent = response.getChoices().get(0).getMessage().getContent();
+            // Clean the JSON content (remove any markdown formatting)
+            jsonContent = cleanJsonContent(jsonContent);
+
+            // Parse the JSON response
+            var jsonNode = objectMapper.readTree(jsonContent);
+
+            return ExtractedFuelData.builder()
+                    .stationName(getStringValue(jsonNode, "stationName"))
+                    .stationBrand(getStringValue(jsonNode, "stationBrand"))
+                    .address(getStringValue(jsonNode, "address"))
+                    .city(getStringValue(jsonNode, "city"))
+                    .state(getStringValue(jsonNode, "state"))
+                    .zipCode(getStringValue(jsonNode, "zipCode"))
+                    .totalAmount(getBigDecimalValue(jsonNode, "totalAmount"))
+                    .liters(getBigDecimalValue(jsonNode, "liters"))
+                    .pricePerLiter(getBigDecimalValue(jsonNode, "pricePerLiter"))
+                    .fuelType(getStringValue(jsonNode, "fuelType"))
+                    .purchaseDateTime(getDateTimeValue(jsonNode, "purchaseDateTime"))
+                    .receiptNumber(getStringValue(jsonNode, "receiptNumber"))
+                    .paymentMethod(getStringValue(jsonNode, "paymentMethod"))
+                    .confidence(getDoubleValue(jsonNode, "confidence"))
+                    .rawText(jsonContent)
+                    .build();
+
+        } catch (Exception e) {
+            log.error("Error parsing Mistral AI response", e);
+            return createEmptyExtractedData(response.toString());
+        }
+    }
+
+    private String cleanJsonContent(String content) {
+        // Remove markdown code blocks if present
+        content = content.replaceAll("```json\\s*", "").replaceAll("```\\s*", "");
+        // Remove any leading/trailing whitespace
+        return content.trim();
+    }
+
+    private String getStringValue(JsonNode node, String fieldName) {
+        var fieldNode = node.get(fieldName);
+        if (fieldNode == null || fieldNode.isNull() || "null".equals(fieldNode.asText())) {
+            return null;
+        }
+        return fieldNode.asText();
+    }
+
+    private BigDecimal getBigDecimalValue(JsonNode node, String fieldName) {
+        var fieldNode = node.get(fieldName);
+        if (fieldNode == null || fieldNode.isNull() || "null".equals(fieldNode.asText())) {
+            return null;
+        }
+        return fieldNormalizer.parseAmount(fieldNode.asText());
+    }
+
+    private Double getDoubleValue(JsonNode node, String fieldName) {
+        var fieldNode = node.get(fieldName);
+        if (fieldNode == null || fieldNode.isNull() || "null".equals(fieldNode.asText())) {
+            return null;
+        }
+        try {
+            return fieldNode.asDouble();
+        } catch (NumberFormatException e) {
+            log.warn("Invalid number format for field {}: {}", fieldName, fieldNode.asText());
+            return null;
+        }
+    }
+
+    private LocalDateTime getDateTimeValue(JsonNode node, String fieldName) {
+        var fieldNode = node.get(fieldName);
+        if (fieldNode == null || fieldNode.isNull() || "null".equals(fieldNode.asText())) {
+            return null;
+        }
+        return fieldNormalizer.parseDateTime(fieldNode.asText());
+    }
+
+    private ExtractedFuelData createEmptyExtractedData(String rawText) {
+        return ExtractedFuelData.builder()
+                .confidence(0.0)
+                .rawText(rawText)
+                .build();
+    }
+}
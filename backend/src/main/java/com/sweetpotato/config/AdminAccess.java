@@ -0,0 +1,49 @@
+package com.sweetpotato.config;
+
+import com.sweetpotato.entity.User;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Lets only the users listed in app.admin.emails through to operator endpoints (see {@link SecurityConfig})
+ */
+@Component
+@Slf4j
+public class AdminAccess implements AuthorizationManager<RequestAuthorizationContext> {
+
+    private final Set<String> adminEmails;
+
+    public AdminAccess(@Value("${app.admin.emails:}") List<String> adminEmails) {
+        this.adminEmails = adminEmails.stream()
+                .map(email -> email.trim().toLowerCase(Locale.ROOT))
+                .filter(email -> !email.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        boolean granted = isAdmin(authentication.get());
+        if (!granted) {
+            log.warn("Denied {} to non-admin user", context.getRequest().getRequestURI());
+        }
+        return new AuthorizationDecision(granted);
+    }
+
+    public boolean isAdmin(Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof User user)) {
+            return false;
+        }
+        return user.getEmail() != null && adminEmails.contains(user.getEmail().toLowerCase(Locale.ROOT));
+    }
+}
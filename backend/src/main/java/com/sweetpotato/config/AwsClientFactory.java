@@ -0,0 +1,322 @@
+package com.sweetpotato.config;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.regions.Regions;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.simpleemail.AmazonSimpleEmailService;
+import com.amazonaws.services.simpleemail.AmazonSimpleEmailServiceClientBuilder;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.TimingInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The one place AWS SDK clients are built. Each client is created once with a tuned {@link ClientConfiguration}
+ * (pool size, keep-alive, timeouts, retries) and reused. S3 and SES use the credentials from the dynamic
+ * configuration and are rebuilt when those change; callers should fetch the client per use rather than keep it.
+ * DynamoDB is needed to load that configuration, so it uses the default credentials chain and is never rebuilt.
+ *
+ * Pool usage is published per client as aws.client.pool.{leased,available,pending}, as sampled by the SDK
+ * just before each request takes a connection, along with aws.client.pool.max and aws.client.retries.
+ */
+@Component
+@Slf4j
+public class AwsClientFactory {
+
+    private final DynamicConfigurationProperties configProperties;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${aws.region:ap-south-1}")
+    private String bootstrapRegion;
+
+    @Value("${app.s3.endpoint:}")
+    private String s3Endpoint;
+
+    @Value("${app.s3.path-style-access:false}")
+    private boolean s3PathStyleAccess;
+
+    @Value("${app.aws.client.max-connections:16}")
+    private int maxConnections;
+
+    @Value("${app.aws.client.s3.max-connections:64}")
+    private int s3MaxConnections;
+
+    @Value("${app.aws.client.connection-timeout-ms:2000}")
+    private int connectionTimeoutMs;
+
+    @Value("${app.aws.client.socket-timeout-ms:30000}")
+    private int socketTimeoutMs;
+
+    @Value("${app.aws.client.connection-ttl-seconds:300}")
+    private long connectionTtlSeconds;
+
+    @Value("${app.aws.client.connection-max-idle-seconds:30}")
+    private long connectionMaxIdleSeconds;
+
+    @Value("${app.aws.client.max-error-retry:3}")
+    private int maxErrorRetry;
+
+    @Value("${app.aws.client.retire-grace-seconds:120}")
+    private long retireGraceSeconds;
+
+    private PoolMetricCollector s3Metrics;
+    private PoolMetricCollector sesMetrics;
+    private PoolMetricCollector dynamoDbMetrics;
+    private final RotatingClient<AmazonS3> s3 = new RotatingClient<>("s3", this::buildS3, AmazonS3::shutdown);
+    private final RotatingClient<AmazonSimpleEmailService> ses =
+            new RotatingClient<>("ses", this::buildSes, AmazonSimpleEmailService::shutdown);
+    private final ReentrantLock dynamoDbLock = new ReentrantLock();
+    private AmazonDynamoDB dynamoDb;
+
+    // Lazy: the configuration is loaded from DynamoDB, whose client comes from this factory
+    public AwsClientFactory(@Lazy DynamicConfigurationProperties configProperties, MeterRegistry meterRegistry) {
+        this.configProperties = configProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // One collector per client name; rebuilt clients report into the same meters
+    @PostConstruct
+    public void registerMetrics() {
+        this.s3Metrics = new PoolMetricCollector("s3", s3MaxConnections);
+        this.sesMetrics = new PoolMetricCollector("ses", maxConnections);
+        this.dynamoDbMetrics = new PoolMetricCollector("dynamodb", maxConnections);
+    }
+
+    public AmazonS3 s3() {
+        return s3.get(currentCredentials());
+    }
+
+    public AmazonSimpleEmailService ses() {
+        return ses.get(currentCredentials());
+    }
+
+    public AmazonDynamoDB dynamoDb() {
+        dynamoDbLock.lock();
+        try {
+            if (dynamoDb == null) {
+                log.info("Initializing DynamoDB client for region: {}", bootstrapRegion);
+                dynamoDb = AmazonDynamoDBClientBuilder.standard()
+                        .withRegion(Regions.fromName(bootstrapRegion))
+                        .withCredentials(DefaultAWSCredentialsProviderChain.getInstance())
+                        .withClientConfiguration(clientConfiguration(maxConnections,
+                                PredefinedRetryPolicies.getDynamoDBDefaultRetryPolicyWithCustomMaxRetries(maxErrorRetry)))
+                        .withMetricsCollector(dynamoDbMetrics)
+                        .build();
+            }
+            return dynamoDb;
+        } finally {
+            dynamoDbLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        s3.shutdown();
+        ses.shutdown();
+        dynamoDbLock.lock();
+        try {
+            if (dynamoDb != null) {
+                dynamoDb.shutdown();
+            }
+        } finally {
+            dynamoDbLock.unlock();
+        }
+    }
+
+    private AwsCredentials currentCredentials() {
+        return new AwsCredentials(configProperties.getAwsAccessKey(), configProperties.getAwsSecretKey(),
+                configProperties.getAwsRegion());
+    }
+
+    // A custom endpoint points the client at an S3-compatible stand-in (MinIO, LocalStack) for local runs
+    private AmazonS3 buildS3(AwsCredentials credentials) {
+        AmazonS3ClientBuilder builder = AmazonS3ClientBuilder.standard()
+                .withCredentials(credentials.provider())
+                .withClientConfiguration(clientConfiguration(s3MaxConnections,
+                        PredefinedRetryPolicies.getDefaultRetryPolicyWithCustomMaxRetries(maxErrorRetry)))
+                .withMetricsCollector(s3Metrics)
+                .withPathStyleAccessEnabled(s3PathStyleAccess);
+        if (s3Endpoint != null && !s3Endpoint.isBlank()) {
+            log.info("Using S3 endpoint {} (path-style access: {})", s3Endpoint, s3PathStyleAccess);
+            builder.withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(s3Endpoint, credentials.region()));
+        } else {
+            builder.withRegion(Regions.fromName(credentials.region()));
+        }
+        return builder.build();
+    }
+
+    private AmazonSimpleEmailService buildSes(AwsCredentials credentials) {
+        return AmazonSimpleEmailServiceClientBuilder.standard()
+                .withRegion(Regions.fromName(credentials.region()))
+                .withCredentials(credentials.provider())
+                .withClientConfiguration(clientConfiguration(maxConnections,
+                        PredefinedRetryPolicies.getDefaultRetryPolicyWithCustomMaxRetries(maxErrorRetry)))
+                .withMetricsCollector(sesMetrics)
+                .build();
+    }
+
+    private ClientConfiguration clientConfiguration(int poolSize, RetryPolicy retryPolicy) {
+        return new ClientConfiguration()
+                .withMaxConnections(poolSize)
+                .withConnectionTimeout(connectionTimeoutMs)
+                .withSocketTimeout(socketTimeoutMs)
+                // Recycle connections before load balancers and NAT gateways silently drop them
+                .withConnectionTTL(Duration.ofSeconds(connectionTtlSeconds).toMillis())
+                .withConnectionMaxIdleMillis(Duration.ofSeconds(connectionMaxIdleSeconds).toMillis())
+                .withTcpKeepAlive(true)
+                .withRetryPolicy(retryPolicy);
+    }
+
+    /**
+     * Credentials a client was built with; compared on every fetch to notice rotation
+     */
+    private record AwsCredentials(String accessKey, String secretKey, String region) {
+
+        AWSStaticCredentialsProvider provider() {
+            return new AWSStaticCredentialsProvider(new BasicAWSCredentials(accessKey, secretKey));
+        }
+
+        @Override
+        public String toString() {
+            return "AwsCredentials[accessKey=" + accessKey + ", region=" + region + "]";
+        }
+    }
+
+    private record Built<T>(AwsCredentials credentials, T client) {
+    }
+
+    /**
+     * A client that is swapped for a new one when the credentials change. The old client is shut down after
+     * a grace period, so calls already holding it (presigned URLs, multipart uploads in flight) can finish.
+     */
+    private final class RotatingClient<T> {
+
+        private final String name;
+        private final Function<AwsCredentials, T> builder;
+        private final Consumer<T> closer;
+        private final AtomicReference<Built<T>> current = new AtomicReference<>();
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private RotatingClient(String name, Function<AwsCredentials, T> builder, Consumer<T> closer) {
+            this.name = name;
+            this.builder = builder;
+            this.closer = closer;
+        }
+
+        T get(AwsCredentials credentials) {
+            Built<T> built = current.get();
+            if (built != null && built.credentials().equals(credentials)) {
+                return built.client();
+            }
+
+            lock.lock();
+            try {
+                built = current.get();
+                if (built != null && built.credentials().equals(credentials)) {
+                    return built.client();
+                }
+                Built<T> rebuilt = new Built<>(credentials, builder.apply(credentials));
+                current.set(rebuilt);
+                if (built == null) {
+                    log.info("Initialized {} client for region: {}", name, credentials.region());
+                } else {
+                    log.info("AWS credentials changed, rebuilt {} client; retiring the old one in {}s",
+                            name, retireGraceSeconds);
+                    retire(built.client());
+                }
+                return rebuilt.client();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void shutdown() {
+            Built<T> built = current.getAndSet(null);
+            if (built != null) {
+                closer.accept(built.client());
+            }
+        }
+
+        private void retire(T client) {
+            Mono.delay(Duration.ofSeconds(retireGraceSeconds))
+                    .subscribe(tick -> {
+                        closer.accept(client);
+                        log.info("Shut down retired {} client", name);
+                    });
+        }
+    }
+
+    /**
+     * Publishes the SDK's per-request connection pool sample for one client
+     */
+    private final class PoolMetricCollector extends RequestMetricCollector {
+
+        private final AtomicInteger leased = new AtomicInteger();
+        private final AtomicInteger available = new AtomicInteger();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final Counter retries;
+
+        private PoolMetricCollector(String client, int maxConnections) {
+            Gauge.builder("aws.client.pool.leased", leased, AtomicInteger::get)
+                    .tag("client", client)
+                    .register(meterRegistry);
+            Gauge.builder("aws.client.pool.available", available, AtomicInteger::get)
+                    .tag("client", client)
+                    .register(meterRegistry);
+            Gauge.builder("aws.client.pool.pending", pending, AtomicInteger::get)
+                    .tag("client", client)
+                    .register(meterRegistry);
+            Gauge.builder("aws.client.pool.max", () -> maxConnections)
+                    .tag("client", client)
+                    .register(meterRegistry);
+            this.retries = Counter.builder("aws.client.retries")
+                    .tag("client", client)
+                    .register(meterRegistry);
+        }
+
+        @Override
+        public void collectMetrics(Request<?> request, Response<?> response) {
+            TimingInfo timing = request.getAWSRequestMetrics().getTimingInfo();
+            update(leased, timing.getCounter(AWSRequestMetrics.Field.HttpClientPoolLeasedCount.name()));
+            update(available, timing.getCounter(AWSRequestMetrics.Field.HttpClientPoolAvailableCount.name()));
+            update(pending, timing.getCounter(AWSRequestMetrics.Field.HttpClientPoolPendingCount.name()));
+            Number attempts = timing.getCounter(AWSRequestMetrics.Field.RequestCount.name());
+            if (attempts != null && attempts.intValue() > 1) {
+                retries.increment(attempts.intValue() - 1);
+            }
+        }
+
+        private void update(AtomicInteger gauge, Number sample) {
+            if (sample != null) {
+                gauge.set(sample.intValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.sweetpotato.config;
+
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.Http2SslContextSpec;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Long-lived HTTP client for the Mistral API. Connections are pooled and kept warm so OCR calls
+ * skip the TCP/TLS handshake; HTTP/2 is negotiated via ALPN when the server offers it.
+ * Pool metrics are published as reactor.netty.connection.provider.* (active, pending, idle,
+ * pending acquire time).
+ */
+@Configuration
+@Slf4j
+public class MistralClientConfiguration {
+
+    @Value("${app.ocr.mistral.client.max-connections:32}")
+    private int maxConnections;
+
+    @Value("${app.ocr.mistral.client.pending-acquire-max:256}")
+    private int pendingAcquireMax;
+
+    @Value("${app.ocr.mistral.client.pending-acquire-timeout-ms:5000}")
+    private long pendingAcquireTimeoutMs;
+
+    @Value("${app.ocr.mistral.client.max-idle-seconds:30}")
+    private long maxIdleSeconds;
+
+    @Value("${app.ocr.mistral.client.max-life-minutes:5}")
+    private long maxLifeMinutes;
+
+    @Value("${app.ocr.mistral.client.connect-timeout-ms:3000}")
+    private int connectTimeoutMs;
+
+    @Value("${app.ocr.mistral.client.tls-handshake-timeout-ms:5000}")
+    private long tlsHandshakeTimeoutMs;
+
+    @Value("${app.ocr.mistral.client.response-timeout-seconds:12}")
+    private long responseTimeoutSeconds;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider mistralConnectionProvider() {
+        log.info("Initializing Mistral connection pool: maxConnections={}, maxIdle={}s, maxLife={}m",
+                maxConnections, maxIdleSeconds, maxLifeMinutes);
+        return ConnectionProvider.builder("mistral")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMax)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                // Stay under typical load balancer idle timeouts so we never reuse a half-closed connection
+                .maxIdleTime(Duration.ofSeconds(maxIdleSeconds))
+                .maxLifeTime(Duration.ofMinutes(maxLifeMinutes))
+                .evictInBackground(Duration.ofSeconds(maxIdleSeconds))
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public HttpClient mistralHttpClient(ConnectionProvider mistralConnectionProvider) {
+        return HttpClient.create(mistralConnectionProvider)
+                .protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+                .secure(spec -> spec.sslContext(Http2SslContextSpec.forClient())
+                        .handshakeTimeout(Duration.ofMillis(tlsHandshakeTimeoutMs)))
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                // Max gap between reads while a response is in flight; applied per request, so idle
+                // pooled connections are not timed out
+                .responseTimeout(Duration.ofSeconds(responseTimeoutSeconds))
+                .compress(true)
+                // Only a handful of fixed API paths are called, so the URI tag stays low-cardinality
+                .metrics(true, Function.identity());
+    }
+
+    @Bean
+    public WebClient mistralWebClient(WebClient.Builder webClientBuilder, HttpClient mistralHttpClient) {
+        return webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(mistralHttpClient))
+                .build();
+    }
+}
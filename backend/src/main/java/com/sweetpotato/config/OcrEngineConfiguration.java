@@ -0,0 +1,88 @@
+package com.sweetpotato.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetpotato.service.LocalOcrEngine;
+import com.sweetpotato.service.MistralOcrEngine;
+import com.sweetpotato.service.OcrEngine;
+import com.sweetpotato.service.RecordReplayOcrEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.nio.file.Path;
+
+/**
+ * Selects the OCR engine behind the receipt pipeline. LOCAL and REPLAY never call Mistral, so the
+ * rest of the pipeline (S3, database, admission control) can be load tested offline.
+ */
+@Configuration
+@Slf4j
+public class OcrEngineConfiguration {
+
+    public enum EngineType {
+        MISTRAL, LOCAL, RECORD, REPLAY
+    }
+
+    @Value("${app.ocr.engine:MISTRAL}")
+    private EngineType engineType;
+
+    @Value("${app.ocr.local.base-latency-ms:300}")
+    private long localBaseLatencyMs;
+
+    @Value("${app.ocr.local.jitter-ms:200}")
+    private long localJitterMs;
+
+    @Value("${app.ocr.local.tail-rate:0.01}")
+    private double localTailRate;
+
+    @Value("${app.ocr.local.tail-latency-ms:4000}")
+    private long localTailLatencyMs;
+
+    @Value("${app.ocr.local.error-rate:0.0}")
+    private double localErrorRate;
+
+    @Value("${app.ocr.local.error-status:503}")
+    private int localErrorStatus;
+
+    @Value("${app.ocr.local.hang-rate:0.0}")
+    private double localHangRate;
+
+    @Value("${app.ocr.replay.directory:ocr-recordings}")
+    private String replayDirectory;
+
+    @Value("${app.ocr.replay.replay-latency:true}")
+    private boolean replayLatency;
+
+    @Value("${app.ocr.replay.fallback-to-local:true}")
+    private boolean replayFallbackToLocal;
+
+    @Bean
+    @Primary
+    public OcrEngine ocrEngine(MistralOcrEngine mistralOcrEngine, ObjectMapper objectMapper,
+                               PipelineSchedulers pipelineSchedulers) {
+        log.info("Initializing OCR engine: {}", engineType);
+        return switch (engineType) {
+            case MISTRAL -> mistralOcrEngine;
+            case LOCAL -> localOcrEngine();
+            case RECORD -> new RecordReplayOcrEngine(RecordReplayOcrEngine.Mode.RECORD, mistralOcrEngine,
+                    Path.of(replayDirectory), objectMapper, pipelineSchedulers.getOcr(), replayLatency);
+            case REPLAY -> new RecordReplayOcrEngine(RecordReplayOcrEngine.Mode.REPLAY,
+                    replayFallbackToLocal ? localOcrEngine() : null,
+                    Path.of(replayDirectory), objectMapper, pipelineSchedulers.getOcr(), replayLatency);
+        };
+    }
+
+    private LocalOcrEngine localOcrEngine() {
+        return new LocalOcrEngine(LocalOcrEngine.Profile.builder()
+                .baseLatencyMs(localBaseLatencyMs)
+                .jitterMs(localJitterMs)
+                .tailRate(localTailRate)
+                .tailLatencyMs(localTailLatencyMs)
+                .errorRate(localErrorRate)
+                .errorStatus(localErrorStatus)
+                .hangRate(localHangRate)
+                .build());
+    }
+}
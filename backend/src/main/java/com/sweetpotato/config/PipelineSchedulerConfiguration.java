@@ -0,0 +1,60 @@
+package com.sweetpotato.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Schedulers for the blocking calls made from reactive pipelines (AWS SDK v1, JDBC, image decoding).
+ * Follows {@code spring.threads.virtual.enabled}, the same switch that moves Tomcat request handling
+ * onto virtual threads.
+ */
+@Configuration
+@Slf4j
+public class PipelineSchedulerConfiguration {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    @Value("${app.pipeline.s3-threads:32}")
+    private int s3Threads;
+
+    @Value("${app.pipeline.ocr-threads:8}")
+    private int ocrThreads;
+
+    @Value("${app.pipeline.db-threads:10}")
+    private int dbThreads;
+
+    @Value("${app.pipeline.queued-tasks:10000}")
+    private int queuedTasks;
+
+    /**
+     * With virtual threads every blocking call gets its own thread; otherwise each stage has its
+     * own bounded elastic scheduler sized to the dependency behind it.
+     */
+    @Bean(destroyMethod = "dispose")
+    public PipelineSchedulers pipelineSchedulers() {
+        if (virtualThreadsEnabled) {
+            log.info("Pipeline schedulers running on virtual threads");
+            return new PipelineSchedulers(virtualScheduler("s3"), virtualScheduler("ocr"), virtualScheduler("db"));
+        }
+
+        log.info("Initializing pipeline schedulers: s3Threads={}, ocrThreads={}, dbThreads={}",
+                s3Threads, ocrThreads, dbThreads);
+        return new PipelineSchedulers(
+                Schedulers.newBoundedElastic(s3Threads, queuedTasks, "pipeline-s3"),
+                Schedulers.newBoundedElastic(ocrThreads, queuedTasks, "pipeline-ocr"),
+                Schedulers.newBoundedElastic(dbThreads, queuedTasks, "pipeline-db"));
+    }
+
+    private Scheduler virtualScheduler(String stage) {
+        return Schedulers.fromExecutorService(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("pipeline-" + stage + "-", 0).factory()),
+                "pipeline-" + stage);
+    }
+}
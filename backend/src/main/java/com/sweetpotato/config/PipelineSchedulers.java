@@ -0,0 +1,25 @@
+package com.sweetpotato.config;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * One scheduler per blocking stage of the receipt pipeline, so a slow dependency only
+ * exhausts its own threads: S3 calls, OCR-side work (image preprocessing and decoding),
+ * and JDBC.
+ */
+@Getter
+@RequiredArgsConstructor
+public class PipelineSchedulers {
+
+    private final Scheduler s3;
+    private final Scheduler ocr;
+    private final Scheduler db;
+
+    public void dispose() {
+        s3.dispose();
+        ocr.dispose();
+        db.dispose();
+    }
+}
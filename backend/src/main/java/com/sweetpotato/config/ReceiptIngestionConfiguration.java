@@ -0,0 +1,60 @@
+package com.sweetpotato.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Configuration for background receipt ingestion jobs
+ */
+@Configuration
+@EnableScheduling
+@Slf4j
+public class ReceiptIngestionConfiguration {
+
+    @Value("${app.receipts.ingestion.pool-size:8}")
+    private int poolSize;
+
+    @Value("${app.receipts.ingestion.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    /**
+     * Executor that runs the S3 upload, OCR and DB save for async uploads,
+     * so Tomcat workers are released as soon as the image is accepted.
+     * The queue is bounded; submissions beyond it are rejected.
+     * With virtual threads enabled every job gets its own virtual thread, and the
+     * same number of jobs (pool size + queue capacity) is admitted at once.
+     */
+    @Bean(name = "receiptIngestionExecutor")
+    public AsyncTaskExecutor receiptIngestionExecutor() {
+        if (virtualThreadsEnabled) {
+            int concurrencyLimit = poolSize + queueCapacity;
+            log.info("Initializing virtual-thread receipt ingestion executor: concurrencyLimit={}", concurrencyLimit);
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("receipt-ingest-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(concurrencyLimit);
+            executor.setRejectTasksWhenLimitReached(true);
+            executor.setTaskTerminationTimeout(30_000);
+            return executor;
+        }
+
+        log.info("Initializing receipt ingestion executor: poolSize={}, queueCapacity={}", poolSize, queueCapacity);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("receipt-ingest-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,176 @@
+package com.sweetpotato.config;
+
+import com.amazonaws.HttpMethod;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.StorageClass;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Date;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking S3 object I/O for the reactive receipt pipeline. The SDK v1 client only signs: each call is
+ * presigned locally (no network) and then sent over a reactor-netty connection pool, so a GET or PUT holds
+ * no thread while it waits on S3. Listing, multipart uploads and metadata stay on the blocking client.
+ * Pool metrics are published as reactor.netty.connection.provider.* with name s3.
+ */
+@Component
+@Slf4j
+public class S3AsyncClient {
+
+    private final AwsClientFactory awsClientFactory;
+    private final DynamicConfigurationProperties configProperties;
+    private final WebClient.Builder webClientBuilder;
+
+    @Value("${app.aws.async.s3.max-connections:64}")
+    private int maxConnections;
+
+    @Value("${app.aws.async.s3.pending-acquire-timeout-ms:5000}")
+    private long pendingAcquireTimeoutMs;
+
+    @Value("${app.aws.client.connection-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${app.aws.client.socket-timeout-ms:30000}")
+    private long responseTimeoutMs;
+
+    @Value("${app.aws.client.connection-max-idle-seconds:30}")
+    private long maxIdleSeconds;
+
+    @Value("${app.aws.client.connection-ttl-seconds:300}")
+    private long maxLifeSeconds;
+
+    @Value("${app.aws.client.max-error-retry:3}")
+    private int maxErrorRetry;
+
+    // Large enough for any receipt image, which is capped at 10MB on upload
+    @Value("${app.aws.async.s3.max-object-mb:16}")
+    private int maxObjectMb;
+
+    // Signatures only need to outlive the call, retries included
+    @Value("${app.aws.async.s3.signature-expiry-seconds:300}")
+    private long signatureExpirySeconds;
+
+    private ConnectionProvider connectionProvider;
+    private WebClient webClient;
+
+    public S3AsyncClient(AwsClientFactory awsClientFactory, DynamicConfigurationProperties configProperties,
+                         WebClient.Builder webClientBuilder) {
+        this.awsClientFactory = awsClientFactory;
+        this.configProperties = configProperties;
+        this.webClientBuilder = webClientBuilder;
+    }
+
+    /**
+     * A downloaded object's bytes and stored content type
+     */
+    public record S3ObjectContent(byte[] content, String contentType) {
+    }
+
+    @PostConstruct
+    public void initialize() {
+        log.info("Initializing async S3 connection pool: maxConnections={}", maxConnections);
+        this.connectionProvider = ConnectionProvider.builder("s3")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofSeconds(maxIdleSeconds))
+                .maxLifeTime(Duration.ofSeconds(maxLifeSeconds))
+                .evictInBackground(Duration.ofSeconds(maxIdleSeconds))
+                .metrics(true)
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs));
+        this.webClient = webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxObjectMb * 1024 * 1024))
+                .build();
+    }
+
+    @PreDestroy
+    public void dispose() {
+        connectionProvider.dispose();
+    }
+
+    public Mono<Void> putObject(String key, byte[] content, String contentType, StorageClass storageClass) {
+        return Mono.defer(() -> {
+                    URI url = presign(key, HttpMethod.PUT, request -> {
+                        request.setContentType(contentType);
+                        if (storageClass != null) {
+                            request.putCustomRequestHeader(Headers.STORAGE_CLASS, storageClass.toString());
+                        }
+                    });
+                    return webClient.put()
+                            .uri(url)
+                            .contentType(MediaType.parseMediaType(contentType))
+                            .headers(headers -> {
+                                if (storageClass != null) {
+                                    headers.set(Headers.STORAGE_CLASS, storageClass.toString());
+                                }
+                            })
+                            .bodyValue(content)
+                            .retrieve()
+                            .toBodilessEntity();
+                })
+                .retryWhen(transientFailures())
+                .then();
+    }
+
+    public Mono<S3ObjectContent> getObject(String key) {
+        return Mono.defer(() -> webClient.get()
+                        .uri(presign(key, HttpMethod.GET, request -> { }))
+                        .retrieve()
+                        .toEntity(byte[].class))
+                .retryWhen(transientFailures())
+                .map(response -> new S3ObjectContent(
+                        response.getBody() != null ? response.getBody() : new byte[0],
+                        response.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE)));
+    }
+
+    public Mono<Void> deleteObject(String key) {
+        return Mono.defer(() -> webClient.delete()
+                        .uri(presign(key, HttpMethod.DELETE, request -> { }))
+                        .retrieve()
+                        .toBodilessEntity())
+                .retryWhen(transientFailures())
+                .then();
+    }
+
+    // Every header the request will send beyond Host has to be part of the signature
+    private URI presign(String key, HttpMethod method, Consumer<GeneratePresignedUrlRequest> customizer) {
+        GeneratePresignedUrlRequest request = new GeneratePresignedUrlRequest(
+                configProperties.getAwsBucketName(), key, method)
+                .withExpiration(new Date(System.currentTimeMillis() + signatureExpirySeconds * 1000));
+        customizer.accept(request);
+        // Keep the SDK's percent-encoding; a URI string would be encoded again by WebClient
+        return URI.create(awsClientFactory.s3().generatePresignedUrl(request).toString());
+    }
+
+    // Same policy as the SDK client: connection errors, throttling and 5xx are retried with backoff
+    private Retry transientFailures() {
+        return Retry.backoff(maxErrorRetry, Duration.ofMillis(100))
+                .filter(error -> error instanceof WebClientRequestException
+                        || error instanceof WebClientResponseException response
+                        && (response.getStatusCode().is5xxServerError() || response.getStatusCode().value() == 429))
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+}
@@ -1,6 +1,7 @@
 package com.sweetpotato.config;
 
 import com.sweetpotato.service.UserService;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -31,6 +32,7 @@ public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthFilter;
     private final UserService userService;
+    private final AdminAccess adminAccess;
 
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
@@ -38,11 +40,15 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .authorizeHttpRequests(authz -> authz
+                        // Async dispatches (SSE, Mono return values) belong to a request that was already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // Public endpoints
                         .requestMatchers("/auth/**").permitAll()
                         .requestMatchers("/test/**").permitAll() // Test endpoints
                         .requestMatchers("/h2-console/**").permitAll() // For development with H2
                         .requestMatchers("/actuator/health").permitAll() // Health check endpoint
+                        // Pool, OCR token and budget metrics and the /admin endpoints are for operators only
+                        .requestMatchers("/actuator/metrics/**", "/admin/**").access(adminAccess)
                         // Protected endpoints
                         .anyRequest().authenticated()
                 )
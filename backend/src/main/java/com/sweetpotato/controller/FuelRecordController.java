@@ -1,11 +1,28 @@
 package com.sweetpotato.controller;
 
+import com.sweetpotato.config.PipelineSchedulers;
+import com.sweetpotato.dto.fuel.FuelReceiptBatchItemResponse;
+import com.sweetpotato.dto.fuel.FuelReceiptBatchResponse;
 import com.sweetpotato.dto.fuel.FuelReceiptResponse;
 import com.sweetpotato.dto.fuel.FuelReceiptUploadRequest;
+import com.sweetpotato.dto.fuel.ReceiptImage;
+import com.sweetpotato.dto.fuel.ReceiptIngestionJobResponse;
+import com.sweetpotato.dto.fuel.ReceiptUploadFinalizeRequest;
+import com.sweetpotato.dto.fuel.ReceiptUploadTicketRequest;
+import com.sweetpotato.dto.fuel.ReceiptUploadTicketResponse;
 import com.sweetpotato.entity.User;
+import com.sweetpotato.exception.OcrOverloadedException;
 import com.sweetpotato.service.FuelRecordService;
+import com.sweetpotato.service.IdempotencyService;
+import com.sweetpotato.service.ReceiptImagePreprocessor;
+import com.sweetpotato.service.ReceiptImagePreprocessor.ImageFormat;
+import com.sweetpotato.service.ReceiptIngestionJobService;
+import com.sweetpotato.service.S3UploadService;
+import com.sweetpotato.service.StreamingReceiptUploadService;
+import com.sweetpotato.util.Deadline;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -16,13 +33,22 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import reactor.core.publisher.Mono;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import java.io.IOException;
+import java.net.URI;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
 import jakarta.servlet.http.HttpServletRequest;
 
 @RestController
@@ -32,17 +58,34 @@ import jakarta.servlet.http.HttpServletRequest;
 public class FuelRecordController {
 
     private final FuelRecordService fuelRecordService;
-    
-    // Thread-safe set to track recent uploads and prevent duplicates
-    private final Set<String> recentUploads = ConcurrentHashMap.newKeySet();
+    private final ReceiptIngestionJobService receiptIngestionJobService;
+    private final IdempotencyService idempotencyService;
+    private final PipelineSchedulers pipelineSchedulers;
+    private final S3UploadService s3UploadService;
+    private final StreamingReceiptUploadService streamingReceiptUploadService;
+
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAY_HEADER = "Idempotent-Replayed";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    private static final long MAX_RECEIPT_BYTES = 10 * 1024 * 1024;
+    private static final Pattern DIRECT_UPLOAD_KEY = Pattern.compile(
+            "receipts/[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+    @Value("${app.receipts.batch.max-items:30}")
+    private int maxBatchItems;
+
+    @Value("${app.receipts.batch.timeout-seconds:120}")
+    private long batchTimeoutSeconds;
 
     @PostMapping(value = "/upload-receipt", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<FuelReceiptResponse> uploadReceipt(
+    public ResponseEntity<?> uploadReceipt(
             @RequestPart("receiptImage") MultipartFile receiptImage,
             @RequestPart(value = "stationName", required = false) String stationName,
             @RequestPart(value = "stationBrand", required = false) String stationBrand,
             @RequestPart(value = "location", required = false) String location,
             @RequestPart(value = "purchaseDate", required = false) String purchaseDate,
+            @RequestParam(value = "async", defaultValue = "false") boolean async,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKeyHeader,
             HttpServletRequest request) {
 
         log.info("📤 Receipt upload request received. Image size: {} bytes, Content-Type: {}", 
@@ -51,7 +94,6 @@ public class FuelRecordController {
                 request.getHeader("User-Agent"), 
                 request.getHeader("Authorization") != null ? "Bearer [present]" : "null");
 
-        // Check for duplicate requests using file size + current user + time window
         User currentUser = getCurrentUser();
         if (currentUser == null) {
             log.error("❌ UNAUTHORIZED - No authenticated user found");
@@ -59,84 +101,467 @@ public class FuelRecordController {
         }
         
         log.info("👤 Processing upload for user: {} ({})", currentUser.getEmail(), currentUser.getId());
-        
-        // Create unique request ID based on user ID, file size, and 10-second time window
-        long timeWindow = System.currentTimeMillis() / 10000; // 10-second windows
-        String requestId = currentUser.getId() + "_" + receiptImage.getSize() + "_" + timeWindow;
-        
-        if (recentUploads.contains(requestId)) {
-            log.warn("🚫 DUPLICATE - Upload request blocked for user: {}, request ID: {}, file size: {} bytes", 
-                    currentUser.getId(), requestId, receiptImage.getSize());
-            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
-        }
-        
-        // Add request ID to prevent duplicates
-        recentUploads.add(requestId);
-        
-        // Clean up old entries periodically (keep memory usage reasonable)
-        if (recentUploads.size() > 1000) {
-            log.debug("🧹 Cleaning up old upload request IDs");
-            recentUploads.clear();
-        }
 
-        // Validate file
-        if (receiptImage.isEmpty()) {
-            log.error("❌ VALIDATION - Empty file received");
-            recentUploads.remove(requestId); // Remove from tracking since it failed
-            return ResponseEntity.badRequest().build();
+        FileRejection rejection = validateReceiptFile(receiptImage);
+        if (rejection != null) {
+            return ResponseEntity.status(rejection.status()).build();
         }
 
-        // Validate file type
-        String contentType = receiptImage.getContentType();
-        if (contentType == null || !contentType.startsWith("image/")) {
-            log.warn("❌ VALIDATION - Invalid file type received: {}", contentType);
-            recentUploads.remove(requestId); // Remove from tracking since it failed
+        // Create request object (copy the image so it outlives the multipart request; hashes it on the way)
+        FuelReceiptUploadRequest uploadRequest = new FuelReceiptUploadRequest();
+        try {
+            uploadRequest.setReceiptImage(ReceiptImage.from(receiptImage));
+        } catch (IOException e) {
+            log.error("❌ ERROR - Could not read uploaded image", e);
             return ResponseEntity.badRequest().build();
         }
 
-        // Validate file size (max 10MB)
-        if (receiptImage.getSize() > 10 * 1024 * 1024) {
-            log.warn("❌ VALIDATION - File size too large: {} bytes", receiptImage.getSize());
-            recentUploads.remove(requestId); // Remove from tracking since it failed
-            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        rejection = validateReceiptContent(uploadRequest.getReceiptImage());
+        if (rejection != null) {
+            return ResponseEntity.status(rejection.status()).build();
         }
 
         log.info("✅ VALIDATION - File passed all validation checks");
 
-        // Create request object
-        FuelReceiptUploadRequest uploadRequest = new FuelReceiptUploadRequest();
-        uploadRequest.setReceiptImage(receiptImage);
+        String imageHash = uploadRequest.getReceiptImage().getSha256();
+        String idempotencyKey = resolveIdempotencyKey(idempotencyKeyHeader, "sha256:" + imageHash);
+        if (idempotencyKey == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        IdempotencyService.Claim claim = idempotencyService.claim(currentUser.getId(), idempotencyKey, imageHash);
+        ResponseEntity<Object> claimResponse = claimResponse(claim, currentUser.getId(), idempotencyKey);
+        if (claimResponse != null) {
+            return claimResponse;
+        }
+
         uploadRequest.setStationName(stationName);
         uploadRequest.setStationBrand(stationBrand);
         uploadRequest.setLocation(location);
         uploadRequest.setPurchaseDate(purchaseDate);
 
+        if (async) {
+            return submitIngestionJob(uploadRequest, currentUser, idempotencyKey);
+        }
+
         log.info("🚀 STARTING - Synchronous processing for user: {}", currentUser.getId());
 
         try {
-            // Convert reactive to synchronous with timeout
+            // Every stage downstream caps its own timeout at what is left of this deadline
+            Deadline deadline = Deadline.in(Duration.ofSeconds(20));
             FuelReceiptResponse result = fuelRecordService.processReceiptUpload(uploadRequest, currentUser)
-                    .block(Duration.ofSeconds(20)); // Reduced timeout to 20 seconds
+                    .contextWrite(deadline::putInto)
+                    .block(deadline.remaining());
             
             if (result != null) {
                 log.info("✅ SUCCESS - Got result: ID={}, Amount={}", result.getId(), result.getAmount());
-                recentUploads.remove(requestId);
+                idempotencyService.complete(currentUser.getId(), idempotencyKey, HttpStatus.OK.value(), result);
                 
                 // Log the exact response being sent
                 log.info("📤 SENDING RESPONSE - Status: 200 OK, Body: {}", result);
                 return ResponseEntity.ok(result);
             } else {
                 log.error("❌ ERROR - processReceiptUpload returned null");
-                recentUploads.remove(requestId);
+                idempotencyService.release(currentUser.getId(), idempotencyKey);
                 return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
             }
+        } catch (OcrOverloadedException e) {
+            // Shed fast: the exception handler answers 503 with Retry-After
+            log.warn("🚫 BUSY - OCR at capacity, shedding upload for user: {}", currentUser.getId());
+            idempotencyService.release(currentUser.getId(), idempotencyKey);
+            throw e;
         } catch (Exception e) {
             log.error("❌ EXCEPTION - Error during synchronous processing", e);
-            recentUploads.remove(requestId);
+            idempotencyService.release(currentUser.getId(), idempotencyKey);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    /**
+     * Non-blocking variant of {@link #uploadReceipt}: the returned Mono is completed asynchronously,
+     * so no servlet thread is held while the upload waits on S3 and OCR.
+     */
+    @PostMapping(value = "/upload-receipt/reactive", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Mono<ResponseEntity<Object>> uploadReceiptReactive(
+            @RequestPart("receiptImage") MultipartFile receiptImage,
+            @RequestPart(value = "stationName", required = false) String stationName,
+            @RequestPart(value = "stationBrand", required = false) String stationBrand,
+            @RequestPart(value = "location", required = false) String location,
+            @RequestPart(value = "purchaseDate", required = false) String purchaseDate,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKeyHeader) {
+
+        log.info("📤 Reactive receipt upload request received. Image size: {} bytes, Content-Type: {}",
+                receiptImage.getSize(), receiptImage.getContentType());
+
+        User currentUser = getCurrentUser();
+        if (currentUser == null) {
+            log.error("❌ UNAUTHORIZED - No authenticated user found");
+            return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+        }
+
+        FileRejection rejection = validateReceiptFile(receiptImage);
+        if (rejection != null) {
+            return Mono.just(ResponseEntity.status(rejection.status()).build());
+        }
+
+        FuelReceiptUploadRequest uploadRequest = new FuelReceiptUploadRequest();
+        try {
+            uploadRequest.setReceiptImage(ReceiptImage.from(receiptImage));
+        } catch (IOException e) {
+            log.error("❌ ERROR - Could not read uploaded image", e);
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        rejection = validateReceiptContent(uploadRequest.getReceiptImage());
+        if (rejection != null) {
+            return Mono.just(ResponseEntity.status(rejection.status()).build());
+        }
+
+        String imageHash = uploadRequest.getReceiptImage().getSha256();
+        String idempotencyKey = resolveIdempotencyKey(idempotencyKeyHeader, "sha256:" + imageHash);
+        if (idempotencyKey == null) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        uploadRequest.setStationName(stationName);
+        uploadRequest.setStationBrand(stationBrand);
+        uploadRequest.setLocation(location);
+        uploadRequest.setPurchaseDate(purchaseDate);
+
+        Long userId = currentUser.getId();
+        return Mono.fromCallable(() -> idempotencyService.claim(userId, idempotencyKey, imageHash))
+                .subscribeOn(pipelineSchedulers.getDb())
+                .flatMap(claim -> {
+                    ResponseEntity<Object> claimResponse = claimResponse(claim, userId, idempotencyKey);
+                    if (claimResponse != null) {
+                        return Mono.just(claimResponse);
+                    }
+
+                    Deadline deadline = Deadline.in(Duration.ofSeconds(20));
+                    return fuelRecordService.processReceiptUpload(uploadRequest, currentUser)
+                            .transform(Deadline.bound(null))
+                            .contextWrite(deadline::putInto)
+                            .flatMap(result -> Mono.fromCallable(() -> {
+                                        log.info("✅ SUCCESS - Got result: ID={}, Amount={}", result.getId(), result.getAmount());
+                                        idempotencyService.complete(userId, idempotencyKey, HttpStatus.OK.value(), result);
+                                        return ResponseEntity.<Object>ok(result);
+                                    })
+                                    .subscribeOn(pipelineSchedulers.getDb()))
+                            .onErrorResume(OcrOverloadedException.class, e -> Mono.fromRunnable(() -> {
+                                        log.warn("🚫 BUSY - OCR at capacity, shedding upload for user: {}", userId);
+                                        idempotencyService.release(userId, idempotencyKey);
+                                    })
+                                    .subscribeOn(pipelineSchedulers.getDb())
+                                    .then(Mono.error(e)))
+                            .onErrorResume(e -> !(e instanceof OcrOverloadedException), e -> {
+                                log.error("❌ EXCEPTION - Error during reactive processing", e);
+                                return Mono.empty();
+                            })
+                            .switchIfEmpty(Mono.fromCallable(() -> {
+                                        idempotencyService.release(userId, idempotencyKey);
+                                        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+                                    })
+                                    .subscribeOn(pipelineSchedulers.getDb()));
+                });
+    }
+
+    private ResponseEntity<ReceiptIngestionJobResponse> submitIngestionJob(FuelReceiptUploadRequest uploadRequest,
+                                                                           User currentUser, String idempotencyKey) {
+        Long userId = currentUser.getId();
+        try {
+            // Once the job finishes, replays get the final result instead of the job id (or the key is freed on failure)
+            ReceiptIngestionJobResponse job = receiptIngestionJobService.submit(uploadRequest, currentUser, finished -> {
+                if (finished.getStatus() == ReceiptIngestionJobResponse.Status.COMPLETED) {
+                    idempotencyService.complete(userId, idempotencyKey, HttpStatus.OK.value(), finished.getResult());
+                } else {
+                    idempotencyService.release(userId, idempotencyKey);
+                }
+            });
+            idempotencyService.completeInterim(userId, idempotencyKey, HttpStatus.ACCEPTED.value(), job);
+
+            URI statusUri = ServletUriComponentsBuilder.fromCurrentContextPath()
+                    .path("/fuel-records/jobs/{jobId}")
+                    .buildAndExpand(job.getJobId())
+                    .toUri();
+            log.info("📥 ACCEPTED - Queued ingestion job {} for user: {}", job.getJobId(), userId);
+            return ResponseEntity.accepted().location(statusUri).body(job);
+        } catch (RejectedExecutionException e) {
+            log.warn("🚫 BUSY - Ingestion queue full, rejecting upload for user: {}", userId);
+            idempotencyService.release(userId, idempotencyKey);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @PostMapping(value = "/upload-receipts", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<FuelReceiptBatchResponse> uploadReceipts(
+            @RequestPart("receiptImages") List<MultipartFile> receiptImages,
+            @RequestParam(value = "async", defaultValue = "false") boolean async) {
+
+        log.info("📤 Batch receipt upload request received with {} images", receiptImages.size());
+
+        User currentUser = getCurrentUser();
+        if (currentUser == null) {
+            log.error("❌ UNAUTHORIZED - No authenticated user found");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        if (receiptImages.isEmpty() || receiptImages.size() > maxBatchItems) {
+            log.warn("❌ VALIDATION - Batch size {} outside allowed range 1..{}", receiptImages.size(), maxBatchItems);
+            return ResponseEntity.badRequest().build();
+        }
+
+        // Invalid files are reported per item instead of failing the whole batch
+        FuelReceiptBatchItemResponse[] items = new FuelReceiptBatchItemResponse[receiptImages.size()];
+        List<ReceiptImage> accepted = new ArrayList<>();
+        List<Integer> acceptedIndexes = new ArrayList<>();
+        for (int i = 0; i < receiptImages.size(); i++) {
+            MultipartFile file = receiptImages.get(i);
+            FileRejection rejection = validateReceiptFile(file);
+            ReceiptImage image = null;
+            if (rejection == null) {
+                try {
+                    image = ReceiptImage.from(file);
+                    rejection = validateReceiptContent(image);
+                } catch (IOException e) {
+                    log.error("❌ ERROR - Could not read uploaded image {}", i, e);
+                    rejection = new FileRejection(HttpStatus.BAD_REQUEST, "Could not read image");
+                }
+            }
+
+            if (rejection != null) {
+                items[i] = FuelReceiptBatchItemResponse.builder()
+                        .index(i)
+                        .fileName(file.getOriginalFilename())
+                        .status(FuelReceiptBatchItemResponse.Status.INVALID)
+                        .error(rejection.reason())
+                        .build();
+            } else {
+                accepted.add(image);
+                acceptedIndexes.add(i);
+            }
+        }
+
+        log.info("👤 Processing batch of {} valid images for user: {} ({})",
+                accepted.size(), currentUser.getEmail(), currentUser.getId());
+
+        if (async) {
+            for (int i = 0; i < accepted.size(); i++) {
+                int index = acceptedIndexes.get(i);
+                items[index] = submitBatchItem(index, accepted.get(i), currentUser);
+            }
+            return ResponseEntity.accepted().body(FuelReceiptBatchResponse.of(Arrays.asList(items)));
+        }
+
+        if (!accepted.isEmpty()) {
+            try {
+                Deadline deadline = Deadline.in(Duration.ofSeconds(batchTimeoutSeconds));
+                List<FuelReceiptBatchItemResponse> results = fuelRecordService.processReceiptBatch(accepted, currentUser)
+                        .contextWrite(deadline::putInto)
+                        .block(deadline.remaining());
+                if (results == null) {
+                    log.error("❌ ERROR - processReceiptBatch returned null");
+                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+                }
+                for (FuelReceiptBatchItemResponse result : results) {
+                    // Service indexes refer to the accepted list; map them back to request positions
+                    int acceptedIndex = result.getIndex();
+                    int index = acceptedIndexes.get(acceptedIndex);
+                    result.setIndex(index);
+                    result.setFileName(accepted.get(acceptedIndex).getOriginalFilename());
+                    items[index] = result;
+                }
+            } catch (Exception e) {
+                log.error("❌ EXCEPTION - Error during batch processing", e);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            }
+        }
+
+        FuelReceiptBatchResponse response = FuelReceiptBatchResponse.of(Arrays.asList(items));
+        log.info("✅ SUCCESS - Batch processed for user: {} ({} succeeded, {} failed)",
+                currentUser.getId(), response.getSucceeded(), response.getFailed());
+        return ResponseEntity.ok(response);
+    }
+
+    private FuelReceiptBatchItemResponse submitBatchItem(int index, ReceiptImage image, User currentUser) {
+        FuelReceiptUploadRequest uploadRequest = new FuelReceiptUploadRequest();
+        uploadRequest.setReceiptImage(image);
+
+        FuelReceiptBatchItemResponse.FuelReceiptBatchItemResponseBuilder item = FuelReceiptBatchItemResponse.builder()
+                .index(index)
+                .fileName(image.getOriginalFilename());
+        try {
+            ReceiptIngestionJobResponse job = receiptIngestionJobService.submit(uploadRequest, currentUser, finished -> { });
+            return item.status(FuelReceiptBatchItemResponse.Status.QUEUED).jobId(job.getJobId()).build();
+        } catch (RejectedExecutionException e) {
+            log.warn("🚫 BUSY - Ingestion queue full, rejecting batch item {} for user: {}", index, currentUser.getId());
+            return item.status(FuelReceiptBatchItemResponse.Status.FAILED).error("Ingestion queue is full").build();
+        }
+    }
+
+    /**
+     * Presigns a direct upload to S3, so the image never passes through this server on the way in.
+     * Upload to the returned URL, then call {@link #finalizeDirectUpload} with the key.
+     */
+    @PostMapping("/direct-uploads")
+    public ResponseEntity<ReceiptUploadTicketResponse> createDirectUpload(
+            @Valid @RequestBody ReceiptUploadTicketRequest ticketRequest) {
+        User currentUser = getCurrentUser();
+        if (currentUser == null) {
+            log.error("❌ UNAUTHORIZED - No authenticated user found");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        ReceiptUploadTicketResponse ticket = s3UploadService.presignReceiptUpload(currentUser.getId(),
+                ticketRequest.getContentType());
+        log.info("🎫 Direct upload ticket issued for user: {} (key: {})", currentUser.getId(), ticket.getKey());
+        return ResponseEntity.ok(ticket);
+    }
+
+    /**
+     * Runs OCR and creates the record for an image uploaded with a {@link #createDirectUpload} ticket
+     */
+    @PostMapping("/direct-uploads/finalize")
+    public ResponseEntity<?> finalizeDirectUpload(
+            @Valid @RequestBody ReceiptUploadFinalizeRequest finalizeRequest,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKeyHeader) {
+        User currentUser = getCurrentUser();
+        if (currentUser == null) {
+            log.error("❌ UNAUTHORIZED - No authenticated user found");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        String key = finalizeRequest.getKey();
+        if (!DIRECT_UPLOAD_KEY.matcher(key).matches()) {
+            log.warn("❌ VALIDATION - Not a direct upload key: {}", key);
+            return ResponseEntity.badRequest().build();
+        }
+
+        Optional<S3UploadService.StoredObject> stored = s3UploadService.findObject(key);
+        if (stored.isEmpty()) {
+            log.warn("❌ VALIDATION - Nothing uploaded to {}", key);
+            return ResponseEntity.notFound().build();
+        }
+        if (!String.valueOf(currentUser.getId()).equals(stored.get().owner())) {
+            log.warn("🚫 FORBIDDEN - Direct upload {} was not issued to user: {}", key, currentUser.getId());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        FileRejection rejection = validateStoredObject(stored.get());
+        if (rejection == null) {
+            ReceiptImage receiptImage = s3UploadService.downloadReceiptImage(key);
+            rejection = validateReceiptContent(receiptImage);
+            if (rejection == null) {
+                // A retried or concurrent finalize must not create a second record for the same object
+                String idempotencyKey = resolveIdempotencyKey(idempotencyKeyHeader, "direct:" + key);
+                if (idempotencyKey == null) {
+                    return ResponseEntity.badRequest().build();
+                }
+                IdempotencyService.Claim claim = idempotencyService.claim(currentUser.getId(), idempotencyKey,
+                        receiptImage.getSha256());
+                ResponseEntity<Object> claimResponse = claimResponse(claim, currentUser.getId(), idempotencyKey);
+                if (claimResponse != null) {
+                    return claimResponse;
+                }
+
+                FuelReceiptUploadRequest uploadRequest = new FuelReceiptUploadRequest();
+                uploadRequest.setReceiptImage(receiptImage);
+                uploadRequest.setStationName(finalizeRequest.getStationName());
+                uploadRequest.setStationBrand(finalizeRequest.getStationBrand());
+                uploadRequest.setLocation(finalizeRequest.getLocation());
+                uploadRequest.setPurchaseDate(finalizeRequest.getPurchaseDate());
+                return processDirectUpload(key, uploadRequest, currentUser, idempotencyKey);
+            }
+        }
+
+        // Presigned PUTs can't limit size or content, so rejected objects are removed here
+        s3UploadService.deleteObject(key);
+        return ResponseEntity.status(rejection.status()).build();
+    }
+
+    /**
+     * Same form as {@link #uploadReceipt}, but the image is streamed into S3 while it is received
+     * instead of being spooled by the container first; the image part must come with an image/* type
+     */
+    @PostMapping(value = "/upload-receipt/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<FuelReceiptResponse> uploadReceiptStreaming(HttpServletRequest request) {
+        User currentUser = getCurrentUser();
+        if (currentUser == null) {
+            log.error("❌ UNAUTHORIZED - No authenticated user found");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        log.info("📤 RECEIVING - Streaming receipt upload for user: {}", currentUser.getId());
+        StreamingReceiptUploadService.StreamedReceipt streamed =
+                streamingReceiptUploadService.receive(request, MAX_RECEIPT_BYTES);
+        FileRejection rejection = validateReceiptContent(streamed.uploadRequest().getReceiptImage());
+        if (rejection != null) {
+            s3UploadService.deleteObject(streamed.key());
+            return ResponseEntity.status(rejection.status()).build();
+        }
+        return processDirectUpload(streamed.key(), streamed.uploadRequest(), currentUser, null);
+    }
+
+    // Processes an image that is already in S3 under key, for direct and streamed uploads. Streamed uploads
+    // pass no idempotency key: their S3 key is always fresh, so there is nothing to finalize twice.
+    private ResponseEntity<FuelReceiptResponse> processDirectUpload(String key, FuelReceiptUploadRequest uploadRequest,
+                                                                    User currentUser, String idempotencyKey) {
+        log.info("🚀 STARTING - Direct upload processing for user: {}", currentUser.getId());
+        try {
+            Deadline deadline = Deadline.in(Duration.ofSeconds(20));
+            FuelReceiptResponse result = fuelRecordService.processDirectUpload(key, uploadRequest.getReceiptImage(),
+                            uploadRequest, currentUser)
+                    .contextWrite(deadline::putInto)
+                    .block(deadline.remaining());
+            if (result == null) {
+                log.error("❌ ERROR - processDirectUpload returned null");
+                releaseIdempotencyKey(currentUser.getId(), idempotencyKey);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            }
+            log.info("✅ SUCCESS - Direct upload finalized: ID={}, Amount={}", result.getId(), result.getAmount());
+            if (idempotencyKey != null) {
+                idempotencyService.complete(currentUser.getId(), idempotencyKey, HttpStatus.OK.value(), result);
+            }
+            return ResponseEntity.ok(result);
+        } catch (OcrOverloadedException e) {
+            log.warn("🚫 BUSY - OCR at capacity, shedding direct upload for user: {}", currentUser.getId());
+            releaseIdempotencyKey(currentUser.getId(), idempotencyKey);
+            throw e;
+        } catch (Exception e) {
+            log.error("❌ EXCEPTION - Error during direct upload processing", e);
+            releaseIdempotencyKey(currentUser.getId(), idempotencyKey);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    private void releaseIdempotencyKey(Long userId, String idempotencyKey) {
+        if (idempotencyKey != null) {
+            idempotencyService.release(userId, idempotencyKey);
+        }
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ReceiptIngestionJobResponse> getIngestionJob(@PathVariable String jobId) {
+        User currentUser = getCurrentUser();
+        if (currentUser == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        return receiptIngestionJobService.getJob(jobId, currentUser.getId())
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamIngestionJob(@PathVariable String jobId) {
+        User currentUser = getCurrentUser();
+        if (currentUser == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        return receiptIngestionJobService.subscribe(jobId, currentUser.getId())
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     // Test endpoint to validate JWT authentication
     @GetMapping("/auth-test")
     public ResponseEntity<String> testAuthentication() {
@@ -195,6 +620,93 @@ public class FuelRecordController {
         }
     }
 
+    // Without a client key, the default (e.g. the image hash) acts as the key so concurrent duplicates are still caught
+    private String resolveIdempotencyKey(String idempotencyKeyHeader, String defaultKey) {
+        String idempotencyKey = idempotencyKeyHeader != null && !idempotencyKeyHeader.isBlank()
+                ? idempotencyKeyHeader.trim()
+                : defaultKey;
+        if (idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            log.warn("❌ VALIDATION - Idempotency key too long: {} characters", idempotencyKey.length());
+            return null;
+        }
+        return idempotencyKey;
+    }
+
+    /**
+     * Response for a claim that must not be processed (replay, in progress, mismatch), or null if the upload should proceed
+     */
+    private ResponseEntity<Object> claimResponse(IdempotencyService.Claim claim, Long userId, String idempotencyKey) {
+        switch (claim.getOutcome()) {
+            case REPLAY:
+                log.info("🔁 REPLAY - Returning stored response for user: {}, key: {}", userId, idempotencyKey);
+                return ResponseEntity.status(claim.getResponseStatus())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(IDEMPOTENT_REPLAY_HEADER, "true")
+                        .body(claim.getResponseBody());
+            case IN_PROGRESS:
+                log.warn("🚫 DUPLICATE - Upload already in progress for user: {}, key: {}", userId, idempotencyKey);
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            case MISMATCH:
+                log.warn("🚫 DUPLICATE - Idempotency key reused with a different image for user: {}", userId);
+                return ResponseEntity.unprocessableEntity().build();
+            default:
+                return null;
+        }
+    }
+
+    private FileRejection validateReceiptFile(MultipartFile receiptImage) {
+        // Validate file
+        if (receiptImage.isEmpty()) {
+            log.error("❌ VALIDATION - Empty file received");
+            return new FileRejection(HttpStatus.BAD_REQUEST, "Empty file");
+        }
+
+        // Validate file type
+        String contentType = receiptImage.getContentType();
+        if (contentType == null || !contentType.startsWith("image/")) {
+            log.warn("❌ VALIDATION - Invalid file type received: {}", contentType);
+            return new FileRejection(HttpStatus.BAD_REQUEST, "File is not an image");
+        }
+
+        // Validate file size (max 10MB)
+        if (receiptImage.getSize() > MAX_RECEIPT_BYTES) {
+            log.warn("❌ VALIDATION - File size too large: {} bytes", receiptImage.getSize());
+            return new FileRejection(HttpStatus.PAYLOAD_TOO_LARGE, "File is larger than 10MB");
+        }
+        return null;
+    }
+
+    // Validate the actual bytes, not just the client-supplied content type
+    private FileRejection validateReceiptContent(ReceiptImage receiptImage) {
+        ImageFormat imageFormat = ReceiptImagePreprocessor.sniffFormat(receiptImage.getContent());
+        if (imageFormat == ImageFormat.UNKNOWN) {
+            log.warn("❌ VALIDATION - File content is not a supported image (declared type: {})",
+                    receiptImage.getContentType());
+            return new FileRejection(HttpStatus.BAD_REQUEST, "File content is not a supported image");
+        }
+        return null;
+    }
+
+    // The same checks as validateReceiptFile, for an object uploaded straight to S3
+    private FileRejection validateStoredObject(S3UploadService.StoredObject stored) {
+        if (stored.size() == 0) {
+            log.error("❌ VALIDATION - Empty direct upload: {}", stored.key());
+            return new FileRejection(HttpStatus.BAD_REQUEST, "Empty file");
+        }
+        if (stored.contentType() == null || !stored.contentType().startsWith("image/")) {
+            log.warn("❌ VALIDATION - Invalid direct upload type: {}", stored.contentType());
+            return new FileRejection(HttpStatus.BAD_REQUEST, "File is not an image");
+        }
+        if (stored.size() > MAX_RECEIPT_BYTES) {
+            log.warn("❌ VALIDATION - Direct upload too large: {} bytes", stored.size());
+            return new FileRejection(HttpStatus.PAYLOAD_TOO_LARGE, "File is larger than 10MB");
+        }
+        return null;
+    }
+
+    private record FileRejection(HttpStatus status, String reason) {
+    }
+
     private User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || authentication.getPrincipal() == null) {
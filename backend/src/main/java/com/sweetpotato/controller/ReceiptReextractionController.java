@@ -0,0 +1,78 @@
+package com.sweetpotato.controller;
+
+import com.sweetpotato.dto.fuel.ReceiptReextractionRunResponse;
+import com.sweetpotato.entity.User;
+import com.sweetpotato.service.ReceiptReextractionService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.net.URI;
+
+/**
+ * Operator endpoints for re-extracting stored OCR output; SecurityConfig limits /admin/** to users listed in app.admin.emails
+ */
+@RestController
+@RequestMapping("/admin/receipt-reextractions")
+@Slf4j
+public class ReceiptReextractionController {
+
+    private final ReceiptReextractionService reextractionService;
+
+    public ReceiptReextractionController(ReceiptReextractionService reextractionService) {
+        this.reextractionService = reextractionService;
+    }
+
+    @PostMapping
+    public ResponseEntity<ReceiptReextractionRunResponse> startRun(
+            @RequestParam(value = "dryRun", defaultValue = "true") boolean dryRun,
+            @AuthenticationPrincipal User admin) {
+        try {
+            ReceiptReextractionRunResponse run = reextractionService.start(dryRun, admin.getEmail());
+            log.info("🔁 Re-extraction run {} started by {} (dry run: {})", run.getId(), admin.getEmail(), dryRun);
+            URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .path("/{id}")
+                    .buildAndExpand(run.getId())
+                    .toUri();
+            return ResponseEntity.accepted().location(location).body(run);
+        } catch (IllegalStateException e) {
+            log.warn("🚫 Re-extraction not started: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ReceiptReextractionRunResponse> getRun(@PathVariable Long id) {
+        return reextractionService.getRun(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<ReceiptReextractionRunResponse> resumeRun(@PathVariable Long id, @AuthenticationPrincipal User admin) {
+        try {
+            return reextractionService.resume(id)
+                    .map(run -> {
+                        log.info("🔁 Re-extraction run {} resumed by {} after record {}",
+                                id, admin.getEmail(), run.getLastRecordId());
+                        return ResponseEntity.accepted().body(run);
+                    })
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            log.warn("🚫 Re-extraction run {} not resumed: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<Void> cancelRun(@PathVariable Long id, @AuthenticationPrincipal User admin) {
+        if (!reextractionService.cancel(id)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        log.info("⏹️ Re-extraction run {} cancelled by {}", id, admin.getEmail());
+        return ResponseEntity.accepted().build();
+    }
+}
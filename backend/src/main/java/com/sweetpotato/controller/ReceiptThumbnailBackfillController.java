@@ -0,0 +1,51 @@
+package com.sweetpotato.controller;
+
+import com.sweetpotato.dto.fuel.ReceiptThumbnailBackfillResponse;
+import com.sweetpotato.entity.User;
+import com.sweetpotato.service.ReceiptThumbnailBackfillService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Operator endpoints for generating missing receipt thumbnails; SecurityConfig limits /admin/** to users listed in app.admin.emails
+ */
+@RestController
+@RequestMapping("/admin/receipt-thumbnails/backfill")
+@Slf4j
+public class ReceiptThumbnailBackfillController {
+
+    private final ReceiptThumbnailBackfillService backfillService;
+
+    public ReceiptThumbnailBackfillController(ReceiptThumbnailBackfillService backfillService) {
+        this.backfillService = backfillService;
+    }
+
+    @PostMapping
+    public ResponseEntity<ReceiptThumbnailBackfillResponse> startBackfill(@AuthenticationPrincipal User admin) {
+        try {
+            ReceiptThumbnailBackfillResponse status = backfillService.start(admin.getEmail());
+            log.info("🖼️ Thumbnail backfill started by {}", admin.getEmail());
+            return ResponseEntity.accepted().body(status);
+        } catch (IllegalStateException e) {
+            log.warn("🚫 Thumbnail backfill not started: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<ReceiptThumbnailBackfillResponse> getBackfill() {
+        return ResponseEntity.ok(backfillService.getStatus());
+    }
+
+    @PostMapping("/cancel")
+    public ResponseEntity<Void> cancelBackfill(@AuthenticationPrincipal User admin) {
+        if (!backfillService.cancel()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        log.info("⏹️ Thumbnail backfill cancelled by {}", admin.getEmail());
+        return ResponseEntity.accepted().build();
+    }
+}
@@ -0,0 +1,33 @@
+package com.sweetpotato.dto.fuel;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FuelReceiptBatchItemResponse {
+
+    public enum Status {
+        CREATED, DUPLICATE, QUEUED, INVALID, FAILED
+    }
+
+    // Position of the image in the multipart request
+    private int index;
+    private String fileName;
+    private Status status;
+
+    // Set for CREATED and DUPLICATE items
+    private FuelReceiptResponse result;
+
+    // Set for QUEUED items (async batches)
+    private String jobId;
+
+    // Set for INVALID and FAILED items
+    private String error;
+}
@@ -0,0 +1,33 @@
+package com.sweetpotato.dto.fuel;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FuelReceiptBatchResponse {
+
+    private int total;
+    private int succeeded;
+    private int failed;
+    private List<FuelReceiptBatchItemResponse> items;
+
+    public static FuelReceiptBatchResponse of(List<FuelReceiptBatchItemResponse> items) {
+        int failed = (int) items.stream()
+                .filter(item -> item.getStatus() == FuelReceiptBatchItemResponse.Status.INVALID
+                        || item.getStatus() == FuelReceiptBatchItemResponse.Status.FAILED)
+                .count();
+        return FuelReceiptBatchResponse.builder()
+                .total(items.size())
+                .succeeded(items.size() - failed)
+                .failed(failed)
+                .items(items)
+                .build();
+    }
+}
@@ -22,12 +22,15 @@ public class FuelReceiptResponse {
     private BigDecimal liters;
     private BigDecimal pricePerLiter;
     private String receiptImageUrl;
+    private String receiptThumbnailUrl;
+    private String receiptPreviewUrl;
     private String location;
     private LocalDateTime purchaseDate;
     private LocalDateTime createdAt;
     
     // OCR processing details
     private boolean ocrProcessed;
+    private String ocrStatus;
     private String ocrConfidence;
     private String rawOcrData;
     
@@ -1,7 +1,6 @@
 package com.sweetpotato.dto.fuel;
 
 import lombok.Data;
-import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.validation.constraints.NotNull;
 
@@ -9,7 +8,7 @@ import jakarta.validation.constraints.NotNull;
 public class FuelReceiptUploadRequest {
     
     @NotNull(message = "Receipt image is required")
-    private MultipartFile receiptImage;
+    private ReceiptImage receiptImage;
     
     // Optional fields that user can provide if they want to override OCR results
     private String stationName;
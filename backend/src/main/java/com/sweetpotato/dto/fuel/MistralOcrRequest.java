@@ -23,6 +23,27 @@ public class MistralOcrRequest {
     
     private Double temperature;
     
+    // Omitted unless set, so the default request body is unchanged
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean stream;
+    
+    @JsonProperty("response_format")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ResponseFormat responseFormat;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ResponseFormat {
+        private String type;
+        
+        // Constrains the model to emit a single valid JSON object
+        public static ResponseFormat jsonObject() {
+            return new ResponseFormat("json_object");
+        }
+    }
+    
     @Data
     @Builder
     @NoArgsConstructor
@@ -0,0 +1,33 @@
+package com.sweetpotato.dto.fuel;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Result of the receipt image preprocessing stage
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PreprocessedReceiptImage {
+
+    // Image to store and OCR (the original when preprocessing was skipped)
+    private ReceiptImage image;
+    private ReceiptImage original;
+
+    // Steps that were applied, e.g. "orient", "crop", "downscale", "grayscale", "reencode"
+    private List<String> steps;
+
+    public boolean isModified() {
+        return image != original;
+    }
+
+    public long getBytesSaved() {
+        return original.getSize() - image.getSize();
+    }
+}
@@ -0,0 +1,79 @@
+package com.sweetpotato.dto.fuel;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * In-memory copy of an uploaded receipt image.
+ * Unlike a MultipartFile it stays valid after the HTTP request has completed,
+ * so it can be handed to background ingestion jobs.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReceiptImage {
+
+    @ToString.Exclude
+    private byte[] content;
+    private String contentType;
+    private String originalFilename;
+
+    // Hex SHA-256 of the bytes as uploaded (before any preprocessing)
+    private String sha256;
+
+    /**
+     * Copies the upload into memory, computing its SHA-256 while the bytes are read
+     */
+    public static ReceiptImage from(MultipartFile file) throws IOException {
+        MessageDigest digest = newSha256();
+        byte[] content;
+        try (InputStream input = new DigestInputStream(file.getInputStream(), digest)) {
+            content = input.readAllBytes();
+        }
+
+        return ReceiptImage.builder()
+                .content(content)
+                .contentType(file.getContentType())
+                .originalFilename(file.getOriginalFilename())
+                .sha256(HexFormat.of().formatHex(digest.digest()))
+                .build();
+    }
+
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * SHA-256 of the current content: the upload hash when the bytes are unchanged, otherwise computed
+     */
+    public String contentSha256() {
+        if (sha256 != null) {
+            return sha256;
+        }
+        return HexFormat.of().formatHex(newSha256().digest(content));
+    }
+
+    public long getSize() {
+        return content != null ? content.length : 0;
+    }
+
+    public boolean isEmpty() {
+        return content == null || content.length == 0;
+    }
+}
@@ -0,0 +1,33 @@
+package com.sweetpotato.dto.fuel;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReceiptIngestionJobResponse {
+
+    public enum Status {
+        PENDING, PROCESSING, COMPLETED, FAILED
+    }
+
+    private String jobId;
+    private Status status;
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+
+    // Fields extracted so far by streaming OCR, while the job is still processing
+    private ExtractedFuelData preview;
+
+    // Only present once the job has finished
+    private FuelReceiptResponse result;
+    private String error;
+}
@@ -0,0 +1,65 @@
+package com.sweetpotato.dto.fuel;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * What a re-extraction run found so far. In a dry run {@code updated} stays 0 and everything else is
+ * what a real run would have written.
+ */
+@Data
+@NoArgsConstructor
+public class ReceiptReextractionReport {
+
+    private long scanned;
+    private long unchanged;
+    private long changed;
+    private long updated;
+    // No stored model output to re-parse (e.g. local OCR results)
+    private long skipped;
+    // Stored model output the current parser cannot read
+    private long failed;
+    // Changed or deleted by someone else between reading and writing; left as they are
+    private long conflicts;
+    // Fields whose stored value no longer matches the old extraction, so the user's value was kept
+    private long keptUserValues;
+    private Map<String, Long> fieldChanges = new TreeMap<>();
+    private List<FieldChange> samples = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FieldChange {
+        private Long recordId;
+        private String field;
+        private String before;
+        private String after;
+    }
+
+    /**
+     * Adds another report's counts; its samples are appended up to {@code maxSamples} in total
+     */
+    public void add(ReceiptReextractionReport other, int maxSamples) {
+        scanned += other.scanned;
+        unchanged += other.unchanged;
+        changed += other.changed;
+        updated += other.updated;
+        skipped += other.skipped;
+        failed += other.failed;
+        conflicts += other.conflicts;
+        keptUserValues += other.keptUserValues;
+        other.fieldChanges.forEach((field, count) -> fieldChanges.merge(field, count, Long::sum));
+        for (FieldChange sample : other.samples) {
+            if (samples.size() >= maxSamples) {
+                break;
+            }
+            samples.add(sample);
+        }
+    }
+}
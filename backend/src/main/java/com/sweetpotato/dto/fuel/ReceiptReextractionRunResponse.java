@@ -0,0 +1,29 @@
+package com.sweetpotato.dto.fuel;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.sweetpotato.entity.ReceiptReextractionRun;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReceiptReextractionRunResponse {
+
+    private Long id;
+    private ReceiptReextractionRun.Status status;
+    private boolean dryRun;
+    private String requestedBy;
+    private Long lastRecordId;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+    private ReceiptReextractionReport report;
+}
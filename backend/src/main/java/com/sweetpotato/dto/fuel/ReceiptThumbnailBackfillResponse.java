@@ -0,0 +1,31 @@
+package com.sweetpotato.dto.fuel;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReceiptThumbnailBackfillResponse {
+
+    public enum Status {
+        IDLE, RUNNING, COMPLETED, CANCELLED, INTERRUPTED, FAILED
+    }
+
+    private Status status;
+    private String requestedBy;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private long scanned;
+    private long generated;
+    private long failed;
+    private Long lastRecordId;
+    private String error;
+}
@@ -0,0 +1,17 @@
+package com.sweetpotato.dto.fuel;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+@Data
+public class ReceiptUploadFinalizeRequest {
+
+    @NotBlank(message = "Upload key is required")
+    private String key;
+
+    // Optional fields that user can provide if they want to override OCR results
+    private String stationName;
+    private String stationBrand;
+    private String location;
+    private String purchaseDate; // ISO format expected
+}
@@ -0,0 +1,13 @@
+package com.sweetpotato.dto.fuel;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import lombok.Data;
+
+@Data
+public class ReceiptUploadTicketRequest {
+
+    @NotBlank(message = "Content type is required")
+    @Pattern(regexp = "image/[A-Za-z0-9.+-]+", message = "Content type must be an image type")
+    private String contentType;
+}
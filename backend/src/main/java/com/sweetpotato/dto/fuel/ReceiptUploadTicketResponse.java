@@ -0,0 +1,26 @@
+package com.sweetpotato.dto.fuel;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Where and how to upload one receipt image straight to S3; finalize with {@code key} afterwards
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReceiptUploadTicketResponse {
+
+    private String key;
+    private String uploadUrl;
+    private String method;
+    // Must be sent with the upload exactly as given; they are part of the signature
+    private Map<String, String> headers;
+    private Instant expiresAt;
+}
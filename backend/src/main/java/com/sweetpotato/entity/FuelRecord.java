@@ -12,13 +12,25 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "fuel_records")
+@Table(name = "fuel_records", indexes = {
+        @Index(name = "idx_fuel_records_user_image_sha256", columnList = "user_id, image_sha256"),
+        @Index(name = "idx_fuel_records_ocr_status", columnList = "ocr_status")
+})
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class FuelRecord {
 
+    public enum OcrStatus {
+        // OCR ran and its result is stored
+        COMPLETED,
+        // OCR was skipped under load and will run later from the stored image
+        PENDING,
+        // OCR failed; the record is kept for manual entry
+        FAILED
+    }
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -51,6 +63,22 @@ public class FuelRecord {
     @Column(name = "receipt_image_url")
     private String receiptImageUrl;
 
+    @Column(name = "receipt_thumbnail_url")
+    private String receiptThumbnailUrl; // Small JPEG for list views; null until generated
+
+    @Column(name = "receipt_preview_url")
+    private String receiptPreviewUrl; // Medium JPEG for the detail view; null until generated
+
+    @Column(name = "original_image_url")
+    private String originalImageUrl; // Unprocessed upload archived when app.receipts.preprocessing.keep-original is on
+
+    @Column(name = "image_sha256", length = 64)
+    private String imageSha256; // SHA-256 of the uploaded image, used to short-circuit re-uploads
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "ocr_status", length = 16)
+    private OcrStatus ocrStatus;
+
     @Column(name = "extracted_data", columnDefinition = "TEXT")
     private String extractedData; // JSON string of OCR extracted data
 
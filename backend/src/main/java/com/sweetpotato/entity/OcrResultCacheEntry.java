@@ -0,0 +1,47 @@
+package com.sweetpotato.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * OCR result for an exact image, valid only for the model and prompt version that produced it
+ */
+@Entity
+@Table(name = "ocr_result_cache", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_ocr_result_cache_key", columnNames = {"image_digest", "model", "prompt_version"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OcrResultCacheEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "image_digest", nullable = false, length = 64)
+    private String imageDigest; // SHA-256 of the bytes sent to OCR
+
+    @Column(name = "model", nullable = false, length = 64)
+    private String model;
+
+    @Column(name = "prompt_version", nullable = false, length = 32)
+    private String promptVersion;
+
+    @Column(name = "extracted_data", nullable = false, columnDefinition = "TEXT")
+    private String extractedData; // ExtractedFuelData as JSON
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
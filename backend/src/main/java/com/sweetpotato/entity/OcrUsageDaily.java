@@ -0,0 +1,76 @@
+package com.sweetpotato.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * OCR calls and tokens per user, model and day. Rows are only ever added to, so every node can flush
+ * its own counts into the same row.
+ */
+@Entity
+@Table(name = "ocr_usage_daily", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_ocr_usage_daily_key", columnNames = {"usage_date", "user_id", "model"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OcrUsageDaily {
+
+    /**
+     * User id for calls not made on behalf of a user
+     */
+    public static final long NO_USER = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "usage_date", nullable = false)
+    private LocalDate usageDate;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "model", nullable = false, length = 64)
+    private String model;
+
+    @Column(name = "calls", nullable = false)
+    private long calls;
+
+    @Column(name = "failed_calls", nullable = false)
+    private long failedCalls;
+
+    @Column(name = "images", nullable = false)
+    private long images;
+
+    @Column(name = "image_bytes", nullable = false)
+    private long imageBytes;
+
+    @Column(name = "prompt_tokens", nullable = false)
+    private long promptTokens;
+
+    @Column(name = "completion_tokens", nullable = false)
+    private long completionTokens;
+
+    @Column(name = "total_tokens", nullable = false)
+    private long totalTokens;
+
+    @Column(name = "latency_ms", nullable = false)
+    private long latencyMs; // Sum over all calls; divide by calls for the mean
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+}
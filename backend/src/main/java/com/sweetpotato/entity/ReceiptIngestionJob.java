@@ -0,0 +1,48 @@
+package com.sweetpotato.entity;
+
+import com.sweetpotato.dto.fuel.ReceiptIngestionJobResponse;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Shared status of a background receipt ingestion job, so a poll that lands on any node can answer it,
+ * not just the node running the job
+ */
+@Entity
+@Table(name = "receipt_ingestion_jobs", indexes = {
+        @Index(name = "idx_receipt_ingestion_jobs_created_at", columnList = "created_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReceiptIngestionJob {
+
+    @Id
+    @Column(name = "id", length = 36)
+    private String id; // Job id handed to the client
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private ReceiptIngestionJobResponse.Status status;
+
+    @Column(name = "result", columnDefinition = "TEXT")
+    private String result; // FuelReceiptResponse as JSON, once completed
+
+    @Column(name = "error")
+    private String error;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,76 @@
+package com.sweetpotato.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A bulk re-extraction of stored OCR output. The run walks fuel records by id and checkpoints after every
+ * chunk, so an interrupted run picks up where it stopped.
+ */
+@Entity
+@Table(name = "receipt_reextraction_runs")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReceiptReextractionRun {
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        // Stopped on request; can be resumed
+        CANCELLED,
+        // Stopped by a shutdown; can be resumed
+        INTERRUPTED,
+        // Stopped by an error; can be resumed
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private Status status;
+
+    @Column(name = "dry_run", nullable = false)
+    private boolean dryRun;
+
+    @Column(name = "requested_by")
+    private String requestedBy;
+
+    @Column(name = "last_record_id", nullable = false)
+    private Long lastRecordId; // Checkpoint: every record up to this id has been processed
+
+    @Column(name = "report", columnDefinition = "TEXT")
+    private String report; // ReceiptReextractionReport as JSON
+
+    @Column(name = "error")
+    private String error;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,13 @@
+package com.sweetpotato.exception;
+
+import lombok.Getter;
+
+@Getter
+public class MistralApiException extends RuntimeException {
+    private final int statusCode;
+
+    public MistralApiException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+}
@@ -0,0 +1,10 @@
+package com.sweetpotato.exception;
+
+/**
+ * Background OCR work was held back because the daily token budget is spent
+ */
+public class OcrBudgetExceededException extends OcrUnavailableException {
+    public OcrBudgetExceededException(String message) {
+        super(message);
+    }
+}
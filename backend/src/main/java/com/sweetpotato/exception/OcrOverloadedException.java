@@ -0,0 +1,15 @@
+package com.sweetpotato.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+@Getter
+public class OcrOverloadedException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public OcrOverloadedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,7 @@
+package com.sweetpotato.exception;
+
+public class OcrUnavailableException extends RuntimeException {
+    public OcrUnavailableException(String message) {
+        super(message);
+    }
+}
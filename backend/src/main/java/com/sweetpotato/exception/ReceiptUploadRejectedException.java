@@ -0,0 +1,17 @@
+package com.sweetpotato.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * A streamed receipt upload that was refused while it was being received
+ */
+@Getter
+public class ReceiptUploadRejectedException extends RuntimeException {
+    private final HttpStatus status;
+
+    public ReceiptUploadRejectedException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+}
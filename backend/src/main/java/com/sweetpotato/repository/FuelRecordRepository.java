@@ -4,13 +4,17 @@ import com.sweetpotato.entity.FuelRecord;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface FuelRecordRepository extends JpaRepository<FuelRecord, Long> {
@@ -19,6 +23,30 @@ public interface FuelRecordRepository extends JpaRepository<FuelRecord, Long> {
     
     List<FuelRecord> findByUserIdOrderByCreatedAtDesc(Long userId);
     
+    Optional<FuelRecord> findFirstByUserIdAndImageSha256OrderByCreatedAtDesc(Long userId, String imageSha256);
+    
+    List<FuelRecord> findByOcrStatusOrderByCreatedAtAsc(FuelRecord.OcrStatus ocrStatus, Pageable pageable);
+    
+    List<FuelRecord> findByOcrStatusAndUserIdNotInOrderByCreatedAtAsc(FuelRecord.OcrStatus ocrStatus,
+                                                                      Collection<Long> userIds, Pageable pageable);
+    
+    // Keyset page: records with stored OCR output after the given id, in id order
+    @Query("SELECT fr FROM FuelRecord fr WHERE fr.id > :afterId AND fr.extractedData IS NOT NULL ORDER BY fr.id")
+    List<FuelRecord> findWithExtractedDataAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    // Keyset page: records with a receipt image but no thumbnails after the given id, in id order
+    @Query("SELECT fr FROM FuelRecord fr WHERE fr.id > :afterId AND fr.receiptImageUrl IS NOT NULL "
+            + "AND fr.receiptThumbnailUrl IS NULL ORDER BY fr.id")
+    List<FuelRecord> findMissingThumbnailsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    // Leaves a record alone if its thumbnails were set in the meantime
+    @Transactional
+    @Modifying
+    @Query("UPDATE FuelRecord fr SET fr.receiptThumbnailUrl = :thumbnailUrl, fr.receiptPreviewUrl = :previewUrl "
+            + "WHERE fr.id = :id AND fr.receiptThumbnailUrl IS NULL")
+    int setThumbnails(@Param("id") Long id, @Param("thumbnailUrl") String thumbnailUrl,
+                      @Param("previewUrl") String previewUrl);
+    
     @Query("SELECT SUM(fr.amount) FROM FuelRecord fr WHERE fr.user.id = :userId")
     BigDecimal getTotalAmountByUserId(@Param("userId") Long userId);
     
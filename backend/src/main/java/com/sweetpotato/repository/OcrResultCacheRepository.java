@@ -0,0 +1,23 @@
+package com.sweetpotato.repository;
+
+import com.sweetpotato.entity.OcrResultCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface OcrResultCacheRepository extends JpaRepository<OcrResultCacheEntry, Long> {
+
+    Optional<OcrResultCacheEntry> findByImageDigestAndModelAndPromptVersion(String imageDigest, String model,
+                                                                             String promptVersion);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM OcrResultCacheEntry e WHERE e.model <> :model OR e.promptVersion <> :promptVersion")
+    int deleteStale(@Param("model") String model, @Param("promptVersion") String promptVersion);
+}
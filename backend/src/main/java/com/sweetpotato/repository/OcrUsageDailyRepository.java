@@ -0,0 +1,44 @@
+package com.sweetpotato.repository;
+
+import com.sweetpotato.entity.OcrUsageDaily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface OcrUsageDailyRepository extends JpaRepository<OcrUsageDaily, Long> {
+
+    /**
+     * Adds the counts of {@code delta} to its existing row
+     * @return 0 if there is no row for the delta's day, user and model yet
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE OcrUsageDaily u SET u.calls = u.calls + :#{#delta.calls}, "
+            + "u.failedCalls = u.failedCalls + :#{#delta.failedCalls}, "
+            + "u.images = u.images + :#{#delta.images}, "
+            + "u.imageBytes = u.imageBytes + :#{#delta.imageBytes}, "
+            + "u.promptTokens = u.promptTokens + :#{#delta.promptTokens}, "
+            + "u.completionTokens = u.completionTokens + :#{#delta.completionTokens}, "
+            + "u.totalTokens = u.totalTokens + :#{#delta.totalTokens}, "
+            + "u.latencyMs = u.latencyMs + :#{#delta.latencyMs}, "
+            + "u.updatedAt = CURRENT_TIMESTAMP "
+            + "WHERE u.usageDate = :#{#delta.usageDate} AND u.userId = :#{#delta.userId} AND u.model = :#{#delta.model}")
+    int addUsage(@Param("delta") OcrUsageDaily delta);
+
+    @Query("SELECT u.userId AS userId, SUM(u.totalTokens) AS totalTokens FROM OcrUsageDaily u "
+            + "WHERE u.usageDate = :date GROUP BY u.userId")
+    List<UserTokenTotal> sumTotalTokensByUser(@Param("date") LocalDate date);
+
+    interface UserTokenTotal {
+        Long getUserId();
+
+        Long getTotalTokens();
+    }
+}
@@ -0,0 +1,28 @@
+package com.sweetpotato.repository;
+
+import com.sweetpotato.entity.ReceiptIngestionJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface ReceiptIngestionJobRepository extends JpaRepository<ReceiptIngestionJob, String> {
+
+    Optional<ReceiptIngestionJob> findByIdAndUserId(String id, Long userId);
+
+    /**
+     * Deletes finished jobs past retention, and unfinished ones whose node went away before finishing them
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ReceiptIngestionJob j WHERE (j.completedAt IS NOT NULL AND j.completedAt < :finishedBefore) " +
+           "OR j.createdAt < :createdBefore")
+    int deleteExpired(@Param("finishedBefore") LocalDateTime finishedBefore,
+                      @Param("createdBefore") LocalDateTime createdBefore);
+}
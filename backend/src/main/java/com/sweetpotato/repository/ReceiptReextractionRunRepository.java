@@ -0,0 +1,13 @@
+package com.sweetpotato.repository;
+
+import com.sweetpotato.entity.ReceiptReextractionRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ReceiptReextractionRunRepository extends JpaRepository<ReceiptReextractionRun, Long> {
+
+    List<ReceiptReextractionRun> findByStatus(ReceiptReextractionRun.Status status);
+}
@@ -0,0 +1,60 @@
+package com.sweetpotato.repository;
+
+import com.sweetpotato.entity.UploadIdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UploadIdempotencyRepository extends JpaRepository<UploadIdempotencyRecord, Long> {
+
+    Optional<UploadIdempotencyRecord> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    List<UploadIdempotencyRecord> findByUserIdAndRequestFingerprint(Long userId, String requestFingerprint);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UploadIdempotencyRecord r WHERE r.userId = :userId AND r.idempotencyKey = :idempotencyKey")
+    int deleteByUserIdAndIdempotencyKey(@Param("userId") Long userId, @Param("idempotencyKey") String idempotencyKey);
+
+    /**
+     * Takes over an in-progress key whose owner stopped updating it (e.g. the node died).
+     * Only one caller can win because the update is conditional on the old timestamp.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadIdempotencyRecord r SET r.updatedAt = :now, r.expiresAt = :expiresAt " +
+           "WHERE r.id = :id AND r.status = com.sweetpotato.entity.UploadIdempotencyRecord.Status.IN_PROGRESS " +
+           "AND r.updatedAt < :staleBefore")
+    int takeOverStale(@Param("id") Long id,
+                      @Param("staleBefore") LocalDateTime staleBefore,
+                      @Param("now") LocalDateTime now,
+                      @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Stores an interim response only while the key is still in progress, so it can never replace a final one
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadIdempotencyRecord r SET r.status = com.sweetpotato.entity.UploadIdempotencyRecord.Status.COMPLETED, " +
+           "r.interim = true, r.responseStatus = :status, r.responseBody = :body, r.updatedAt = :now " +
+           "WHERE r.userId = :userId AND r.idempotencyKey = :idempotencyKey " +
+           "AND r.status = com.sweetpotato.entity.UploadIdempotencyRecord.Status.IN_PROGRESS")
+    int acceptIfInProgress(@Param("userId") Long userId,
+                           @Param("idempotencyKey") String idempotencyKey,
+                           @Param("status") int status,
+                           @Param("body") String body,
+                           @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UploadIdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,127 @@
+package com.sweetpotato.service;
+
+import com.sweetpotato.dto.fuel.ExtractedFuelData;
+import com.sweetpotato.entity.FuelRecord;
+import com.sweetpotato.exception.OcrBudgetExceededException;
+import com.sweetpotato.exception.OcrOverloadedException;
+import com.sweetpotato.repository.FuelRecordRepository;
+import com.sweetpotato.util.Deadline;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Runs OCR for receipts that were stored without it while the OCR bulkhead was saturated.
+ * Works from the image in S3 and only takes free OCR slots, so it never competes with live uploads.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class DeferredOcrService {
+
+    private final FuelRecordRepository fuelRecordRepository;
+    private final FuelRecordService fuelRecordService;
+    private final ReceiptOcrService receiptOcrService;
+    private final OcrAdmissionService ocrAdmissionService;
+    private final OcrResilienceService ocrResilienceService;
+    private final OcrUsageLedger usageLedger;
+
+    @Value("${app.ocr.deferred.batch-size:10}")
+    private int batchSize;
+
+    @Value("${app.ocr.deferred.timeout-seconds:30}")
+    private long timeoutSeconds;
+
+    /**
+     * Works through the oldest pending receipts, up to batch-size OCR calls per run. Users whose token budget
+     * is spent are left out of the query for the rest of the run, so their backlog cannot hold up everyone else's.
+     */
+    @Scheduled(fixedDelayString = "${app.ocr.deferred.interval-ms:30000}")
+    public void processDeferredReceipts() {
+        if (usageLedger.isGlobalBudgetExhausted()) {
+            log.debug("OCR token budget spent, skipping deferred OCR");
+            return;
+        }
+
+        Set<Long> exhaustedUsers = new HashSet<>();
+        int attempted = 0;
+        while (attempted < batchSize) {
+            PageRequest page = PageRequest.of(0, batchSize - attempted);
+            List<FuelRecord> pending = exhaustedUsers.isEmpty()
+                    ? fuelRecordRepository.findByOcrStatusOrderByCreatedAtAsc(FuelRecord.OcrStatus.PENDING, page)
+                    : fuelRecordRepository.findByOcrStatusAndUserIdNotInOrderByCreatedAtAsc(
+                            FuelRecord.OcrStatus.PENDING, exhaustedUsers, page);
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            log.info("Running deferred OCR for up to {} receipts", pending.size());
+            for (FuelRecord fuelRecord : pending) {
+                if (!processDeferredReceipt(fuelRecord, exhaustedUsers)) {
+                    return;
+                }
+                if (!exhaustedUsers.contains(fuelRecord.getUser().getId())) {
+                    attempted++;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return false if the run should stop and leave the remaining receipts for the next one
+     */
+    private boolean processDeferredReceipt(FuelRecord fuelRecord, Set<Long> exhaustedUsers) {
+        Long userId = fuelRecord.getUser().getId();
+        if (exhaustedUsers.contains(userId)) {
+            return true;
+        }
+        if (usageLedger.budgetStatus(userId) == OcrUsageLedger.BudgetStatus.EXHAUSTED) {
+            exhaustedUsers.add(userId);
+            log.info("OCR token budget of user {} spent, leaving their deferred receipts for later", userId);
+            return !usageLedger.isGlobalBudgetExhausted();
+        }
+        if (!ocrAdmissionService.hasHeadroom()) {
+            log.info("OCR bulkhead busy, leaving remaining deferred receipts for the next run");
+            return false;
+        }
+        if (!ocrResilienceService.isAvailable()) {
+            log.info("OCR circuit breaker open, leaving remaining deferred receipts for the next run");
+            return false;
+        }
+
+        try {
+            Deadline deadline = Deadline.in(Duration.ofSeconds(timeoutSeconds));
+            ExtractedFuelData extractedData = receiptOcrService.processReceiptImage(fuelRecord.getReceiptImageUrl())
+                    .contextWrite(OcrWorkload::background)
+                    .contextWrite(OcrWorkload.forUser(userId))
+                    .contextWrite(deadline::putInto)
+                    .block(deadline.remaining());
+            fuelRecordService.applyDeferredOcr(fuelRecord.getId(), extractedData);
+        } catch (OcrOverloadedException e) {
+            log.info("OCR bulkhead rejected deferred receipt {}, retrying on the next run", fuelRecord.getId());
+            return false;
+        } catch (OcrBudgetExceededException e) {
+            // May only be this user's budget, so carry on with the others
+            log.info("OCR token budget spent, leaving deferred receipt {} for later", fuelRecord.getId());
+            exhaustedUsers.add(userId);
+            return !usageLedger.isGlobalBudgetExhausted();
+        } catch (Exception e) {
+            if (ocrResilienceService.isTransientFailure(e)) {
+                log.warn("Deferred OCR for receipt {} hit a transient failure, retrying on the next run: {}",
+                        fuelRecord.getId(), e.getMessage());
+                return false;
+            }
+            log.error("Deferred OCR failed for fuel record ID: {}", fuelRecord.getId(), e);
+            fuelRecordService.applyDeferredOcr(fuelRecord.getId(), null);
+        }
+        return true;
+    }
+}
@@ -1,11 +1,7 @@
 package com.sweetpotato.service;
 
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
-import com.amazonaws.auth.BasicAWSCredentials;
-import com.amazonaws.regions.Regions;
-import com.amazonaws.services.simpleemail.AmazonSimpleEmailService;
-import com.amazonaws.services.simpleemail.AmazonSimpleEmailServiceClientBuilder;
 import com.amazonaws.services.simpleemail.model.*;
+import com.sweetpotato.config.AwsClientFactory;
 import com.sweetpotato.config.DynamicConfigurationProperties;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -17,18 +13,7 @@ import org.springframework.stereotype.Service;
 public class EmailService {
 
     private final DynamicConfigurationProperties configProperties;
-
-    private AmazonSimpleEmailService getSESClient() {
-        BasicAWSCredentials credentials = new BasicAWSCredentials(
-                configProperties.getAwsAccessKey(),
-                configProperties.getAwsSecretKey()
-        );
-        
-        return AmazonSimpleEmailServiceClientBuilder.standard()
-                .withRegion(Regions.fromName(configProperties.getAwsRegion()))
-                .withCredentials(new AWSStaticCredentialsProvider(credentials))
-                .build();
-    }
+    private final AwsClientFactory awsClientFactory;
 
     public void sendPasswordResetOtp(String toEmail, String otp, String userName) {
         try {
@@ -65,8 +50,6 @@ public class EmailService {
     }
 
     private void sendEmail(String toEmail, String subject, String htmlBody, String textBody) {
-        AmazonSimpleEmailService sesClient = getSESClient();
-        
         SendEmailRequest request = new SendEmailRequest()
                 .withDestination(new Destination().withToAddresses(toEmail))
                 .withMessage(new Message()
@@ -77,7 +60,7 @@ public class EmailService {
                 .withSource(configProperties.getSesFromEmail())
                 .withReplyToAddresses(configProperties.getSesReplyToEmail());
                 
-        sesClient.sendEmail(request);
+        awsClientFactory.ses().sendEmail(request);
     }
 
     private String buildPasswordResetEmailHtml(String userName, String otp) {
@@ -2,26 +2,41 @@ package com.sweetpotato.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetpotato.config.PipelineSchedulers;
 import com.sweetpotato.dto.fuel.ExtractedFuelData;
+import com.sweetpotato.dto.fuel.FuelReceiptBatchItemResponse;
 import com.sweetpotato.dto.fuel.FuelReceiptResponse;
 import com.sweetpotato.dto.fuel.FuelReceiptUploadRequest;
+import com.sweetpotato.dto.fuel.PreprocessedReceiptImage;
+import com.sweetpotato.dto.fuel.ReceiptImage;
 import com.sweetpotato.entity.FuelRecord;
+import com.sweetpotato.entity.FuelRecord.OcrStatus;
 import com.sweetpotato.entity.User;
+import com.sweetpotato.exception.OcrOverloadedException;
 import com.sweetpotato.repository.FuelRecordRepository;
+import com.sweetpotato.util.Deadline;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuples;
 
-import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
@@ -29,63 +44,358 @@ import java.util.Optional;
 @Transactional
 public class FuelRecordService {
 
+    private static final Duration OCR_STAGE_TIMEOUT = Duration.ofSeconds(15);
+    // Time kept back from the request deadline for persisting the record
+    private static final Duration SAVE_RESERVE = Duration.ofSeconds(1);
+
     private final FuelRecordRepository fuelRecordRepository;
     private final S3UploadService s3UploadService;
-    private final MistralOcrService mistralOcrService;
+    private final ReceiptOcrService receiptOcrService;
     private final FuelBrandLogoService fuelBrandLogoService;
+    private final ReceiptImagePreprocessor receiptImagePreprocessor;
     private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final PipelineSchedulers pipelineSchedulers;
+    private final OcrAdmissionService ocrAdmissionService;
+    private final OcrResilienceService ocrResilienceService;
+    private final ReceiptFieldNormalizer fieldNormalizer;
+    private final ReceiptThumbnailService receiptThumbnailService;
+    private final IdempotencyService idempotencyService;
+
+    @Value("${app.receipts.preprocessing.keep-original:false}")
+    private boolean keepOriginalImages;
+
+    @Value("${app.receipts.batch.concurrency:4}")
+    private int batchConcurrency;
 
     public Mono<FuelReceiptResponse> processReceiptUpload(FuelReceiptUploadRequest request, User user) {
         log.info("Processing fuel receipt upload for user: {}", user.getId());
 
-        return uploadImageAndProcessOcr(request.getReceiptImage())
+        ReceiptImage receiptImage = request.getReceiptImage();
+        return findExistingUpload(receiptImage, user)
+                .switchIfEmpty(Mono.defer(() -> processNewUpload(request, receiptImage, user)))
+                .contextWrite(OcrWorkload.forUser(user.getId()))
+                .doOnError(error -> log.error("Error processing fuel receipt upload", error));
+    }
+
+    /**
+     * Looks up a record created from an identical image, so a retried upload skips S3 and OCR entirely
+     */
+    private Mono<FuelReceiptResponse> findExistingUpload(ReceiptImage receiptImage, User user) {
+        if (receiptImage.getSha256() == null) {
+            return Mono.empty();
+        }
+
+        return Mono.fromCallable(() -> fuelRecordRepository
+                        .findFirstByUserIdAndImageSha256OrderByCreatedAtDesc(user.getId(), receiptImage.getSha256()))
+                .subscribeOn(pipelineSchedulers.getDb())
+                .flatMap(Mono::justOrEmpty)
+                .doOnNext(existing -> log.info("Duplicate receipt image for user: {}, returning existing record ID: {}",
+                        user.getId(), existing.getId()))
+                .map(existing -> mapToResponse(existing, readExtractedData(existing)));
+    }
+
+    private Mono<FuelReceiptResponse> processNewUpload(FuelReceiptUploadRequest request, ReceiptImage receiptImage,
+                                                       User user) {
+        return uploadImageAndProcessOcr(receiptImage)
                 .map(result -> {
                     ExtractedFuelData extractedData = result.extractedData;
-                    String imageUrl = result.imageUrl;
-
-                    FuelRecord fuelRecord = createFuelRecordFromExtractedData(extractedData, user, imageUrl);
-                    
-                    // Override with user-provided data if available
-                    if (request.getStationName() != null) {
-                        fuelRecord.setStationName(request.getStationName());
-                    }
-                    if (request.getStationBrand() != null) {
-                        fuelRecord.setStationBrand(request.getStationBrand());
-                    }
-                    if (request.getLocation() != null) {
-                        fuelRecord.setLocation(request.getLocation());
-                    }
-                    if (request.getPurchaseDate() != null) {
-                        fuelRecord.setPurchaseDate(parseDateTime(request.getPurchaseDate()));
-                    }
+                    FuelRecord fuelRecord = buildFuelRecord(request, receiptImage, result, user);
 
                     FuelRecord savedRecord = fuelRecordRepository.save(fuelRecord);
                     log.info("Saved fuel record with ID: {}", savedRecord.getId());
 
                     return mapToResponse(savedRecord, extractedData);
+                });
+    }
+
+    /**
+     * Creates the record for a receipt the client uploaded straight to S3 with a presigned URL. The uploaded
+     * object stays the receipt image; its bytes are only read back for OCR.
+     */
+    public Mono<FuelReceiptResponse> processDirectUpload(String key, ReceiptImage receiptImage,
+                                                         FuelReceiptUploadRequest request, User user) {
+        log.info("Processing direct receipt upload {} for user: {}", key, user.getId());
+
+        String imageUrl = s3UploadService.getFileUrl(key);
+        return findExistingUpload(receiptImage, user)
+                .delayUntil(existing -> discardDuplicateObject(existing, key, imageUrl))
+                .switchIfEmpty(Mono.defer(() -> Mono.fromCallable(() -> receiptImagePreprocessor.preprocess(receiptImage))
+                        .subscribeOn(pipelineSchedulers.getOcr())
+                        .flatMap(preprocessed -> Mono.zip(extractWithFallbacks(preprocessed.getImage()).materialize(),
+                                generateThumbnails(receiptImage)))
+                        // A shed OCR call fails the request; the client's object stays for a retry, the thumbnails go
+                        .flatMap(tuple -> tuple.getT1().isOnError()
+                                ? discardUploads(null, null, tuple.getT2()).then(Mono.error(tuple.getT1().getThrowable()))
+                                : Mono.justOrEmpty(tuple.getT1().get()).map(result -> Tuples.of(result, tuple.getT2())))
+                        .publishOn(pipelineSchedulers.getDb())
+                        .map(tuple -> {
+                            ProcessingResult result = tuple.getT1();
+                            ProcessingResult stored = new ProcessingResult(imageUrl, result.extractedData,
+                                    result.ocrStatus, tuple.getT2());
+                            FuelRecord savedRecord = fuelRecordRepository.save(
+                                    buildFuelRecord(request, receiptImage, stored, user));
+                            log.info("Saved fuel record with ID: {}", savedRecord.getId());
+                            return mapToResponse(savedRecord, result.extractedData);
+                        })))
+                .contextWrite(OcrWorkload.forUser(user.getId()))
+                .doOnError(error -> log.error("Error processing direct receipt upload", error));
+    }
+
+    // A re-uploaded image only needs the existing record; the new copy would never be referenced
+    private Mono<Void> discardDuplicateObject(FuelReceiptResponse existing, String key, String imageUrl) {
+        if (imageUrl.equals(existing.getReceiptImageUrl())) {
+            // Finalized twice; the object belongs to the existing record
+            return Mono.empty();
+        }
+        return s3UploadService.deleteObjectAsync(key)
+                .onErrorResume(e -> {
+                    log.warn("Failed to delete duplicate direct upload {}", key, e);
+                    return Mono.empty();
+                });
+    }
+
+    private FuelRecord buildFuelRecord(FuelReceiptUploadRequest request, ReceiptImage receiptImage,
+                                       ProcessingResult result, User user) {
+        FuelRecord fuelRecord = createFuelRecordFromExtractedData(result.extractedData, user, result.imageUrl);
+        fuelRecord.setImageSha256(receiptImage.getSha256());
+        fuelRecord.setOcrStatus(result.ocrStatus);
+        fuelRecord.setReceiptThumbnailUrl(result.thumbnails.thumbnailUrl());
+        fuelRecord.setReceiptPreviewUrl(result.thumbnails.previewUrl());
+        fuelRecord.setOriginalImageUrl(result.originalImageUrl);
+
+        if (request == null) {
+            return fuelRecord;
+        }
+
+        // Override with user-provided data if available
+        if (request.getStationName() != null) {
+            fuelRecord.setStationName(request.getStationName());
+        }
+        if (request.getStationBrand() != null) {
+            fuelRecord.setStationBrand(request.getStationBrand());
+        }
+        if (request.getLocation() != null) {
+            fuelRecord.setLocation(request.getLocation());
+        }
+        if (request.getPurchaseDate() != null) {
+            fuelRecord.setPurchaseDate(parseDateTime(request.getPurchaseDate()));
+        }
+        return fuelRecord;
+    }
+
+    /**
+     * Runs a batch of receipt images through the upload/OCR pipeline with bounded parallelism and
+     * inserts all new records in a single transaction. Results are returned in request order, with
+     * each item's index referring to its position in {@code images}.
+     */
+    public Mono<List<FuelReceiptBatchItemResponse>> processReceiptBatch(List<ReceiptImage> images, User user) {
+        log.info("Processing batch of {} receipt uploads for user: {} (concurrency: {})",
+                images.size(), user.getId(), batchConcurrency);
+
+        // Identical images within one batch are only processed once
+        Map<String, Integer> firstIndexByHash = new HashMap<>();
+        for (int i = 0; i < images.size(); i++) {
+            String sha256 = images.get(i).getSha256();
+            if (sha256 != null) {
+                firstIndexByHash.putIfAbsent(sha256, i);
+            }
+        }
+
+        return Flux.range(0, images.size())
+                .filter(index -> isFirstInBatch(images.get(index), index, firstIndexByHash))
+                .flatMap(index -> processBatchItem(index, images.get(index), user), batchConcurrency)
+                // Cache misses may share multi-image OCR calls (app.ocr.batching); as bulk work, OCR may
+                // be slowed down or deferred to stay within the token budget
+                .contextWrite(OcrBatcher::allowBatching)
+                .contextWrite(OcrWorkload::background)
+                .contextWrite(OcrWorkload.forUser(user.getId()))
+                .collectList()
+                .flatMap(items -> saveBatch(items, user))
+                .map(outcomes -> {
+                    List<FuelReceiptBatchItemResponse> responses = new ArrayList<>(images.size());
+                    for (int i = 0; i < images.size(); i++) {
+                        ReceiptImage image = images.get(i);
+                        if (isFirstInBatch(image, i, firstIndexByHash)) {
+                            responses.add(outcomes.get(i));
+                        } else {
+                            FuelReceiptBatchItemResponse first = outcomes.get(firstIndexByHash.get(image.getSha256()));
+                            responses.add(first.toBuilder()
+                                    .index(i)
+                                    .status(first.getStatus() == FuelReceiptBatchItemResponse.Status.FAILED
+                                            ? FuelReceiptBatchItemResponse.Status.FAILED
+                                            : FuelReceiptBatchItemResponse.Status.DUPLICATE)
+                                    .build());
+                        }
+                    }
+                    return responses;
+                });
+    }
+
+    private boolean isFirstInBatch(ReceiptImage image, int index, Map<String, Integer> firstIndexByHash) {
+        return image.getSha256() == null || firstIndexByHash.get(image.getSha256()) == index;
+    }
+
+    private Mono<BatchItem> processBatchItem(int index, ReceiptImage receiptImage, User user) {
+        return findExistingUpload(receiptImage, user)
+                .map(existing -> BatchItem.existing(index, existing))
+                .switchIfEmpty(Mono.defer(() -> uploadImageAndProcessOcr(receiptImage)
+                        .map(result -> BatchItem.pending(index,
+                                buildFuelRecord(null, receiptImage, result, user), result.extractedData))))
+                .onErrorResume(error -> {
+                    log.error("Error processing receipt {} of batch for user: {}", index, user.getId(), error);
+                    return Mono.just(BatchItem.failed(index, "Receipt processing failed"));
+                });
+    }
+
+    /**
+     * Inserts the new records of a batch in one transaction; if the insert fails, every new item is reported as
+     * failed and the objects stored for it are deleted
+     */
+    private Mono<Map<Integer, FuelReceiptBatchItemResponse>> saveBatch(List<BatchItem> items, User user) {
+        List<BatchItem> pending = items.stream()
+                .filter(item -> item.fuelRecord != null)
+                .toList();
+
+        boolean saved = true;
+        if (!pending.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> fuelRecordRepository.saveAll(
+                        pending.stream().map(item -> item.fuelRecord).toList()));
+                log.info("Saved {} fuel records from batch for user: {}", pending.size(), user.getId());
+            } catch (DataAccessException e) {
+                log.error("Failed to save batch of {} fuel records for user: {}", pending.size(), user.getId(), e);
+                saved = false;
+            }
+        }
+
+        Map<Integer, FuelReceiptBatchItemResponse> outcomes = new HashMap<>();
+        for (BatchItem item : items) {
+            FuelReceiptBatchItemResponse.FuelReceiptBatchItemResponseBuilder response =
+                    FuelReceiptBatchItemResponse.builder().index(item.index);
+            if (item.existing != null) {
+                response.status(FuelReceiptBatchItemResponse.Status.DUPLICATE).result(item.existing);
+            } else if (item.fuelRecord != null && saved) {
+                response.status(FuelReceiptBatchItemResponse.Status.CREATED)
+                        .result(mapToResponse(item.fuelRecord, item.extractedData));
+            } else {
+                response.status(FuelReceiptBatchItemResponse.Status.FAILED)
+                        .error(item.error != null ? item.error : "Failed to save receipt");
+            }
+            outcomes.put(item.index, response.build());
+        }
+        if (saved) {
+            return Mono.just(outcomes);
+        }
+        return Flux.fromIterable(pending)
+                .flatMap(item -> discardUploads(item.fuelRecord.getReceiptImageUrl(),
+                        item.fuelRecord.getOriginalImageUrl(),
+                        new ReceiptThumbnailService.Thumbnails(item.fuelRecord.getReceiptThumbnailUrl(),
+                                item.fuelRecord.getReceiptPreviewUrl())))
+                .then(Mono.just(outcomes));
+    }
+
+    /**
+     * Preprocesses the image, then forks the pipeline: the S3 PUT, the OCR call and the thumbnails run
+     * concurrently from the same buffers instead of OCR re-downloading the object from S3.
+     */
+    private Mono<ProcessingResult> uploadImageAndProcessOcr(ReceiptImage receiptImage) {
+        return Mono.fromCallable(() -> receiptImagePreprocessor.preprocess(receiptImage))
+                .subscribeOn(pipelineSchedulers.getOcr())
+                .flatMap(preprocessed -> {
+                    ReceiptImage image = preprocessed.getImage();
+
+                    Mono<String> upload = s3UploadService.uploadReceiptImageAsync(image)
+                            .transform(Deadline.bound(null, SAVE_RESERVE))
+                            .doOnNext(imageUrl -> log.info("Image uploaded to S3: {}", imageUrl));
+
+                    Mono<ProcessingResult> ocr = extractWithFallbacks(image);
+
+                    // Thumbnails come from the original, which keeps its colour. The branches are materialized so a
+                    // shed OCR call or a failed upload does not cancel the other PUTs halfway through; whatever they
+                    // stored is deleted before the error is passed on.
+                    return Mono.zip(upload.materialize(), ocr.materialize(), generateThumbnails(receiptImage))
+                            .flatMap(tuple -> {
+                                String imageUrl = tuple.getT1().get();
+                                ProcessingResult result = tuple.getT2().get();
+                                if (imageUrl != null && result != null) {
+                                    return Mono.just(new ProcessingResult(imageUrl, result.extractedData,
+                                            result.ocrStatus, tuple.getT3()));
+                                }
+                                Throwable error = tuple.getT1().isOnError()
+                                        ? tuple.getT1().getThrowable()
+                                        : tuple.getT2().getThrowable();
+                                return discardUploads(imageUrl, null, tuple.getT3())
+                                        .then(error != null ? Mono.<ProcessingResult>error(error) : Mono.empty());
+                            })
+                            .flatMap(result -> archiveOriginal(preprocessed)
+                                    .map(result::withOriginalImageUrl)
+                                    .defaultIfEmpty(result));
                 })
-                .doOnError(error -> log.error("Error processing fuel receipt upload", error));
+                // OCR may complete on a Netty event loop; callers save to JPA next, so move off it
+                .publishOn(pipelineSchedulers.getDb());
     }
 
-    private Mono<ProcessingResult> uploadImageAndProcessOcr(MultipartFile receiptImage) {
-        try {
-            String imageUrl = s3UploadService.uploadReceiptImage(receiptImage);
-            log.info("Image uploaded to S3: {}", imageUrl);
-
-            return mistralOcrService.processReceiptImage(imageUrl)
-                    .map(extractedData -> new ProcessingResult(imageUrl, extractedData))
-                    .doOnError(ocrError -> {
-                        log.error("OCR processing failed, but image was uploaded: {}", imageUrl, ocrError);
-                        // Don't delete the image, user can still manually enter data
-                    })
-                    .timeout(java.time.Duration.ofSeconds(15)) // Add timeout to OCR processing
-                    .onErrorReturn(new ProcessingResult(imageUrl, createEmptyExtractedData())); // Fallback on any error
-
-        } catch (IOException e) {
-            log.error("Failed to upload image to S3", e);
-            // Instead of erroring, return empty data and let user manually enter
-            return Mono.just(new ProcessingResult("", createEmptyExtractedData()));
+    // Best effort: deletes objects stored for a receipt that ends up without a record
+    private Mono<Void> discardUploads(String imageUrl, String originalImageUrl,
+                                      ReceiptThumbnailService.Thumbnails thumbnails) {
+        return Flux.fromStream(Stream.of(imageUrl, originalImageUrl, thumbnails.thumbnailUrl(), thumbnails.previewUrl())
+                        .filter(Objects::nonNull))
+                .flatMap(url -> Mono.fromCallable(() -> s3UploadService.extractKeyFromUrl(url))
+                        .flatMap(s3UploadService::deleteObjectAsync)
+                        .onErrorResume(e -> {
+                            log.warn("Failed to delete unreferenced receipt object {}", url, e);
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    // Thumbnails are optional; a record without them is picked up by the thumbnail backfill
+    private Mono<ReceiptThumbnailService.Thumbnails> generateThumbnails(ReceiptImage image) {
+        return receiptThumbnailService.generate(image)
+                .transform(Deadline.bound(null, SAVE_RESERVE))
+                .onErrorReturn(ReceiptThumbnailService.Thumbnails.NONE);
+    }
+
+    // OCR for a new receipt; overload and outages store it PENDING for deferred OCR, other failures store it
+    // FAILED for manual entry
+    private Mono<ProcessingResult> extractWithFallbacks(ReceiptImage image) {
+        return receiptOcrService.processReceiptImage(image)
+                // Leave enough of the request deadline to save the record with whatever OCR produced
+                .transform(Deadline.bound(OCR_STAGE_TIMEOUT, SAVE_RESERVE))
+                .map(extractedData -> new ProcessingResult(null, extractedData, OcrStatus.COMPLETED))
+                .onErrorResume(OcrOverloadedException.class, overloaded -> {
+                    if (!ocrAdmissionService.isDeferOnOverload()) {
+                        return Mono.error(overloaded);
+                    }
+                    log.warn("OCR at capacity, storing receipt for deferred OCR");
+                    return Mono.just(new ProcessingResult(null, null, OcrStatus.PENDING));
+                })
+                .onErrorResume(ocrError -> !(ocrError instanceof OcrOverloadedException)
+                        && ocrResilienceService.isTransientFailure(ocrError), ocrError -> {
+                    // Mistral is down or slow right now; the image is fine, so try again later
+                    log.warn("OCR unavailable ({}), storing receipt for deferred OCR", ocrError.getMessage());
+                    return Mono.just(new ProcessingResult(null, null, OcrStatus.PENDING));
+                })
+                .onErrorResume(ocrError -> !(ocrError instanceof OcrOverloadedException), ocrError -> {
+                    log.error("OCR processing failed, image is still stored", ocrError);
+                    // Don't delete the image, user can still manually enter data
+                    return Mono.just(new ProcessingResult(null, createEmptyExtractedData(), OcrStatus.FAILED));
+                });
+    }
+
+    // Emits the archived original's URL, or nothing when no original is kept
+    private Mono<String> archiveOriginal(PreprocessedReceiptImage preprocessed) {
+        if (!keepOriginalImages || !preprocessed.isModified()) {
+            return Mono.empty();
         }
+
+        return s3UploadService.uploadOriginalReceiptImageAsync(preprocessed.getOriginal())
+                .doOnNext(originalUrl -> log.info("Original receipt image archived: {}", originalUrl))
+                .onErrorResume(e -> {
+                    log.warn("Failed to archive original receipt image", e);
+                    return Mono.empty();
+                });
     }
 
     private ExtractedFuelData createEmptyExtractedData() {
@@ -95,6 +405,13 @@ public class FuelRecordService {
         return emptyData;
     }
 
+    /**
+     * The record fields an OCR result maps to, as an unsaved record without user or image
+     */
+    public FuelRecord toRecordFields(ExtractedFuelData extractedData) {
+        return createFuelRecordFromExtractedData(extractedData, null, null);
+    }
+
     private FuelRecord createFuelRecordFromExtractedData(ExtractedFuelData extractedData, User user, String imageUrl) {
         FuelRecord.FuelRecordBuilder builder = FuelRecord.builder()
                 .user(user)
@@ -104,7 +421,7 @@ public class FuelRecordService {
             builder
                 .stationName(extractedData.getStationName())
                 .stationBrand(extractedData.getStationBrand())
-                .fuelType(validateFuelType(extractedData.getFuelType()))
+                .fuelType(fieldNormalizer.normalizeFuelType(extractedData.getFuelType()))
                 .amount(extractedData.getTotalAmount())
                 .liters(extractedData.getLiters())
                 .pricePerLiter(extractedData.getPricePerLiter())
@@ -123,30 +440,15 @@ public class FuelRecordService {
         return builder.build();
     }
 
-    private String validateFuelType(String fuelType) {
-        if (fuelType == null) {
-            return "unknown";
+    private ExtractedFuelData readExtractedData(FuelRecord fuelRecord) {
+        if (fuelRecord.getExtractedData() == null) {
+            return null;
         }
-        
-        // Normalize the fuel type (case-insensitive comparison)
-        String normalizedFuelType = fuelType.trim().toLowerCase();
-        
-        switch (normalizedFuelType) {
-            case "petrol":
-            case "gasoline":
-            case "gas":
-                return "Petrol";
-            case "diesel":
-                return "Diesel";
-            case "cng":
-            case "compressed natural gas":
-                return "CNG";
-            case "lpg":
-            case "liquified petroleum gas":
-                return "LPG";
-            default:
-                log.info("Unknown fuel type detected: {}. Setting to 'unknown'", fuelType);
-                return "unknown";
+        try {
+            return objectMapper.readValue(fuelRecord.getExtractedData(), ExtractedFuelData.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Stored extracted data for record {} is not valid JSON", fuelRecord.getId());
+            return null;
         }
     }
 
@@ -176,12 +478,12 @@ public class FuelRecordService {
     }
 
     private LocalDateTime parseDateTime(String dateTimeString) {
-        try {
-            return LocalDateTime.parse(dateTimeString, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-        } catch (DateTimeParseException e) {
+        LocalDateTime dateTime = fieldNormalizer.parseDateTime(dateTimeString);
+        if (dateTime == null) {
             log.warn("Failed to parse date time: {}", dateTimeString);
             return LocalDateTime.now();
         }
+        return dateTime;
     }
 
     private FuelReceiptResponse mapToResponse(FuelRecord fuelRecord, ExtractedFuelData extractedData) {
@@ -200,17 +502,54 @@ public class FuelRecordService {
                 .liters(fuelRecord.getLiters())
                 .pricePerLiter(fuelRecord.getPricePerLiter())
                 .receiptImageUrl(fuelRecord.getReceiptImageUrl())
+                .receiptThumbnailUrl(fuelRecord.getReceiptThumbnailUrl())
+                .receiptPreviewUrl(fuelRecord.getReceiptPreviewUrl())
                 .location(fuelRecord.getLocation())
                 .purchaseDate(fuelRecord.getPurchaseDate())
                 .createdAt(fuelRecord.getCreatedAt())
                 .brandLogoUrl(brandLogoUrl)
                 .ocrProcessed(extractedData != null)
+                .ocrStatus(fuelRecord.getOcrStatus() != null ? fuelRecord.getOcrStatus().name() : null)
                 .ocrConfidence(extractedData != null && extractedData.getConfidence() != null ? 
                     extractedData.getConfidence().toString() : null)
                 .rawOcrData(extractedData != null ? extractedData.getRawText() : null)
                 .build();
     }
 
+    /**
+     * Fills in the OCR result for a record whose OCR was deferred; values the user entered at upload are kept
+     */
+    public void applyDeferredOcr(Long recordId, ExtractedFuelData extractedData) {
+        fuelRecordRepository.findById(recordId).ifPresent(fuelRecord -> {
+            if (extractedData == null) {
+                fuelRecord.setOcrStatus(OcrStatus.FAILED);
+            } else {
+                FuelRecord ocrRecord = createFuelRecordFromExtractedData(extractedData, fuelRecord.getUser(),
+                        fuelRecord.getReceiptImageUrl());
+                if (fuelRecord.getStationName() == null) {
+                    fuelRecord.setStationName(ocrRecord.getStationName());
+                }
+                if (fuelRecord.getStationBrand() == null) {
+                    fuelRecord.setStationBrand(ocrRecord.getStationBrand());
+                }
+                if (fuelRecord.getLocation() == null) {
+                    fuelRecord.setLocation(ocrRecord.getLocation());
+                }
+                if (fuelRecord.getPurchaseDate() == null) {
+                    fuelRecord.setPurchaseDate(ocrRecord.getPurchaseDate());
+                }
+                fuelRecord.setFuelType(ocrRecord.getFuelType());
+                fuelRecord.setAmount(ocrRecord.getAmount());
+                fuelRecord.setLiters(ocrRecord.getLiters());
+                fuelRecord.setPricePerLiter(ocrRecord.getPricePerLiter());
+                fuelRecord.setExtractedData(ocrRecord.getExtractedData());
+                fuelRecord.setOcrStatus(OcrStatus.COMPLETED);
+            }
+            fuelRecordRepository.save(fuelRecord);
+            log.info("Applied deferred OCR to fuel record ID: {} (status: {})", recordId, fuelRecord.getOcrStatus());
+        });
+    }
+
     public Page<FuelReceiptResponse> getUserFuelRecords(Long userId, Pageable pageable) {
         Page<FuelRecord> records = fuelRecordRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
         return records.map(record -> mapToResponse(record, null));
@@ -239,8 +578,13 @@ public class FuelRecordService {
                     // Continue with record deletion even if S3 deletion fails
                 }
             }
+            deleteThumbnail(record.getReceiptThumbnailUrl());
+            deleteThumbnail(record.getReceiptPreviewUrl());
+            deleteOriginal(record.getOriginalImageUrl());
             
             fuelRecordRepository.delete(record);
+            // Otherwise uploading the same image again would replay the response for the deleted record
+            idempotencyService.releaseImage(userId, record.getImageSha256());
             log.info("Deleted fuel record with ID: {}", id);
             return true;
         }
@@ -248,14 +592,86 @@ public class FuelRecordService {
         return false;
     }
 
+    private void deleteThumbnail(String url) {
+        if (url == null) {
+            return;
+        }
+        try {
+            s3UploadService.deleteFile(url);
+        } catch (Exception e) {
+            log.warn("Failed to delete receipt thumbnail from S3: {}", url, e);
+        }
+    }
+
+    private void deleteOriginal(String url) {
+        if (url == null) {
+            return;
+        }
+        try {
+            s3UploadService.deleteFile(url);
+        } catch (Exception e) {
+            log.warn("Failed to delete archived original receipt image from S3: {}", url, e);
+        }
+    }
+
+    // Outcome of one batch item before the batch is saved
+    private static class BatchItem {
+        final int index;
+        final FuelReceiptResponse existing;
+        final FuelRecord fuelRecord;
+        final ExtractedFuelData extractedData;
+        final String error;
+
+        private BatchItem(int index, FuelReceiptResponse existing, FuelRecord fuelRecord,
+                          ExtractedFuelData extractedData, String error) {
+            this.index = index;
+            this.existing = existing;
+            this.fuelRecord = fuelRecord;
+            this.extractedData = extractedData;
+            this.error = error;
+        }
+
+        static BatchItem existing(int index, FuelReceiptResponse existing) {
+            return new BatchItem(index, existing, null, null, null);
+        }
+
+        static BatchItem pending(int index, FuelRecord fuelRecord, ExtractedFuelData extractedData) {
+            return new BatchItem(index, null, fuelRecord, extractedData, null);
+        }
+
+        static BatchItem failed(int index, String error) {
+            return new BatchItem(index, null, null, null, error);
+        }
+    }
+
     // Helper class for processing results
     private static class ProcessingResult {
         final String imageUrl;
         final ExtractedFuelData extractedData;
+        final OcrStatus ocrStatus;
+        final ReceiptThumbnailService.Thumbnails thumbnails;
+        final String originalImageUrl;
 
-        ProcessingResult(String imageUrl, ExtractedFuelData extractedData) {
+        ProcessingResult(String imageUrl, ExtractedFuelData extractedData, OcrStatus ocrStatus) {
+            this(imageUrl, extractedData, ocrStatus, ReceiptThumbnailService.Thumbnails.NONE);
+        }
+
+        ProcessingResult(String imageUrl, ExtractedFuelData extractedData, OcrStatus ocrStatus,
+                         ReceiptThumbnailService.Thumbnails thumbnails) {
+            this(imageUrl, extractedData, ocrStatus, thumbnails, null);
+        }
+
+        private ProcessingResult(String imageUrl, ExtractedFuelData extractedData, OcrStatus ocrStatus,
+                                 ReceiptThumbnailService.Thumbnails thumbnails, String originalImageUrl) {
             this.imageUrl = imageUrl;
             this.extractedData = extractedData;
+            this.ocrStatus = ocrStatus;
+            this.thumbnails = thumbnails;
+            this.originalImageUrl = originalImageUrl;
+        }
+
+        ProcessingResult withOriginalImageUrl(String originalImageUrl) {
+            return new ProcessingResult(imageUrl, extractedData, ocrStatus, thumbnails, originalImageUrl);
         }
     }
 }
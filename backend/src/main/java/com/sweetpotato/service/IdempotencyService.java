@@ -0,0 +1,236 @@
+package com.sweetpotato.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetpotato.entity.UploadIdempotencyRecord;
+import com.sweetpotato.repository.UploadIdempotencyRepository;
+import com.sweetpotato.util.BoundedExpiringCache;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Idempotency layer for receipt uploads.
+ * Completed responses are cached in a bounded, expiring in-memory store in front of
+ * a shared Postgres table; claiming a key is an insert against a unique constraint,
+ * so only one node ever runs the upload for a given key.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    public enum Outcome {
+        /** The caller owns the key and must run the request, then complete or release it */
+        CLAIMED,
+        /** A response is stored for this key and should be replayed */
+        REPLAY,
+        /** Another request with this key is still running */
+        IN_PROGRESS,
+        /** The key was used before with a different image */
+        MISMATCH
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Claim {
+        private final Outcome outcome;
+        private final Integer responseStatus;
+        private final String responseBody;
+
+        static Claim of(Outcome outcome) {
+            return new Claim(outcome, null, null);
+        }
+    }
+
+    private record StoredResponse(String fingerprint, int status, String body) {
+    }
+
+    private final UploadIdempotencyRepository repository;
+    private final ObjectMapper objectMapper;
+    private final BoundedExpiringCache<String, StoredResponse> localResponses;
+    private final Duration ttl;
+    private final Duration inProgressTimeout;
+
+    public IdempotencyService(UploadIdempotencyRepository repository,
+                              ObjectMapper objectMapper,
+                              @Value("${app.receipts.idempotency.local-max-entries:10000}") int localMaxEntries,
+                              @Value("${app.receipts.idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${app.receipts.idempotency.in-progress-timeout-seconds:120}") long inProgressTimeoutSeconds) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.localResponses = new BoundedExpiringCache<>(localMaxEntries);
+        this.ttl = Duration.ofHours(ttlHours);
+        this.inProgressTimeout = Duration.ofSeconds(inProgressTimeoutSeconds);
+    }
+
+    /**
+     * Tries to claim the key for this user. Never blocks on another node's request.
+     */
+    public Claim claim(Long userId, String key, String fingerprint) {
+        StoredResponse cached = localResponses.get(cacheKey(userId, key));
+        if (cached != null) {
+            return toReplay(cached, fingerprint);
+        }
+
+        // One retry covers the case where an expired row was in the way
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (tryInsert(userId, key, fingerprint)) {
+                return Claim.of(Outcome.CLAIMED);
+            }
+
+            Optional<UploadIdempotencyRecord> existingOpt = repository.findByUserIdAndIdempotencyKey(userId, key);
+            if (existingOpt.isEmpty()) {
+                continue; // Released between our insert and read
+            }
+
+            UploadIdempotencyRecord existing = existingOpt.get();
+            LocalDateTime now = LocalDateTime.now();
+            if (existing.getExpiresAt().isBefore(now)) {
+                repository.deleteByUserIdAndIdempotencyKey(userId, key);
+                continue;
+            }
+
+            if (existing.getStatus() == UploadIdempotencyRecord.Status.COMPLETED) {
+                StoredResponse stored = new StoredResponse(existing.getRequestFingerprint(),
+                        existing.getResponseStatus(), existing.getResponseBody());
+                // An interim response is not cached: the final one replaces it once the job finishes,
+                // possibly on another node
+                if (!Boolean.TRUE.equals(existing.getInterim())) {
+                    localResponses.put(cacheKey(userId, key), stored, Duration.between(now, existing.getExpiresAt()));
+                }
+                return toReplay(stored, fingerprint);
+            }
+
+            if (!Objects.equals(existing.getRequestFingerprint(), fingerprint)) {
+                return Claim.of(Outcome.MISMATCH);
+            }
+
+            int takenOver = repository.takeOverStale(existing.getId(), now.minus(inProgressTimeout), now, now.plus(ttl));
+            if (takenOver == 1) {
+                log.warn("Took over stale in-progress idempotency key for user: {}", userId);
+                return Claim.of(Outcome.CLAIMED);
+            }
+            return Claim.of(Outcome.IN_PROGRESS);
+        }
+
+        return Claim.of(Outcome.IN_PROGRESS);
+    }
+
+    private boolean tryInsert(Long userId, String key, String fingerprint) {
+        try {
+            repository.saveAndFlush(UploadIdempotencyRecord.builder()
+                    .userId(userId)
+                    .idempotencyKey(key)
+                    .requestFingerprint(fingerprint)
+                    .status(UploadIdempotencyRecord.Status.IN_PROGRESS)
+                    .expiresAt(LocalDateTime.now().plus(ttl))
+                    .build());
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    private Claim toReplay(StoredResponse stored, String fingerprint) {
+        if (!Objects.equals(stored.fingerprint(), fingerprint)) {
+            return Claim.of(Outcome.MISMATCH);
+        }
+        return new Claim(Outcome.REPLAY, stored.status(), stored.body());
+    }
+
+    /**
+     * Stores the final response for the key, replacing any interim response
+     */
+    public void complete(Long userId, String key, int status, Object body) {
+        store(userId, key, status, body);
+    }
+
+    /**
+     * Stores an interim response (e.g. 202 with a job id) unless a final response is already stored.
+     * A fast job can complete on its worker thread while this runs, so the write is a conditional update.
+     * Interim responses are never cached locally, so every replay re-reads the row until it is final.
+     */
+    public void completeInterim(Long userId, String key, int status, Object body) {
+        String json = serialize(userId, key, body);
+        if (json != null && repository.acceptIfInProgress(userId, key, status, json, LocalDateTime.now()) == 0) {
+            log.debug("Idempotency key for user {} already has a final response or is gone, keeping it", userId);
+        }
+    }
+
+    private void store(Long userId, String key, int status, Object body) {
+        String json = serialize(userId, key, body);
+        if (json == null) {
+            return;
+        }
+
+        Optional<UploadIdempotencyRecord> recordOpt = repository.findByUserIdAndIdempotencyKey(userId, key);
+        if (recordOpt.isEmpty()) {
+            log.warn("Idempotency key for user {} disappeared before completion", userId);
+            return;
+        }
+
+        UploadIdempotencyRecord record = recordOpt.get();
+        record.setStatus(UploadIdempotencyRecord.Status.COMPLETED);
+        record.setInterim(false);
+        record.setResponseStatus(status);
+        record.setResponseBody(json);
+        repository.save(record);
+
+        localResponses.put(cacheKey(userId, key),
+                new StoredResponse(record.getRequestFingerprint(), status, json),
+                Duration.between(LocalDateTime.now(), record.getExpiresAt()));
+    }
+
+    private String serialize(Long userId, String key, Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            log.error("Could not serialize response for idempotency key, releasing it", e);
+            release(userId, key);
+            return null;
+        }
+    }
+
+    /**
+     * Forgets every key of the user that was used for this image, so uploading it again after the record
+     * was deleted creates a new record instead of replaying the deleted one
+     */
+    public void releaseImage(Long userId, String imageSha256) {
+        if (imageSha256 == null) {
+            return;
+        }
+        for (UploadIdempotencyRecord record : repository.findByUserIdAndRequestFingerprint(userId, imageSha256)) {
+            release(userId, record.getIdempotencyKey());
+        }
+    }
+
+    /**
+     * Forgets the key so the request can be retried, e.g. after a failure
+     */
+    public void release(Long userId, String key) {
+        localResponses.remove(cacheKey(userId, key));
+        repository.deleteByUserIdAndIdempotencyKey(userId, key);
+    }
+
+    @Scheduled(fixedDelayString = "${app.receipts.idempotency.purge-interval-ms:300000}")
+    public void purgeExpired() {
+        int local = localResponses.evictExpired();
+        int stored = repository.deleteExpired(LocalDateTime.now());
+        if (local > 0 || stored > 0) {
+            log.debug("Purged expired idempotency keys: {} local, {} stored", local, stored);
+        }
+    }
+
+    private static String cacheKey(Long userId, String key) {
+        return userId + ":" + key;
+    }
+}
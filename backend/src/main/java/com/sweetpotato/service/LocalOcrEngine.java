@@ -0,0 +1,111 @@
+package com.sweetpotato.service;
+
+import com.sweetpotato.dto.fuel.ExtractedFuelData;
+import com.sweetpotato.dto.fuel.ReceiptImage;
+import com.sweetpotato.exception.MistralApiException;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Offline OCR engine for load testing. The extracted data is derived from the image digest, so the
+ * same image always yields the same receipt; latency and failures follow the configured {@link Profile}.
+ * Nothing blocks while "processing", so it can sustain thousands of calls per second.
+ */
+@Slf4j
+public class LocalOcrEngine implements OcrEngine {
+
+    private static final String MODEL = "local";
+    private static final String PROMPT_VERSION = "1";
+
+    private static final String[] BRANDS = {"Indian Oil", "Bharat Petroleum", "Hindustan Petroleum", "Shell", "Nayara"};
+    private static final String[] CITIES = {"Bengaluru", "Mumbai", "Pune", "Chennai", "Hyderabad", "Delhi"};
+    private static final String[] STATES = {"KA", "MH", "MH", "TN", "TS", "DL"};
+    private static final String[] FUEL_TYPES = {"Petrol", "Petrol", "Petrol", "Diesel", "CNG"};
+    private static final String[] PAYMENT_METHODS = {"UPI", "Credit", "Debit", "Cash"};
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2025, 1, 1, 6, 0);
+
+    private final Profile profile;
+
+    public LocalOcrEngine(Profile profile) {
+        this.profile = profile;
+        log.info("Local OCR engine profile: {}", profile);
+    }
+
+    @Override
+    public String getModel() {
+        return MODEL;
+    }
+
+    @Override
+    public String getPromptVersion() {
+        return PROMPT_VERSION;
+    }
+
+    @Override
+    public Mono<ExtractedFuelData> extract(ReceiptImage image, String format) {
+        return Mono.defer(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextDouble() < profile.hangRate) {
+                // Never answers; exercises the attempt timeout, hedging and the circuit breaker
+                return Mono.never();
+            }
+
+            Mono<Long> latency = Mono.delay(sampleLatency(random));
+            if (random.nextDouble() < profile.errorRate) {
+                return latency.then(Mono.error(new MistralApiException(profile.errorStatus,
+                        "Simulated OCR error (" + profile.errorStatus + ")")));
+            }
+            return latency.thenReturn(extractDeterministically(image));
+        });
+    }
+
+    private Duration sampleLatency(ThreadLocalRandom random) {
+        if (random.nextDouble() < profile.tailRate) {
+            return Duration.ofMillis(profile.tailLatencyMs);
+        }
+        long jitter = profile.jitterMs > 0 ? random.nextLong(profile.jitterMs + 1) : 0;
+        return Duration.ofMillis(profile.baseLatencyMs + jitter);
+    }
+
+    private ExtractedFuelData extractDeterministically(ReceiptImage image) {
+        String digest = image.contentSha256();
+        SplittableRandom random = new SplittableRandom(Long.parseUnsignedLong(digest.substring(0, 16), 16));
+
+        int location = random.nextInt(CITIES.length);
+        String brand = BRANDS[random.nextInt(BRANDS.length)];
+        BigDecimal liters = BigDecimal.valueOf(random.nextInt(500, 6000), 2);
+        BigDecimal pricePerLiter = BigDecimal.valueOf(random.nextInt(8500, 11000), 2);
+
+        return ExtractedFuelData.builder()
+                .stationName(brand + " " + CITIES[location])
+                .stationBrand(brand)
+                .city(CITIES[location])
+                .state(STATES[location])
+                .liters(liters)
+                .pricePerLiter(pricePerLiter)
+                .totalAmount(liters.multiply(pricePerLiter).setScale(2, RoundingMode.HALF_UP))
+                .fuelType(FUEL_TYPES[random.nextInt(FUEL_TYPES.length)])
+                .purchaseDateTime(EPOCH.plusMinutes(random.nextInt(365 * 24 * 60)))
+                .receiptNumber(digest.substring(0, 10).toUpperCase())
+                .paymentMethod(PAYMENT_METHODS[random.nextInt(PAYMENT_METHODS.length)])
+                .confidence(0.95)
+                .rawText("local-ocr:" + digest)
+                .build();
+    }
+
+    /**
+     * Latency and failure profile. Rates are per call, between 0 and 1.
+     */
+    @Builder
+    public record Profile(long baseLatencyMs, long jitterMs, double tailRate, long tailLatencyMs,
+                          double errorRate, int errorStatus, double hangRate) {
+    }
+}
@@ -0,0 +1,342 @@
+package com.sweetpotato.service;
+
+import com.sweetpotato.config.DynamicConfigurationProperties;
+import com.sweetpotato.dto.fuel.ExtractedFuelData;
+import com.sweetpotato.dto.fuel.MistralOcrRequest;
+import com.sweetpotato.dto.fuel.MistralOcrResponse;
+import com.sweetpotato.dto.fuel.ReceiptImage;
+import com.sweetpotato.exception.MistralApiException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * OCR via the Mistral chat-completions API (pixtral vision model)
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class MistralOcrEngine implements OcrEngine {
+
+    private final WebClient mistralWebClient;
+    private final MistralResponseParser responseParser;
+    private final DynamicConfigurationProperties configProperties;
+    private final MistralRequestBodyWriter requestBodyWriter;
+    private final OcrUsageLedger usageLedger;
+
+    @Value("${app.ocr.mistral.client.warmup-connections:2}")
+    private int warmupConnections;
+
+    @Value("${app.ocr.mistral.streaming:false}")
+    private boolean streaming;
+
+    @Value("${app.ocr.mistral.json-response-format:false}")
+    private boolean jsonResponseFormat;
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_CHUNK =
+            new ParameterizedTypeReference<>() {};
+    private static final String STREAM_DONE = "[DONE]";
+
+    // The fields we need first come first, so a streamed response yields them early
+    private static final String RECEIPT_FIELDS = """
+            "totalAmount": "Total amount paid (number only, no currency symbol)",
+            "liters": "Number of liters purchased (floating point number only)",
+            "pricePerLiter": "Price per liter (floating point number only)",
+            "fuelType": "Type of fuel (Petrol, Diesel, CNG, LPG, etc.)",
+            "purchaseDateTime": "Date and time of purchase in ISO format",
+            "stationName": "Name of gas station",
+            "stationBrand": "Brand (Shell, BP, Exxon, etc.)",
+            "address": "Complete address if visible",
+            "city": "City name",
+            "state": "State abbreviation",
+            "zipCode": "ZIP code",
+            "fuelGrade": "Grade of fuel (Regular, Premium, etc.)",
+            "receiptNumber": "Receipt or transaction number",
+            "paymentMethod": "Payment method (Credit, Debit, Cash, etc.)",
+            "confidence": "Your confidence level in this extraction (0-1)"
+        """;
+
+    private static final String FUEL_RECEIPT_PROMPT = """
+        Please analyze this fuel receipt image and extract the following information in JSON format:
+        {
+        """ + RECEIPT_FIELDS + """
+        }
+        
+        If any field is not clearly visible or readable, set it to null.
+        Respond with ONLY the JSON object, no additional text.
+        """;
+
+    // Formatted with the number of images
+    private static final String BATCH_PROMPT_TEMPLATE = """
+        Please analyze these %d fuel receipt images, numbered from 0 in the order they are given, \
+        and extract the following information from each one in JSON format:
+        {
+            "imageIndex": "Number of the image the receipt is in (0, 1, 2, ...)",
+        """ + RECEIPT_FIELDS + """
+        }
+        
+        If any field is not clearly visible or readable, set it to null.
+        Respond with ONLY a JSON object of the form {"receipts": [...]} holding one such object per image, \
+        in image order, no additional text.
+        """;
+
+    private static final String MODEL = "pixtral-12b-2409"; // Use exact model name from curl example
+    private static final int MAX_TOKENS = 300; // Match the curl example
+
+    // Changes whenever the prompt or token budget changes, so cached results from an older prompt are not reused
+    private static final String PROMPT_VERSION = HexFormat.of()
+            .formatHex(ReceiptImage.newSha256().digest((FUEL_RECEIPT_PROMPT + MAX_TOKENS).getBytes(StandardCharsets.UTF_8)))
+            .substring(0, 16);
+
+    @Override
+    public String getModel() {
+        return MODEL;
+    }
+
+    @Override
+    public String getPromptVersion() {
+        // JSON mode can change what the model returns; streaming cannot
+        return jsonResponseFormat ? PROMPT_VERSION + "-json" : PROMPT_VERSION;
+    }
+
+    /**
+     * Opens pooled connections at startup so the first uploads don't pay for DNS, TCP and TLS setup
+     */
+    @Override
+    public void warmUp() {
+        if (warmupConnections <= 0) {
+            return;
+        }
+
+        Flux.range(0, warmupConnections)
+                .flatMap(i -> Mono.defer(() -> mistralWebClient.get()
+                                .uri(configProperties.getMistralApiUrl() + "/models")
+                                .header("Authorization", "Bearer " + configProperties.getMistralApiKey())
+                                .retrieve()
+                                .toBodilessEntity())
+                        .onErrorResume(e -> {
+                            log.warn("Mistral connection warmup request failed: {}", e.getMessage());
+                            return Mono.empty();
+                        }))
+                .count()
+                .subscribe(warmed -> log.info("Warmed up {} Mistral connection(s)", warmed));
+    }
+
+    @Override
+    public Mono<ExtractedFuelData> extract(ReceiptImage image, String format) {
+        Mono<MistralResponseParser.Parsed<ExtractedFuelData>> call = streaming
+                ? Mono.deferContextual(context -> streamMistral(image, format,
+                        context.getOrDefault(OcrProgressListener.CONTEXT_KEY, null)))
+                : callMistral(image, format);
+        return Mono.deferContextual(context ->
+                metered(List.of(new Share(OcrWorkload.userId(context), 1, image.getSize())), call));
+    }
+
+    private Mono<MistralResponseParser.Parsed<ExtractedFuelData>> callMistral(ReceiptImage image, String format) {
+        return send(image, format, false)
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(), this::toApiError)
+                // Parsed from the raw bytes; the response is never bound to a DTO or tree
+                .bodyToMono(byte[].class)
+                .map(responseParser::parseWithUsage);
+    }
+
+    @Override
+    public boolean supportsBatching() {
+        return true;
+    }
+
+    /**
+     * All images go into one chat-completions request, so the prompt and the round trip are paid once
+     */
+    @Override
+    public Mono<List<ExtractedFuelData>> extractBatch(List<BatchItem> items) {
+        List<ReceiptImage> images = items.stream().map(BatchItem::image).toList();
+        List<String> formats = items.stream().map(BatchItem::format).toList();
+        MistralOcrRequest request = buildBatchRequest(items.size());
+        long imageBytes = images.stream().mapToLong(ReceiptImage::getSize).sum();
+        log.info("Sending batch request to Mistral AI: model={}, images={}, {} bytes",
+                request.getModel(), items.size(), imageBytes);
+
+        return metered(sharesByUser(items), post(requestBodyWriter.body(request, images, formats))
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(), this::toApiError)
+                .bodyToMono(byte[].class)
+                .map(body -> responseParser.parseBatch(body, items.size())));
+    }
+
+    /**
+     * Same result as {@link #callMistral}, but the completion arrives as server-sent events and fields are
+     * handed to the listener (if any) as soon as they are complete
+     */
+    private Mono<MistralResponseParser.Parsed<ExtractedFuelData>> streamMistral(ReceiptImage image, String format,
+                                                                                OcrProgressListener listener) {
+        MistralResponseParser.StreamingContent content = responseParser.newStreamingContent();
+        return send(image, format, true)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(), this::toApiError)
+                .bodyToFlux(SSE_CHUNK)
+                .mapNotNull(ServerSentEvent::data)
+                .takeWhile(data -> !STREAM_DONE.equals(data))
+                .doOnNext(data -> {
+                    if (content.appendChunk(data) && listener != null) {
+                        listener.onPartialResult(content.snapshot());
+                    }
+                })
+                .then(Mono.fromSupplier(() -> new MistralResponseParser.Parsed<>(content.finish(), content.getUsage())));
+    }
+
+    /**
+     * Charges the call to the usage ledger with its latency, outcome and the tokens Mistral reported.
+     * A cancelled call (e.g. the slower side of a hedge) is recorded without tokens, as none were reported.
+     * A batched call is recorded once per user in it, each with the tokens of their share of the images.
+     */
+    private <T> Mono<T> metered(List<Share> shares, Mono<MistralResponseParser.Parsed<T>> call) {
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            BiConsumer<OcrUsageLedger.Outcome, MistralOcrResponse.Usage> record = (outcome, usage) -> {
+                Duration latency = Duration.ofNanos(System.nanoTime() - startNanos);
+                int totalImages = shares.stream().mapToInt(Share::images).sum();
+                int imagesBefore = 0;
+                for (Share share : shares) {
+                    usageLedger.record(OcrUsageLedger.Call.builder()
+                            .userId(share.userId())
+                            .model(MODEL)
+                            .images(share.images())
+                            .imageBytes(share.imageBytes())
+                            .latency(latency)
+                            .outcome(outcome)
+                            .usage(split(usage, imagesBefore, share.images(), totalImages))
+                            .build());
+                    imagesBefore += share.images();
+                }
+            };
+
+            return call
+                    .doOnNext(parsed -> record.accept(OcrUsageLedger.Outcome.SUCCESS, parsed.usage()))
+                    .doOnError(error -> record.accept(OcrUsageLedger.Outcome.FAILED, null))
+                    .doOnCancel(() -> record.accept(OcrUsageLedger.Outcome.CANCELLED, null))
+                    .map(MistralResponseParser.Parsed::value);
+        });
+    }
+
+    // One share per user, in the order the users first appear in the batch
+    private static List<Share> sharesByUser(List<BatchItem> items) {
+        Map<Long, Share> shares = new LinkedHashMap<>();
+        for (BatchItem item : items) {
+            shares.merge(item.userId(), new Share(item.userId(), 1, item.image().getSize()),
+                    (a, b) -> new Share(a.userId(), a.images() + b.images(), a.imageBytes() + b.imageBytes()));
+        }
+        return List.copyOf(shares.values());
+    }
+
+    /**
+     * The tokens of images [from, from + images) out of total; rounded so the shares add up to the whole
+     */
+    private static MistralOcrResponse.Usage split(MistralOcrResponse.Usage usage, int from, int images, int total) {
+        if (usage == null || images == total) {
+            return usage;
+        }
+        return MistralOcrResponse.Usage.builder()
+                .promptTokens(share(usage.getPromptTokens(), from, images, total))
+                .completionTokens(share(usage.getCompletionTokens(), from, images, total))
+                .totalTokens(share(usage.getTotalTokens(), from, images, total))
+                .build();
+    }
+
+    private static Integer share(Integer tokens, int from, int images, int total) {
+        if (tokens == null) {
+            return null;
+        }
+        return (int) ((long) tokens * (from + images) / total - (long) tokens * from / total);
+    }
+
+    private record Share(Long userId, int images, long imageBytes) {
+    }
+
+    private WebClient.RequestHeadersSpec<?> send(ReceiptImage image, String format, boolean stream) {
+        // The image is streamed into the body in place of this placeholder
+        MistralOcrRequest request = buildMistralRequest(MistralRequestBodyWriter.IMAGE_PLACEHOLDER, stream);
+        log.info("Sending request to Mistral AI: model={}, image={} bytes, format={}, stream={}",
+                request.getModel(), image.getSize(), format, stream);
+
+        return post(requestBodyWriter.body(request, image, format));
+    }
+
+    private WebClient.RequestHeadersSpec<?> post(BodyInserter<?, ? super ClientHttpRequest> body) {
+        return mistralWebClient
+                .post()
+                .uri(configProperties.getMistralApiUrl() + "/chat/completions")
+                .header("Authorization", "Bearer " + configProperties.getMistralApiKey())
+                .body(body);
+    }
+
+    private Mono<? extends Throwable> toApiError(ClientResponse clientResponse) {
+        return clientResponse.bodyToMono(String.class)
+                .flatMap(errorBody -> {
+                    log.error("Mistral AI API Error ({}): {}", clientResponse.statusCode(), errorBody);
+                    return Mono.error(new MistralApiException(clientResponse.statusCode().value(),
+                            "Mistral AI API Error: " + errorBody));
+                });
+    }
+
+    private MistralOcrRequest buildMistralRequest(String imageUrl, boolean stream) {
+        // Use the helper methods to ensure correct structure
+        MistralOcrRequest.Content textContent = MistralOcrRequest.Content.text(FUEL_RECEIPT_PROMPT);
+        MistralOcrRequest.Content imageContent = MistralOcrRequest.Content.imageUrl(imageUrl);
+
+        MistralOcrRequest.Message message = MistralOcrRequest.Message.builder()
+                .role("user")
+                .content(Arrays.asList(textContent, imageContent))
+                .build();
+
+        return MistralOcrRequest.builder()
+                .model(MODEL)
+                .messages(List.of(message))
+                .maxTokens(MAX_TOKENS)
+                .stream(stream ? Boolean.TRUE : null)
+                .responseFormat(jsonResponseFormat ? MistralOcrRequest.ResponseFormat.jsonObject() : null)
+                .build();  // Remove temperature for now to match curl example exactly
+    }
+
+    private MistralOcrRequest buildBatchRequest(int imageCount) {
+        List<MistralOcrRequest.Content> content = new ArrayList<>(imageCount + 1);
+        content.add(MistralOcrRequest.Content.text(BATCH_PROMPT_TEMPLATE.formatted(imageCount)));
+        for (int i = 0; i < imageCount; i++) {
+            content.add(MistralOcrRequest.Content.imageUrl(MistralRequestBodyWriter.imagePlaceholder(i)));
+        }
+
+        MistralOcrRequest.Message message = MistralOcrRequest.Message.builder()
+                .role("user")
+                .content(content)
+                .build();
+
+        return MistralOcrRequest.builder()
+                .model(MODEL)
+                .messages(List.of(message))
+                .maxTokens(MAX_TOKENS * imageCount)
+                .responseFormat(jsonResponseFormat ? MistralOcrRequest.ResponseFormat.jsonObject() : null)
+                .build();
+    }
+}
@@ -0,0 +1,211 @@
+package com.sweetpotato.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetpotato.dto.fuel.MistralOcrRequest;
+import com.sweetpotato.dto.fuel.ReceiptImage;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes the Mistral chat-completions request body as a stream: the JSON prefix,
+ * the image base64-encoded chunk by chunk into buffers from the connection's
+ * (pooled) buffer factory, then the JSON suffix.
+ *
+ * The image is never materialized as a base64 String or data URI on the heap;
+ * the only heap held per request is the source image plus the prompt JSON.
+ */
+@Component
+@Slf4j
+public class MistralRequestBodyWriter {
+
+    /**
+     * Placeholder written in place of the image URL, replaced by the streamed data URI
+     */
+    public static final String IMAGE_PLACEHOLDER = "__RECEIPT_IMAGE_DATA_URI__";
+
+    private static final byte[] PLACEHOLDER_BYTES = ("\"" + IMAGE_PLACEHOLDER + "\"").getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper;
+    private final AtomicLong inFlightHeapBytes = new AtomicLong();
+    private final DistributionSummary requestHeapBytes;
+
+    @Value("${app.ocr.mistral.body-chunk-bytes:49152}")
+    private int chunkBytes;
+
+    public MistralRequestBodyWriter(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        Gauge.builder("ocr.request.inflight.heap.bytes", inFlightHeapBytes, AtomicLong::get)
+                .description("Heap held by OCR request bodies currently being written")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.requestHeapBytes = DistributionSummary.builder("ocr.request.heap.bytes")
+                .description("Heap held by a single OCR request body while it is written")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Builds a body inserter for the given request whose image URL is {@link #IMAGE_PLACEHOLDER}
+     */
+    public BodyInserter<Flux<DataBuffer>, ClientHttpRequest> body(MistralOcrRequest request,
+                                                                  ReceiptImage image, String format) {
+        return body(request, List.of(image), List.of(format), List.of(PLACEHOLDER_BYTES));
+    }
+
+    /**
+     * Builds a body inserter for a multi-image request whose image URLs are {@link #imagePlaceholder(int)}
+     * for 0..n-1, in that order
+     */
+    public BodyInserter<Flux<DataBuffer>, ClientHttpRequest> body(MistralOcrRequest request,
+                                                                  List<ReceiptImage> images, List<String> formats) {
+        List<byte[]> placeholders = new ArrayList<>(images.size());
+        for (int i = 0; i < images.size(); i++) {
+            placeholders.add(("\"" + imagePlaceholder(i) + "\"").getBytes(StandardCharsets.UTF_8));
+        }
+        return body(request, images, formats, placeholders);
+    }
+
+    public static String imagePlaceholder(int index) {
+        return "__RECEIPT_IMAGE_" + index + "_DATA_URI__";
+    }
+
+    private BodyInserter<Flux<DataBuffer>, ClientHttpRequest> body(MistralOcrRequest request, List<ReceiptImage> images,
+                                                                   List<String> formats, List<byte[]> placeholders) {
+        byte[] json = serialize(request);
+
+        // JSON segments around the images: segments[i] precedes image i, the last one follows the last image
+        byte[][] segments = new byte[images.size() + 1][];
+        int from = 0;
+        for (int i = 0; i < images.size(); i++) {
+            byte[] placeholder = placeholders.get(i);
+            int placeholderIndex = indexOf(json, placeholder, from);
+            if (placeholderIndex < 0) {
+                throw new IllegalArgumentException("Mistral request does not contain the image placeholder for image " + i);
+            }
+
+            byte[] dataUriPrefix = ("\"data:image/" + formats.get(i) + ";base64,").getBytes(StandardCharsets.UTF_8);
+            byte[] segment = concat(Arrays.copyOfRange(json, from, placeholderIndex), dataUriPrefix);
+            segments[i] = i == 0 ? segment : concat(new byte[]{'"'}, segment);
+            from = placeholderIndex + placeholder.length;
+        }
+        segments[images.size()] = concat(new byte[]{'"'}, Arrays.copyOfRange(json, from, json.length));
+
+        long contentLength = 0;
+        long heapBytes = 0;
+        for (byte[] segment : segments) {
+            contentLength += segment.length;
+            heapBytes += segment.length;
+        }
+        for (ReceiptImage image : images) {
+            contentLength += encodedLength(image.getContent().length);
+            heapBytes += image.getContent().length;
+        }
+        long totalContentLength = contentLength;
+        long totalHeapBytes = heapBytes;
+        int chunkSize = Math.max(3, chunkBytes - chunkBytes % 3);
+
+        return (outputMessage, context) -> {
+            outputMessage.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            outputMessage.getHeaders().setContentLength(totalContentLength);
+            DataBufferFactory bufferFactory = outputMessage.bufferFactory();
+
+            List<Publisher<DataBuffer>> parts = new ArrayList<>(2 * images.size() + 1);
+            for (int i = 0; i < images.size(); i++) {
+                byte[] segment = segments[i];
+                parts.add(Mono.fromSupplier(() -> bufferFactory.wrap(segment)));
+                parts.add(encodeChunks(images.get(i).getContent(), chunkSize, bufferFactory));
+            }
+            byte[] suffix = segments[images.size()];
+            parts.add(Mono.fromSupplier(() -> bufferFactory.wrap(suffix)));
+
+            Flux<DataBuffer> body = Flux.concat(parts)
+                    .doOnSubscribe(subscription -> {
+                        inFlightHeapBytes.addAndGet(totalHeapBytes);
+                        requestHeapBytes.record(totalHeapBytes);
+                        log.debug("Streaming OCR request body: {} image(s), {} bytes on the wire, {} bytes heap, "
+                                        + "{} byte chunks", images.size(), totalContentLength, totalHeapBytes, chunkSize);
+                    })
+                    .doFinally(signal -> inFlightHeapBytes.addAndGet(-totalHeapBytes));
+
+            return outputMessage.writeWith(body);
+        };
+    }
+
+    private Flux<DataBuffer> encodeChunks(byte[] content, int chunkSize, DataBufferFactory bufferFactory) {
+        Base64.Encoder encoder = Base64.getEncoder();
+        return Flux.generate(() -> 0, (offset, sink) -> {
+            if (offset >= content.length) {
+                sink.complete();
+                return offset;
+            }
+
+            int length = Math.min(chunkSize, content.length - offset);
+            DataBuffer buffer = bufferFactory.allocateBuffer((int) encodedLength(length));
+            // Every chunk except the last is a multiple of 3 bytes, so padding only appears at the very end
+            try (OutputStream out = encoder.wrap(buffer.asOutputStream())) {
+                out.write(content, offset, length);
+            } catch (IOException e) {
+                DataBufferUtils.release(buffer);
+                sink.error(e);
+                return offset;
+            }
+
+            sink.next(buffer);
+            return offset + length;
+        });
+    }
+
+    private byte[] serialize(MistralOcrRequest request) {
+        try {
+            return objectMapper.writeValueAsBytes(request);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize Mistral request", e);
+        }
+    }
+
+    private static long encodedLength(long length) {
+        return 4 * ((length + 2) / 3);
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern, int from) {
+        outer:
+        for (int i = from; i <= data.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
@@ -0,0 +1,564 @@
+package com.sweetpotato.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetpotato.dto.fuel.ExtractedFuelData;
+import com.sweetpotato.dto.fuel.MistralOcrResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parses a Mistral chat-completions response body straight into {@link ExtractedFuelData} with
+ * Jackson's streaming API: no response DTO and no tree model, and everything outside
+ * {@code choices[0].message.content} is skipped without being materialized.
+ *
+ * Field values are read exactly as the previous tree-model parser read them (numbers rendered the way
+ * {@code JsonNode.asText()} renders them, the string "null" treated as null); amounts and dates are then
+ * interpreted by {@link ReceiptFieldNormalizer}.
+ */
+@Component
+@Slf4j
+public class MistralResponseParser {
+
+    /**
+     * Bump whenever parsing or field normalization changes what is extracted from the same response;
+     * cached OCR results from older versions are then ignored and purged
+     */
+    public static final int VERSION = 2;
+
+    private static final String CODE_FENCE = "```";
+
+    private final JsonFactory jsonFactory;
+    private final ReceiptFieldNormalizer fieldNormalizer;
+
+    public MistralResponseParser(ObjectMapper objectMapper, ReceiptFieldNormalizer fieldNormalizer) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.fieldNormalizer = fieldNormalizer;
+    }
+
+    /**
+     * Never throws; an unreadable response yields empty data with zero confidence and the raw body as text
+     */
+    public ExtractedFuelData parse(byte[] responseBody) {
+        return parseWithUsage(responseBody).value();
+    }
+
+    /**
+     * Like {@link #parse}, together with the token usage the response reported
+     */
+    public Parsed<ExtractedFuelData> parseWithUsage(byte[] responseBody) {
+        ResponseContent response;
+        try {
+            response = readResponse(responseBody);
+        } catch (IOException | RuntimeException e) {
+            log.error("Error parsing Mistral AI response", e);
+            return new Parsed<>(createEmptyExtractedData(new String(responseBody, StandardCharsets.UTF_8)), null);
+        }
+
+        if (response.content() == null) {
+            log.warn("No choices in Mistral AI response");
+            return new Parsed<>(createEmptyExtractedData(new String(responseBody, StandardCharsets.UTF_8)),
+                    response.usage());
+        }
+        try {
+            return new Parsed<>(parseContent(response.content()), response.usage());
+        } catch (IOException | RuntimeException e) {
+            log.error("Error parsing Mistral AI response", e);
+            return new Parsed<>(createEmptyExtractedData(new String(responseBody, StandardCharsets.UTF_8)),
+                    response.usage());
+        }
+    }
+
+    /**
+     * Parses a multi-receipt response whose content is {@code {"receipts": [...]}} (or a bare array) of
+     * receipts tagged with an {@code imageIndex}. Never throws; the result has one entry per image, null where
+     * the response has no usable receipt for it (missing, out-of-range or duplicate index). Receipts read before
+     * a syntax error or truncation are kept.
+     */
+    public Parsed<List<ExtractedFuelData>> parseBatch(byte[] responseBody, int size) {
+        ExtractedFuelData[] results = new ExtractedFuelData[size];
+        MistralOcrResponse.Usage usage = null;
+        try {
+            ResponseContent response = readResponse(responseBody);
+            usage = response.usage();
+            if (response.content() == null) {
+                log.warn("No choices in Mistral AI batch response");
+            } else {
+                parseBatchContent(stripCodeFences(response.content()), results);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Error parsing Mistral AI batch response: {}", e.getMessage());
+        }
+        return new Parsed<>(Arrays.asList(results), usage);
+    }
+
+    /**
+     * Re-reads model output kept as {@link ExtractedFuelData#getRawText()} with the current field parsing and
+     * normalization, without calling Mistral again
+     *
+     * @throws IOException if the text is not a complete JSON object
+     */
+    public ExtractedFuelData reparse(String rawText) throws IOException {
+        return parseContent(rawText);
+    }
+
+    /**
+     * Starts incremental parsing of a streamed response's message content
+     */
+    public StreamingContent newStreamingContent() {
+        return new StreamingContent();
+    }
+
+    // choices[0].message.content (null if the response has no choices) and the reported usage
+    private ResponseContent readResponse(byte[] responseBody) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(responseBody)) {
+            return readResponse(parser, "message", true);
+        }
+    }
+
+    private ResponseContent readResponse(JsonParser parser, String messageField, boolean required) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return new ResponseContent(null, null);
+        }
+
+        String content = null;
+        MistralOcrResponse.Usage usage = null;
+        JsonStreamContext response = parser.getParsingContext();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("choices".equals(field) && value == JsonToken.START_ARRAY) {
+                if (parser.nextToken() == JsonToken.START_OBJECT) {
+                    content = readChoiceContent(parser, messageField, required);
+                    // Leave whatever is left of the choice and the other choices
+                    while (parser.getParsingContext() != response) {
+                        if (parser.nextToken() == null) {
+                            throw new IOException("Unexpected end of Mistral AI response");
+                        }
+                    }
+                }
+            } else if ("usage".equals(field) && value == JsonToken.START_OBJECT) {
+                usage = readUsage(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new ResponseContent(content, usage);
+    }
+
+    private static MistralOcrResponse.Usage readUsage(JsonParser parser) throws IOException {
+        MistralOcrResponse.Usage usage = new MistralOcrResponse.Usage();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "prompt_tokens" -> usage.setPromptTokens(intValue(parser));
+                case "completion_tokens" -> usage.setCompletionTokens(intValue(parser));
+                case "total_tokens" -> usage.setTotalTokens(intValue(parser));
+                default -> parser.skipChildren();
+            }
+        }
+        return usage;
+    }
+
+    private String readChoiceContent(JsonParser parser, String messageField, boolean required) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (messageField.equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String contentField = parser.currentName();
+                    JsonToken contentValue = parser.nextToken();
+                    if ("content".equals(contentField)) {
+                        if (contentValue == JsonToken.VALUE_STRING) {
+                            return parser.getText();
+                        }
+                        if (!required && contentValue == JsonToken.VALUE_NULL) {
+                            return null;
+                        }
+                        throw new IOException("Unexpected message content: " + contentValue);
+                    }
+                    parser.skipChildren();
+                }
+                if (required) {
+                    throw new IOException("Mistral AI response message has no content");
+                }
+                return null;
+            }
+            parser.skipChildren();
+        }
+        if (required) {
+            throw new IOException("Mistral AI response choice has no message");
+        }
+        return null;
+    }
+
+    private ExtractedFuelData parseContent(String content) throws IOException {
+        String json = stripCodeFences(content);
+        log.debug("Raw JSON from Mistral AI: {}", json);
+
+        ExtractedFuelData.ExtractedFuelDataBuilder data = ExtractedFuelData.builder().rawText(json);
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                return data.build();
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                applyField(data, field, parser);
+            }
+            // A truncated object (e.g. the model hit max_tokens) is a parse failure, as before
+            if (parser.currentToken() != JsonToken.END_OBJECT) {
+                throw new IOException("Unterminated JSON object in Mistral AI content");
+            }
+        }
+        return data.build();
+    }
+
+    private void parseBatchContent(String json, ExtractedFuelData[] results) throws IOException {
+        log.debug("Raw batch JSON from Mistral AI: {}", json);
+        boolean[] duplicated = new boolean[results.length];
+
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                // JSON mode only allows an object at the top level, so the array is wrapped
+                token = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if ("receipts".equals(field) && value == JsonToken.START_ARRAY) {
+                        token = value;
+                        break;
+                    }
+                    parser.skipChildren();
+                }
+            }
+            if (token != JsonToken.START_ARRAY) {
+                throw new IOException("No receipts array in Mistral AI batch content");
+            }
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                int start = (int) parser.currentTokenLocation().getCharOffset();
+                ExtractedFuelData.ExtractedFuelDataBuilder data = ExtractedFuelData.builder();
+                Integer imageIndex = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    if ("imageIndex".equals(field)) {
+                        imageIndex = intValue(parser);
+                    } else {
+                        applyField(data, field, parser);
+                    }
+                }
+                if (parser.currentToken() != JsonToken.END_OBJECT) {
+                    throw new IOException("Unterminated receipt in Mistral AI batch content");
+                }
+
+                if (imageIndex == null || imageIndex < 0 || imageIndex >= results.length) {
+                    log.warn("Ignoring batched receipt with missing or unknown image index: {}", imageIndex);
+                } else if (results[imageIndex] != null || duplicated[imageIndex]) {
+                    // Can't tell which answer belongs to the image, so neither is used
+                    log.warn("Ignoring batched receipts with duplicate image index: {}", imageIndex);
+                    results[imageIndex] = null;
+                    duplicated[imageIndex] = true;
+                } else {
+                    String rawText = json.substring(start, (int) parser.currentLocation().getCharOffset());
+                    results[imageIndex] = data.rawText(rawText).build();
+                }
+            }
+        }
+    }
+
+    // Reads the current value into the matching field; false (value skipped) for fields we don't extract
+    private boolean applyField(ExtractedFuelData.ExtractedFuelDataBuilder data, String field, JsonParser parser)
+            throws IOException {
+        switch (field) {
+            case "stationName" -> data.stationName(stringValue(parser));
+            case "stationBrand" -> data.stationBrand(stringValue(parser));
+            case "address" -> data.address(stringValue(parser));
+            case "city" -> data.city(stringValue(parser));
+            case "state" -> data.state(stringValue(parser));
+            case "zipCode" -> data.zipCode(stringValue(parser));
+            case "totalAmount" -> data.totalAmount(bigDecimalValue(parser, field));
+            case "liters" -> data.liters(bigDecimalValue(parser, field));
+            case "pricePerLiter" -> data.pricePerLiter(bigDecimalValue(parser, field));
+            case "fuelType" -> data.fuelType(stringValue(parser));
+            case "purchaseDateTime" -> data.purchaseDateTime(dateTimeValue(parser));
+            case "receiptNumber" -> data.receiptNumber(stringValue(parser));
+            case "paymentMethod" -> data.paymentMethod(stringValue(parser));
+            case "confidence" -> data.confidence(doubleValue(parser));
+            default -> {
+                parser.skipChildren();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes markdown code fences ("```json" or "```" plus any whitespace after them) and trims,
+     * matching the regex-based cleanup it replaces
+     */
+    static String stripCodeFences(String content) {
+        int fence = content.indexOf(CODE_FENCE);
+        if (fence < 0) {
+            return content.trim();
+        }
+
+        StringBuilder cleaned = new StringBuilder(content.length());
+        int from = 0;
+        while (fence >= 0) {
+            cleaned.append(content, from, fence);
+            int next = fence + CODE_FENCE.length();
+            if (content.startsWith("json", next)) {
+                next += "json".length();
+            }
+            while (next < content.length() && isRegexWhitespace(content.charAt(next))) {
+                next++;
+            }
+            from = next;
+            fence = content.indexOf(CODE_FENCE, from);
+        }
+        cleaned.append(content, from, content.length());
+        return cleaned.toString().trim();
+    }
+
+    // The characters matched by \s
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    // The value as JsonNode.asText() would render it; null for JSON null or the string "null"
+    private static String stringValue(JsonParser parser) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_NULL -> null;
+            case START_OBJECT, START_ARRAY -> {
+                parser.skipChildren();
+                yield "";
+            }
+            case VALUE_NUMBER_INT -> parser.getNumberValue().toString();
+            case VALUE_NUMBER_FLOAT -> Double.toString(parser.getDoubleValue());
+            default -> {
+                String text = parser.getText();
+                yield "null".equals(text) ? null : text;
+            }
+        };
+    }
+
+    private BigDecimal bigDecimalValue(JsonParser parser, String field) throws IOException {
+        String text = stringValue(parser);
+        BigDecimal value = fieldNormalizer.parseAmount(text);
+        if (value == null && text != null) {
+            log.warn("Invalid number format for field {}: {}", field, text);
+        }
+        return value;
+    }
+
+    // Lenient like JsonNode.asDouble(): unparseable text, objects and arrays become 0.0
+    private static Double doubleValue(JsonParser parser) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_NULL -> null;
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getDoubleValue();
+            case VALUE_TRUE -> 1.0;
+            case VALUE_FALSE -> 0.0;
+            case START_OBJECT, START_ARRAY -> {
+                parser.skipChildren();
+                yield 0.0;
+            }
+            default -> {
+                String text = parser.getText();
+                if ("null".equals(text)) {
+                    yield null;
+                }
+                try {
+                    yield Double.parseDouble(text.trim());
+                } catch (NumberFormatException e) {
+                    yield 0.0;
+                }
+            }
+        };
+    }
+
+    private static Integer intValue(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getIntValue();
+        }
+        String text = stringValue(parser);
+        try {
+            return text == null ? null : Integer.valueOf(text.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private LocalDateTime dateTimeValue(JsonParser parser) throws IOException {
+        return fieldNormalizer.parseDateTime(stringValue(parser));
+    }
+
+    private static ExtractedFuelData createEmptyExtractedData(String rawText) {
+        return ExtractedFuelData.builder()
+                .confidence(0.0)
+                .rawText(rawText)
+                .build();
+    }
+
+    /**
+     * A parsed response and the token usage it reported (null if none)
+     */
+    public record Parsed<T>(T value, MistralOcrResponse.Usage usage) {
+    }
+
+    private record ResponseContent(String content, MistralOcrResponse.Usage usage) {
+    }
+
+    /**
+     * Message content accumulated from a streamed response. Top-level fields are parsed with a
+     * non-blocking parser as soon as their value is complete, so callers can act on the amount and
+     * volume before the model has written the rest; {@link #finish()} then parses the whole content
+     * exactly as a non-streamed response is parsed. One instance per response, not thread-safe.
+     */
+    public final class StreamingContent {
+
+        private final StringBuilder content = new StringBuilder();
+        private final ExtractedFuelData.ExtractedFuelDataBuilder partial = ExtractedFuelData.builder();
+        private JsonParser parser;
+        private ByteArrayFeeder feeder;
+        private int depth;
+        private boolean stopped;
+
+        private StreamingContent() {
+        }
+
+        private MistralOcrResponse.Usage usage;
+
+        /**
+         * Takes one chunk of the stream ({@code choices[0].delta.content}, plus {@code usage} on the last one)
+         * @return whether another field became available
+         */
+        public boolean appendChunk(String chunk) {
+            ResponseContent response;
+            try (JsonParser chunkParser = jsonFactory.createParser(chunk)) {
+                response = readResponse(chunkParser, "delta", false);
+            } catch (IOException e) {
+                // Only costs us that chunk's text; the final parse then reports the content as unreadable
+                log.warn("Skipping unreadable Mistral AI stream chunk: {}", e.getMessage());
+                return false;
+            }
+
+            if (response.usage() != null) {
+                usage = response.usage();
+            }
+            return response.content() != null && append(response.content());
+        }
+
+        /**
+         * Token usage reported by the stream, or null if it reported none
+         */
+        public MistralOcrResponse.Usage getUsage() {
+            return usage;
+        }
+
+        private boolean append(String delta) {
+            content.append(delta);
+            if (stopped) {
+                return false;
+            }
+
+            try {
+                String input = delta;
+                if (parser == null) {
+                    // Anything before the object (e.g. a code fence) is not JSON
+                    int start = content.indexOf("{");
+                    if (start < 0) {
+                        return false;
+                    }
+                    parser = jsonFactory.createNonBlockingByteArrayParser();
+                    feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+                    input = content.substring(start);
+                }
+                byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+                feeder.feedInput(bytes, 0, bytes.length);
+                return readAvailableFields();
+            } catch (IOException | RuntimeException e) {
+                // Partial results are best effort; finish() decides what the content really was
+                log.debug("Stopped incremental parsing of streamed content: {}", e.getMessage());
+                stop();
+                return false;
+            }
+        }
+
+        /**
+         * The fields parsed so far, without raw text
+         */
+        public ExtractedFuelData snapshot() {
+            return partial.build();
+        }
+
+        /**
+         * Never throws; see {@link MistralResponseParser#parse(byte[])}
+         */
+        public ExtractedFuelData finish() {
+            stop();
+            String text = content.toString();
+            try {
+                return parseContent(text);
+            } catch (IOException | RuntimeException e) {
+                log.error("Error parsing streamed Mistral AI content", e);
+                return createEmptyExtractedData(text);
+            }
+        }
+
+        private boolean readAvailableFields() throws IOException {
+            boolean updated = false;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.NOT_AVAILABLE) {
+                if (token == null) {
+                    stop();
+                    break;
+                }
+                switch (token) {
+                    case START_OBJECT, START_ARRAY -> depth++;
+                    case END_OBJECT, END_ARRAY -> {
+                        if (--depth == 0) {
+                            // Whatever follows the object (e.g. a closing fence) is ignored
+                            stop();
+                            return updated;
+                        }
+                    }
+                    case FIELD_NAME -> {
+                    }
+                    default -> {
+                        if (depth == 1 && applyField(partial, parser.currentName(), parser)) {
+                            updated = true;
+                        }
+                    }
+                }
+            }
+            return updated;
+        }
+
+        private void stop() {
+            stopped = true;
+            if (parser != null) {
+                try {
+                    parser.close();
+                } catch (IOException e) {
+                    log.debug("Error closing incremental parser: {}", e.getMessage());
+                }
+            }
+        }
+    }
+}
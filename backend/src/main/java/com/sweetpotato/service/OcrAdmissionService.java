@@ -0,0 +1,145 @@
+package com.sweetpotato.service;
+
+import com.sweetpotato.exception.MistralApiException;
+import com.sweetpotato.exception.OcrBudgetExceededException;
+import com.sweetpotato.exception.OcrOverloadedException;
+import com.sweetpotato.util.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Bulkhead in front of the Mistral OCR API. Concurrency is capped by an adaptive limit that backs off
+ * on 429/5xx responses, timeouts and slow calls; callers over the limit wait in a bounded queue and
+ * are rejected with {@link OcrOverloadedException} once it is full.
+ *
+ * Background work additionally passes a token budget gate (see {@link OcrUsageLedger}): it is slowed
+ * down as the daily budget runs low and deferred once it is spent.
+ */
+@Service
+@Slf4j
+public class OcrAdmissionService {
+
+    public enum OverloadAction {
+        // Fail the upload with 503 + Retry-After
+        SHED,
+        // Store the image and run OCR later from S3
+        DEFER
+    }
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final OverloadAction overloadAction;
+    private final Counter rejectedCalls;
+    private final OcrUsageLedger usageLedger;
+    private final Duration budgetThrottleDelay;
+    private final Counter budgetThrottled;
+    private final Counter budgetDeferred;
+
+    public OcrAdmissionService(MeterRegistry meterRegistry, OcrUsageLedger usageLedger,
+                               @Value("${app.ocr.admission.initial-limit:8}") int initialLimit,
+                               @Value("${app.ocr.admission.min-limit:2}") int minLimit,
+                               @Value("${app.ocr.admission.max-limit:32}") int maxLimit,
+                               @Value("${app.ocr.admission.max-queue-size:50}") int maxQueueSize,
+                               @Value("${app.ocr.admission.max-queue-wait-ms:3000}") long maxQueueWaitMs,
+                               @Value("${app.ocr.admission.backoff-ratio:0.7}") double backoffRatio,
+                               @Value("${app.ocr.admission.latency-threshold-ms:10000}") long latencyThresholdMs,
+                               @Value("${app.ocr.admission.overload-action:SHED}") OverloadAction overloadAction,
+                               @Value("${app.ocr.usage.throttle-delay-ms:2000}") long budgetThrottleDelayMs) {
+        this.limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, maxQueueSize,
+                Duration.ofMillis(maxQueueWaitMs), backoffRatio, Duration.ofMillis(latencyThresholdMs),
+                OcrAdmissionService::isOverloadSignal);
+        this.overloadAction = overloadAction;
+        this.usageLedger = usageLedger;
+        this.budgetThrottleDelay = Duration.ofMillis(budgetThrottleDelayMs);
+
+        Gauge.builder("ocr.admission.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit for OCR calls")
+                .register(meterRegistry);
+        Gauge.builder("ocr.admission.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("OCR calls currently in flight")
+                .register(meterRegistry);
+        Gauge.builder("ocr.admission.queued", limiter, AdaptiveConcurrencyLimiter::getQueued)
+                .description("OCR calls waiting for a slot")
+                .register(meterRegistry);
+        this.rejectedCalls = Counter.builder("ocr.admission.rejected")
+                .description("OCR calls rejected because the wait queue was full or timed out")
+                .register(meterRegistry);
+        this.budgetThrottled = Counter.builder("ocr.admission.budget.throttled")
+                .description("Background OCR calls delayed because the daily token budget is running low")
+                .register(meterRegistry);
+        this.budgetDeferred = Counter.builder("ocr.admission.budget.deferred")
+                .description("Background OCR calls deferred because the daily token budget is spent")
+                .register(meterRegistry);
+
+        log.info("OCR admission: initialLimit={}, limits=[{}, {}], maxQueueSize={}, overloadAction={}",
+                initialLimit, minLimit, maxLimit, maxQueueSize, overloadAction);
+    }
+
+    /**
+     * Runs the OCR call once admitted
+     * @throws OcrOverloadedException (as an error signal) if the call could not be admitted
+     */
+    public <T> Mono<T> execute(Supplier<Mono<T>> call) {
+        return limiter.execute(call)
+                .onErrorMap(AdaptiveConcurrencyLimiter.LimitExceededException.class, e -> {
+                    rejectedCalls.increment();
+                    log.warn("OCR call rejected: {} (limit={}, inFlight={}, queued={})",
+                            e.getMessage(), limiter.getLimit(), limiter.getInFlight(), limiter.getQueued());
+                    return new OcrOverloadedException("OCR capacity exceeded", e.getRetryAfter());
+                });
+    }
+
+    /**
+     * Token budget gate for background OCR work charged to the user (null for work not done for a user)
+     * @throws OcrBudgetExceededException (as an error signal) if the budget is spent; it is a transient
+     *         failure, so the receipt is kept for deferred OCR
+     */
+    public <T> Mono<T> admitBackground(Long userId, Supplier<Mono<T>> call) {
+        return Mono.defer(() -> switch (usageLedger.budgetStatus(userId)) {
+            case EXHAUSTED -> {
+                budgetDeferred.increment();
+                log.warn("OCR token budget spent, deferring background OCR for user: {}", userId);
+                yield Mono.error(new OcrBudgetExceededException("Daily OCR token budget exceeded"));
+            }
+            case THROTTLED -> {
+                budgetThrottled.increment();
+                log.info("OCR token budget running low, slowing down background OCR for user: {}", userId);
+                yield Mono.delay(budgetThrottleDelay).then(Mono.defer(call));
+            }
+            case OK -> Mono.defer(call);
+        });
+    }
+
+    public boolean isDeferOnOverload() {
+        return overloadAction == OverloadAction.DEFER;
+    }
+
+    /**
+     * Whether a new call would be admitted right away, used by background work to stay out of the way of uploads
+     */
+    public boolean hasHeadroom() {
+        return limiter.getQueued() == 0 && limiter.getInFlight() < limiter.getLimit();
+    }
+
+    static boolean isOverloadSignal(Throwable error) {
+        if (error instanceof TimeoutException) {
+            return true;
+        }
+        int status = -1;
+        if (error instanceof MistralApiException mistralError) {
+            status = mistralError.getStatusCode();
+        } else if (error instanceof WebClientResponseException responseError) {
+            status = responseError.getStatusCode().value();
+        }
+        return status == 429 || status == 502 || status == 503 || status == 504;
+    }
+}
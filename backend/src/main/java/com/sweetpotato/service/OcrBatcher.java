@@ -0,0 +1,230 @@
+package com.sweetpotato.service;
+
+import com.sweetpotato.dto.fuel.ExtractedFuelData;
+import com.sweetpotato.dto.fuel.ReceiptImage;
+import com.sweetpotato.util.Deadline;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Packs OCR calls from bulk work (batch uploads, backfills) into multi-image engine calls, so the prompt
+ * and the round trip are paid once per batch instead of once per receipt. A batch is sent once it is full
+ * or the first receipt in it has waited the linger time. Receipts the batch answer has no usable result
+ * for are retried one by one.
+ *
+ * Callers opt in per pipeline with {@code .contextWrite(OcrBatcher::allowBatching)}; interactive uploads
+ * never wait for a batch to fill.
+ */
+@Component
+@Slf4j
+public class OcrBatcher {
+
+    public static final String CONTEXT_KEY = OcrBatcher.class.getName();
+
+    private final OcrEngine ocrEngine;
+    private final OcrResilienceService ocrResilienceService;
+    private final OcrResultCache ocrResultCache;
+    private final Sinks.Many<Pending> queue = Sinks.many().unicast().onBackpressureBuffer();
+    private final DistributionSummary batchSize;
+    private final Counter fallbacks;
+    private Disposable dispatcher;
+
+    @Value("${app.ocr.batching.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.ocr.batching.max-batch-size:4}")
+    private int maxBatchSize;
+
+    @Value("${app.ocr.batching.linger-ms:200}")
+    private long lingerMs;
+
+    // Upper bound; a batch never runs longer than the waiter with the most time left can wait
+    @Value("${app.ocr.batching.attempt-timeout-seconds:30}")
+    private long batchAttemptTimeoutSeconds;
+
+    @Value("${app.ocr.attempt-timeout-seconds:12}")
+    private long attemptTimeoutSeconds;
+
+    public OcrBatcher(OcrEngine ocrEngine, OcrResilienceService ocrResilienceService, OcrResultCache ocrResultCache,
+                      MeterRegistry meterRegistry) {
+        this.ocrEngine = ocrEngine;
+        this.ocrResilienceService = ocrResilienceService;
+        this.ocrResultCache = ocrResultCache;
+        this.batchSize = DistributionSummary.builder("ocr.batch.size")
+                .description("Receipts sent to the OCR engine in one batched call")
+                .register(meterRegistry);
+        this.fallbacks = Counter.builder("ocr.batch.fallbacks")
+                .description("Batched receipts retried alone because the batch result had no usable answer for them")
+                .register(meterRegistry);
+    }
+
+    /**
+     * For {@code contextWrite(OcrBatcher::allowBatching)}
+     */
+    public static Context allowBatching(Context context) {
+        return context.put(CONTEXT_KEY, Boolean.TRUE);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        log.info("OCR batching enabled: up to {} receipts per call, {} ms linger", maxBatchSize, lingerMs);
+        dispatcher = queue.asFlux()
+                .bufferTimeout(maxBatchSize, Duration.ofMillis(lingerMs))
+                .flatMap(this::dispatch)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (dispatcher != null) {
+            dispatcher.dispose();
+        }
+    }
+
+    /**
+     * Whether OCR for this pipeline should go through {@link #extract}
+     */
+    public boolean isRequested(ContextView context) {
+        return isEnabled() && context.getOrDefault(CONTEXT_KEY, Boolean.FALSE);
+    }
+
+    /**
+     * Queues the receipt for the next batch. Resilience is applied per batched call, so the caller only
+     * bounds its own wait by the request deadline. Batches are sent from the batcher's own subscription,
+     * so the user the call is charged to and the deadline travel with the item rather than in the context.
+     *
+     * Results are cached here rather than by the caller: an answer that arrives after the caller gave up
+     * is still paid for, and the deferred OCR run for that receipt then finds it in the cache.
+     */
+    public Mono<ExtractedFuelData> extract(ReceiptImage image, String format) {
+        return Mono.deferContextual(context -> {
+                    Sinks.One<ExtractedFuelData> result = Sinks.one();
+                    OcrEngine.BatchItem item = new OcrEngine.BatchItem(image, format, OcrWorkload.userId(context));
+                    // Uploads in one batch queue from several threads at once
+                    Deadline deadline = context.getOrDefault(Deadline.CONTEXT_KEY, null);
+                    queue.emitNext(new Pending(item, deadline, result),
+                            Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+                    return result.asMono();
+                })
+                .transform(Deadline.bound(null));
+    }
+
+    private boolean isEnabled() {
+        return enabled && maxBatchSize > 1 && ocrEngine.supportsBatching();
+    }
+
+    private Mono<Void> dispatch(List<Pending> batch) {
+        if (batch.size() == 1) {
+            return extractAlone(batch.get(0));
+        }
+
+        batchSize.record(batch.size());
+        List<OcrEngine.BatchItem> items = batch.stream().map(Pending::item).toList();
+        Duration timeout = attemptTimeout(batch, Duration.ofSeconds(batchAttemptTimeoutSeconds));
+        if (timeout.isZero()) {
+            return expired(batch);
+        }
+        return ocrResilienceService.executeBatch(() -> ocrEngine.extractBatch(items), timeout)
+                .flatMap(results -> {
+                    List<Pending> unanswered = new ArrayList<>();
+                    for (int i = 0; i < batch.size(); i++) {
+                        ExtractedFuelData result = i < results.size() ? results.get(i) : null;
+                        if (result == null) {
+                            unanswered.add(batch.get(i));
+                        } else {
+                            complete(batch.get(i), result);
+                        }
+                    }
+                    if (unanswered.isEmpty()) {
+                        return Mono.empty();
+                    }
+
+                    log.warn("Batched OCR had no usable result for {} of {} receipts, retrying them alone",
+                            unanswered.size(), batch.size());
+                    fallbacks.increment(unanswered.size());
+                    // Only receipts whose caller is still waiting are worth a call of their own
+                    return Flux.fromIterable(unanswered)
+                            .flatMap(pending -> isWaiting(pending) ? extractAlone(pending) : expired(List.of(pending)))
+                            .then();
+                })
+                .onErrorResume(error -> {
+                    log.error("Batched OCR call for {} receipts failed: {}", batch.size(), error.getMessage());
+                    batch.forEach(pending -> pending.result().tryEmitError(error));
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> extractAlone(Pending pending) {
+        OcrEngine.BatchItem item = pending.item();
+        Duration timeout = attemptTimeout(List.of(pending), Duration.ofSeconds(attemptTimeoutSeconds));
+        if (timeout.isZero()) {
+            return expired(List.of(pending));
+        }
+        return ocrResilienceService.execute(() -> ocrEngine.extract(item.image(), item.format()), timeout)
+                .contextWrite(OcrWorkload.forUser(item.userId()))
+                .doOnNext(result -> complete(pending, result))
+                .switchIfEmpty(Mono.fromRunnable(() -> pending.result().tryEmitEmpty()))
+                .onErrorResume(error -> {
+                    pending.result().tryEmitError(error);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private void complete(Pending pending, ExtractedFuelData result) {
+        OcrEngine.BatchItem item = pending.item();
+        ocrResultCache.put(item.image().contentSha256(), ocrEngine.getModel(), ocrEngine.getPromptVersion(), result);
+        pending.result().tryEmitValue(result);
+    }
+
+    /**
+     * The configured attempt timeout, cut down to the latest deadline among the waiters; zero once all have passed
+     */
+    private static Duration attemptTimeout(List<Pending> batch, Duration configured) {
+        Duration latest = Duration.ZERO;
+        for (Pending pending : batch) {
+            if (pending.deadline() == null) {
+                return configured;
+            }
+            Duration remaining = pending.deadline().remaining();
+            if (remaining.compareTo(latest) > 0) {
+                latest = remaining;
+            }
+        }
+        return latest.compareTo(configured) < 0 ? latest : configured;
+    }
+
+    private static boolean isWaiting(Pending pending) {
+        return pending.deadline() == null || !pending.deadline().isExpired();
+    }
+
+    // The callers have already timed out and stored their receipts for deferred OCR
+    private static Mono<Void> expired(List<Pending> batch) {
+        log.debug("Dropping {} batched OCR item(s) whose callers are no longer waiting", batch.size());
+        batch.forEach(pending -> pending.result().tryEmitError(new TimeoutException("Request deadline exceeded")));
+        return Mono.empty();
+    }
+
+    private record Pending(OcrEngine.BatchItem item, Deadline deadline, Sinks.One<ExtractedFuelData> result) {
+    }
+}
@@ -0,0 +1,65 @@
+package com.sweetpotato.service;
+
+import com.sweetpotato.dto.fuel.ExtractedFuelData;
+import com.sweetpotato.dto.fuel.ReceiptImage;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Extracts fuel receipt data from an image. Implementations make a single attempt; caching, retries,
+ * hedging and admission control are applied around them by {@link ReceiptOcrService}.
+ * The active engine is selected with {@code app.ocr.engine}.
+ */
+public interface OcrEngine {
+
+    /**
+     * Identifies the engine/model; part of the OCR result cache key
+     */
+    String getModel();
+
+    /**
+     * Changes whenever the engine would extract differently from the same image (prompt, settings)
+     */
+    String getPromptVersion();
+
+    Mono<ExtractedFuelData> extract(ReceiptImage image, String format);
+
+    /**
+     * Whether {@link #extractBatch} reads several receipts in one call, rather than one call per receipt
+     */
+    default boolean supportsBatching() {
+        return false;
+    }
+
+    /**
+     * Extracts several receipts. The result has one entry per item, in order; an entry is null when the
+     * engine's answer for that image was missing or unusable, and the caller should retry it alone.
+     * By default each item is extracted on its own, charged to the item's user.
+     */
+    default Mono<List<ExtractedFuelData>> extractBatch(List<BatchItem> items) {
+        return Flux.fromIterable(items)
+                .flatMapSequential(item -> extract(item.image(), item.format())
+                        .contextWrite(OcrWorkload.forUser(item.userId()))
+                        .map(Optional::of)
+                        .onErrorReturn(Optional.empty())
+                        .defaultIfEmpty(Optional.empty()))
+                // Reactor does not carry nulls, so unanswered items are only unwrapped to null here
+                .collect(ArrayList::new, (results, result) -> results.add(result.orElse(null)));
+    }
+
+    /**
+     * Called once the application is ready, e.g. to open connections ahead of the first request
+     */
+    default void warmUp() {
+    }
+
+    /**
+     * One receipt of a batch, with the user its share of the call is charged to (null if none)
+     */
+    record BatchItem(ReceiptImage image, String format, Long userId) {
+    }
+}
@@ -0,0 +1,27 @@
+package com.sweetpotato.service;
+
+import com.sweetpotato.dto.fuel.ExtractedFuelData;
+import reactor.util.context.Context;
+
+/**
+ * Receives partial extraction results while a streaming OCR call is still running.
+ * Travels in the Reactor context, so callers opt in with {@code .contextWrite(listener::putInto)}
+ * and engines that cannot stream simply never call it.
+ *
+ * Called on the HTTP client's I/O thread, possibly more than once per call (retries, hedges);
+ * implementations must be quick and must not block.
+ */
+@FunctionalInterface
+public interface OcrProgressListener {
+
+    String CONTEXT_KEY = OcrProgressListener.class.getName();
+
+    /**
+     * @param partial the fields extracted so far; never includes raw text
+     */
+    void onPartialResult(ExtractedFuelData partial);
+
+    default Context putInto(Context context) {
+        return context.put(CONTEXT_KEY, this);
+    }
+}
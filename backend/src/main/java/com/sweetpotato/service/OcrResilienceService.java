@@ -0,0 +1,235 @@
+package com.sweetpotato.service;
+
+import com.sweetpotato.exception.OcrOverloadedException;
+import com.sweetpotato.exception.OcrUnavailableException;
+import com.sweetpotato.util.CircuitBreaker;
+import com.sweetpotato.util.Deadline;
+import com.sweetpotato.util.LatencyTracker;
+import com.sweetpotato.util.RetryBudget;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Resilience layer around each Mistral OCR call, outermost first:
+ * retries with jittered backoff for transient failures, limited by a retry budget and the request deadline;
+ * a hedged second attempt once a single-image call has run longer than the observed single-image p95;
+ * a circuit breaker that fails fast with {@link OcrUnavailableException} while Mistral is unhealthy;
+ * and the admission bulkhead, with each attempt's timeout capped by the request deadline.
+ */
+@Service
+@Slf4j
+public class OcrResilienceService {
+
+    private final OcrAdmissionService ocrAdmissionService;
+    private final CircuitBreaker circuitBreaker;
+    private final RetryBudget retryBudget;
+    private final LatencyTracker latencyTracker;
+    // Multi-image calls take longer and must not move the single-image hedge delay
+    private final LatencyTracker batchLatencyTracker;
+
+    private final int maxRetries;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private final boolean hedgingEnabled;
+    private final Duration minHedgeDelay;
+    private final int hedgeMinSamples;
+
+    private final Counter retries;
+    private final Counter retryBudgetExhausted;
+    private final Counter hedges;
+    private final Counter breakerRejections;
+
+    public OcrResilienceService(OcrAdmissionService ocrAdmissionService, MeterRegistry meterRegistry,
+                                @Value("${app.ocr.resilience.max-retries:2}") int maxRetries,
+                                @Value("${app.ocr.resilience.min-backoff-ms:200}") long minBackoffMs,
+                                @Value("${app.ocr.resilience.max-backoff-ms:2000}") long maxBackoffMs,
+                                @Value("${app.ocr.resilience.retry-budget-ratio:0.2}") double retryBudgetRatio,
+                                @Value("${app.ocr.resilience.retry-budget-min-per-second:1}") int retryBudgetMinPerSecond,
+                                @Value("${app.ocr.resilience.hedging-enabled:true}") boolean hedgingEnabled,
+                                @Value("${app.ocr.resilience.hedge-min-delay-ms:1000}") long minHedgeDelayMs,
+                                @Value("${app.ocr.resilience.hedge-min-samples:20}") int hedgeMinSamples,
+                                @Value("${app.ocr.resilience.breaker-window:20}") int breakerWindow,
+                                @Value("${app.ocr.resilience.breaker-min-calls:10}") int breakerMinCalls,
+                                @Value("${app.ocr.resilience.breaker-failure-rate:0.5}") double breakerFailureRate,
+                                @Value("${app.ocr.resilience.breaker-open-seconds:30}") long breakerOpenSeconds,
+                                @Value("${app.ocr.resilience.breaker-half-open-calls:3}") int breakerHalfOpenCalls) {
+        this.ocrAdmissionService = ocrAdmissionService;
+        this.circuitBreaker = new CircuitBreaker(breakerWindow, breakerMinCalls, breakerFailureRate,
+                Duration.ofSeconds(breakerOpenSeconds), breakerHalfOpenCalls);
+        this.retryBudget = new RetryBudget(retryBudgetRatio, retryBudgetMinPerSecond, 10);
+        this.latencyTracker = new LatencyTracker(200);
+        this.batchLatencyTracker = new LatencyTracker(200);
+        this.maxRetries = maxRetries;
+        this.minBackoff = Duration.ofMillis(minBackoffMs);
+        this.maxBackoff = Duration.ofMillis(maxBackoffMs);
+        this.hedgingEnabled = hedgingEnabled;
+        this.minHedgeDelay = Duration.ofMillis(minHedgeDelayMs);
+        this.hedgeMinSamples = hedgeMinSamples;
+
+        Gauge.builder("ocr.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("OCR circuit breaker state (0 = closed, 1 = open, 2 = half-open)")
+                .register(meterRegistry);
+        registerLatencyGauge(meterRegistry, "single", latencyTracker);
+        registerLatencyGauge(meterRegistry, "batch", batchLatencyTracker);
+        this.retries = Counter.builder("ocr.retries")
+                .description("OCR attempts retried after a transient failure")
+                .register(meterRegistry);
+        this.retryBudgetExhausted = Counter.builder("ocr.retry.budget.exhausted")
+                .description("OCR retries skipped because the retry budget was used up")
+                .register(meterRegistry);
+        this.hedges = Counter.builder("ocr.hedges")
+                .description("Hedged second OCR attempts sent after the p95 latency")
+                .register(meterRegistry);
+        this.breakerRejections = Counter.builder("ocr.circuit.rejected")
+                .description("OCR calls skipped because the circuit breaker was open")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param attemptTimeout upper bound for a single attempt, further capped by the request deadline
+     */
+    public <T> Mono<T> execute(Supplier<Mono<T>> call, Duration attemptTimeout) {
+        return execute(call, attemptTimeout, latencyTracker, true);
+    }
+
+    /**
+     * Like {@link #execute} for a call carrying several images. It is never hedged, since a hedge would
+     * re-send every image, and its latency is tracked apart from single-image calls.
+     */
+    public <T> Mono<T> executeBatch(Supplier<Mono<T>> call, Duration attemptTimeout) {
+        return execute(call, attemptTimeout, batchLatencyTracker, false);
+    }
+
+    private <T> Mono<T> execute(Supplier<Mono<T>> call, Duration attemptTimeout, LatencyTracker tracker,
+                                boolean hedgeable) {
+        Supplier<Mono<T>> attempt = () -> guardedAttempt(call, attemptTimeout, tracker);
+        return Mono.defer(() -> {
+                    retryBudget.recordRequest();
+                    return hedgeable ? hedged(attempt) : attempt.get();
+                })
+                .retryWhen(Retry.backoff(maxRetries, minBackoff)
+                        .maxBackoff(maxBackoff)
+                        .jitter(0.5)
+                        .filter(this::shouldRetry)
+                        .doBeforeRetry(signal -> {
+                            retries.increment();
+                            log.warn("Retrying OCR call (attempt {}) after: {}",
+                                    signal.totalRetries() + 2, signal.failure().getMessage());
+                        })
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                // Backoff delays are scheduled blindly; give up on the whole call once the deadline passes
+                .transform(Deadline.bound(null));
+    }
+
+    /**
+     * Whether OCR failed because Mistral is unavailable or overloaded, rather than because of the image or request
+     */
+    public boolean isTransientFailure(Throwable failure) {
+        // block() wraps checked exceptions such as TimeoutException
+        Throwable error = Exceptions.unwrap(failure);
+        return error instanceof OcrUnavailableException
+                || error instanceof WebClientRequestException
+                || OcrAdmissionService.isOverloadSignal(error);
+    }
+
+    public boolean isAvailable() {
+        return circuitBreaker.getState() != CircuitBreaker.State.OPEN;
+    }
+
+    private boolean shouldRetry(Throwable error) {
+        if (error instanceof OcrUnavailableException || error instanceof OcrOverloadedException
+                || !isTransientFailure(error)) {
+            return false;
+        }
+        if (!retryBudget.tryAcquire()) {
+            retryBudgetExhausted.increment();
+            log.warn("OCR retry budget exhausted, not retrying: {}", error.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    private <T> Mono<T> hedged(Supplier<Mono<T>> attempt) {
+        Duration hedgeDelay = hedgeDelay();
+        if (hedgeDelay == null) {
+            return attempt.get();
+        }
+
+        // A failed hedge must not win the race, and a hedge we decide not to send must not complete it
+        Mono<T> hedge = Mono.delay(hedgeDelay)
+                .filter(tick -> ocrAdmissionService.hasHeadroom() && retryBudget.tryAcquire())
+                .flatMap(tick -> {
+                    hedges.increment();
+                    log.info("OCR call slower than p95 ({} ms), sending hedged request", hedgeDelay.toMillis());
+                    return attempt.get();
+                })
+                .onErrorResume(e -> Mono.never())
+                .switchIfEmpty(Mono.never());
+
+        return Mono.firstWithSignal(attempt.get(), hedge);
+    }
+
+    private Duration hedgeDelay() {
+        if (!hedgingEnabled || latencyTracker.getCount() < hedgeMinSamples) {
+            return null;
+        }
+        Duration p95 = latencyTracker.percentile(0.95);
+        return p95.compareTo(minHedgeDelay) < 0 ? minHedgeDelay : p95;
+    }
+
+    private <T> Mono<T> guardedAttempt(Supplier<Mono<T>> call, Duration attemptTimeout, LatencyTracker tracker) {
+        return Mono.defer(() -> {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                breakerRejections.increment();
+                return Mono.error(new OcrUnavailableException("OCR circuit breaker is open"));
+            }
+
+            return ocrAdmissionService.execute(() -> timed(call.get(), tracker)
+                            .transform(Deadline.bound(attemptTimeout)))
+                    .doOnSuccess(result -> circuitBreaker.onSuccess())
+                    .doOnError(error -> {
+                        if (error instanceof OcrOverloadedException) {
+                            // Rejected locally, says nothing about Mistral
+                            circuitBreaker.onIgnored();
+                        } else if (isTransientFailure(error)) {
+                            circuitBreaker.onFailure();
+                            if (!isAvailable()) {
+                                log.error("OCR circuit breaker opened after: {}", error.getMessage());
+                            }
+                        } else {
+                            circuitBreaker.onSuccess();
+                        }
+                    })
+                    .doOnCancel(circuitBreaker::onIgnored);
+        });
+    }
+
+    private <T> Mono<T> timed(Mono<T> call, LatencyTracker tracker) {
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            return call.doOnSuccess(result -> tracker.record(Duration.ofNanos(System.nanoTime() - startNanos)));
+        });
+    }
+
+    private static void registerLatencyGauge(MeterRegistry meterRegistry, String call, LatencyTracker tracker) {
+        Gauge.builder("ocr.latency.p95", tracker, t -> {
+                    Duration p95 = t.percentile(0.95);
+                    return p95 != null ? p95.toMillis() : Double.NaN;
+                })
+                .description("p95 latency of recent successful OCR calls")
+                .tag("call", call)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,169 @@
+package com.sweetpotato.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetpotato.config.PipelineSchedulers;
+import com.sweetpotato.dto.fuel.ExtractedFuelData;
+import com.sweetpotato.entity.OcrResultCacheEntry;
+import com.sweetpotato.repository.OcrResultCacheRepository;
+import com.sweetpotato.util.BoundedExpiringCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Two-tier cache of OCR results keyed by image digest, model and prompt version: a bounded
+ * in-memory LRU in front of the ocr_result_cache table. Changing the model or prompt changes
+ * the key, so stale results are never served; {@link #purgeStale} removes their rows.
+ * Entries hold parsed results, so the stored version also includes {@link MistralResponseParser#VERSION}.
+ */
+@Service
+@Slf4j
+public class OcrResultCache {
+
+    private final OcrResultCacheRepository repository;
+    private final ObjectMapper objectMapper;
+    private final PipelineSchedulers pipelineSchedulers;
+    private final BoundedExpiringCache<String, String> memoryCache;
+    private final Duration memoryTtl;
+    private final boolean enabled;
+
+    private final Counter memoryHits;
+    private final Counter databaseHits;
+    private final Counter misses;
+
+    public OcrResultCache(OcrResultCacheRepository repository, ObjectMapper objectMapper,
+                          PipelineSchedulers pipelineSchedulers, MeterRegistry meterRegistry,
+                          @Value("${app.ocr.cache.enabled:true}") boolean enabled,
+                          @Value("${app.ocr.cache.memory-max-entries:5000}") int memoryMaxEntries,
+                          @Value("${app.ocr.cache.memory-ttl-minutes:1440}") long memoryTtlMinutes) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.pipelineSchedulers = pipelineSchedulers;
+        this.enabled = enabled;
+        this.memoryCache = new BoundedExpiringCache<>(memoryMaxEntries);
+        this.memoryTtl = Duration.ofMinutes(memoryTtlMinutes);
+
+        this.memoryHits = lookupCounter(meterRegistry, "memory_hit");
+        this.databaseHits = lookupCounter(meterRegistry, "db_hit");
+        this.misses = lookupCounter(meterRegistry, "miss");
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("ocr.cache.requests")
+                .description("OCR result cache lookups")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public Mono<ExtractedFuelData> get(String imageDigest, String model, String promptVersion) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+
+        String version = version(promptVersion);
+        String key = key(imageDigest, model, version);
+        String cachedJson = memoryCache.get(key);
+        if (cachedJson != null) {
+            memoryHits.increment();
+            log.info("OCR cache hit (memory) for image {}", imageDigest);
+            return Mono.justOrEmpty(deserialize(cachedJson));
+        }
+
+        return Mono.fromCallable(() -> repository.findByImageDigestAndModelAndPromptVersion(imageDigest, model, version))
+                .subscribeOn(pipelineSchedulers.getDb())
+                .flatMap(Mono::justOrEmpty)
+                .flatMap(entry -> {
+                    memoryCache.put(key, entry.getExtractedData(), memoryTtl);
+                    return Mono.justOrEmpty(deserialize(entry.getExtractedData()));
+                })
+                .doOnNext(extractedData -> {
+                    databaseHits.increment();
+                    log.info("OCR cache hit (database) for image {}", imageDigest);
+                })
+                .onErrorResume(e -> {
+                    log.warn("OCR cache lookup failed for image {}, falling back to OCR", imageDigest, e);
+                    return Mono.empty();
+                })
+                .switchIfEmpty(Mono.fromRunnable(misses::increment));
+    }
+
+    /**
+     * Stores the result in memory right away and in the database in the background.
+     * Only results that extracted something are cached, so a bad read is retried next time.
+     */
+    public void put(String imageDigest, String model, String promptVersion, ExtractedFuelData extractedData) {
+        if (!enabled || !isCacheable(extractedData)) {
+            return;
+        }
+
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(extractedData);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize OCR result for caching", e);
+            return;
+        }
+        String version = version(promptVersion);
+        memoryCache.put(key(imageDigest, model, version), json, memoryTtl);
+
+        OcrResultCacheEntry entry = OcrResultCacheEntry.builder()
+                .imageDigest(imageDigest)
+                .model(model)
+                .promptVersion(version)
+                .extractedData(json)
+                .build();
+        Mono.fromRunnable(() -> save(entry))
+                .subscribeOn(pipelineSchedulers.getDb())
+                .subscribe(null, e -> log.warn("Failed to persist OCR result for image {}", imageDigest, e));
+    }
+
+    /**
+     * Deletes rows written for any other model, prompt version or parser version
+     */
+    public void purgeStale(String model, String promptVersion) {
+        int deleted = repository.deleteStale(model, version(promptVersion));
+        if (deleted > 0) {
+            log.info("Purged {} cached OCR results from previous models or prompt versions", deleted);
+        }
+    }
+
+    private void save(OcrResultCacheEntry entry) {
+        try {
+            repository.save(entry);
+        } catch (DataIntegrityViolationException e) {
+            // Same image OCR'd concurrently elsewhere; the existing row is just as good
+            log.debug("OCR result for image {} already cached", entry.getImageDigest());
+        }
+    }
+
+    private boolean isCacheable(ExtractedFuelData extractedData) {
+        return extractedData != null && (extractedData.getTotalAmount() != null
+                || extractedData.getLiters() != null
+                || extractedData.getStationName() != null);
+    }
+
+    private ExtractedFuelData deserialize(String json) {
+        try {
+            return objectMapper.readValue(json, ExtractedFuelData.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Cached OCR result is not valid JSON, ignoring it");
+            return null;
+        }
+    }
+
+    // A parser or normalization fix changes what the same response yields, just like a prompt change
+    private static String version(String promptVersion) {
+        return promptVersion + ".p" + MistralResponseParser.VERSION;
+    }
+
+    private static String key(String imageDigest, String model, String promptVersion) {
+        return imageDigest + ':' + model + ':' + promptVersion;
+    }
+}
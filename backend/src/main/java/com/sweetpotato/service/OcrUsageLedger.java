@@ -0,0 +1,313 @@
+package com.sweetpotato.service;
+
+import com.sweetpotato.dto.fuel.MistralOcrResponse;
+import com.sweetpotato.entity.OcrUsageDaily;
+import com.sweetpotato.repository.OcrUsageDailyRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Records what every OCR call cost: tokens, latency, model, image bytes and outcome. Each call is logged
+ * on its own logger ({@code com.sweetpotato.service.OcrUsageLedger.calls}) and counted in metrics; daily
+ * roll-ups per user and model are kept in memory and flushed to ocr_usage_daily in the background.
+ *
+ * The roll-ups also back the daily token budgets that {@link OcrAdmissionService} enforces on background
+ * work. Totals already in the database are re-read on every flush, so usage from other nodes counts too.
+ */
+@Service
+@Slf4j
+public class OcrUsageLedger {
+
+    public enum Outcome {
+        SUCCESS, FAILED, CANCELLED
+    }
+
+    public enum BudgetStatus {
+        OK,
+        // Close to a budget: background work is slowed down
+        THROTTLED,
+        // Over a budget: background work is deferred
+        EXHAUSTED
+    }
+
+    /**
+     * One engine call; {@code usage} is null when the engine reported none (e.g. the call failed)
+     */
+    @Builder
+    public record Call(Long userId, String model, int images, long imageBytes, Duration latency, Outcome outcome,
+                       MistralOcrResponse.Usage usage) {
+    }
+
+    private static final Logger callLog = LoggerFactory.getLogger(OcrUsageLedger.class.getName() + ".calls");
+
+    private final OcrUsageDailyRepository repository;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long dailyTokenBudget;
+    private final long userDailyTokenBudget;
+    private final double throttleRatio;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Map<RollupKey, OcrUsageDaily> pending = new HashMap<>();
+    // Taken out of pending by a flush that has not finished yet; still counts towards the budgets
+    private Map<RollupKey, OcrUsageDaily> flushing = Map.of();
+    private volatile PersistedTotals persisted = new PersistedTotals(null, Map.of(), 0);
+
+    public OcrUsageLedger(OcrUsageDailyRepository repository, MeterRegistry meterRegistry,
+                          @Value("${app.ocr.usage.enabled:true}") boolean enabled,
+                          @Value("${app.ocr.usage.daily-token-budget:0}") long dailyTokenBudget,
+                          @Value("${app.ocr.usage.user-daily-token-budget:0}") long userDailyTokenBudget,
+                          @Value("${app.ocr.usage.throttle-ratio:0.8}") double throttleRatio) {
+        this.repository = repository;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.dailyTokenBudget = dailyTokenBudget;
+        this.userDailyTokenBudget = userDailyTokenBudget;
+        this.throttleRatio = throttleRatio;
+
+        log.info("OCR usage ledger: enabled={}, dailyTokenBudget={}, userDailyTokenBudget={}, throttleRatio={}",
+                enabled, dailyTokenBudget, userDailyTokenBudget, throttleRatio);
+    }
+
+    public void record(Call call) {
+        MistralOcrResponse.Usage usage = call.usage();
+        long promptTokens = usage == null ? 0 : tokens(usage.getPromptTokens());
+        long completionTokens = usage == null ? 0 : tokens(usage.getCompletionTokens());
+        long totalTokens = usage == null || usage.getTotalTokens() == null
+                ? promptTokens + completionTokens
+                : usage.getTotalTokens();
+        long latencyMs = call.latency().toMillis();
+
+        callLog.info("user={} model={} images={} imageBytes={} latencyMs={} outcome={} promptTokens={} "
+                        + "completionTokens={} totalTokens={}", call.userId(), call.model(), call.images(),
+                call.imageBytes(), latencyMs, call.outcome(), promptTokens, completionTokens, totalTokens);
+
+        meterRegistry.counter("ocr.usage.calls", "model", call.model(), "outcome", call.outcome().name()).increment();
+        if (totalTokens > 0) {
+            meterRegistry.counter("ocr.usage.tokens", "model", call.model(), "type", "prompt").increment(promptTokens);
+            meterRegistry.counter("ocr.usage.tokens", "model", call.model(), "type", "completion")
+                    .increment(completionTokens);
+        }
+
+        if (!enabled) {
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        long userId = call.userId() != null ? call.userId() : OcrUsageDaily.NO_USER;
+        lock.lock();
+        try {
+            OcrUsageDaily rollup = pending.computeIfAbsent(new RollupKey(today, userId, call.model()),
+                    OcrUsageLedger::emptyRollup);
+            rollup.setCalls(rollup.getCalls() + 1);
+            if (call.outcome() != Outcome.SUCCESS) {
+                rollup.setFailedCalls(rollup.getFailedCalls() + 1);
+            }
+            rollup.setImages(rollup.getImages() + call.images());
+            rollup.setImageBytes(rollup.getImageBytes() + call.imageBytes());
+            rollup.setPromptTokens(rollup.getPromptTokens() + promptTokens);
+            rollup.setCompletionTokens(rollup.getCompletionTokens() + completionTokens);
+            rollup.setTotalTokens(rollup.getTotalTokens() + totalTokens);
+            rollup.setLatencyMs(rollup.getLatencyMs() + latencyMs);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * How close today's usage is to the global and the user's daily token budget, whichever is closer
+     */
+    public BudgetStatus budgetStatus(Long userId) {
+        if (dailyTokenBudget <= 0 && userDailyTokenBudget <= 0) {
+            return BudgetStatus.OK;
+        }
+
+        TokenTotals tokens = todaysTokens(userId != null ? userId : OcrUsageDaily.NO_USER);
+        double used = Math.max(usedRatio(tokens.global(), dailyTokenBudget),
+                usedRatio(tokens.user(), userDailyTokenBudget));
+        if (used >= 1) {
+            return BudgetStatus.EXHAUSTED;
+        }
+        return used >= throttleRatio ? BudgetStatus.THROTTLED : BudgetStatus.OK;
+    }
+
+    /**
+     * Whether today's usage across all users has reached the global budget, so no background OCR can run
+     */
+    public boolean isGlobalBudgetExhausted() {
+        return dailyTokenBudget > 0
+                && usedRatio(todaysTokens(OcrUsageDaily.NO_USER).global(), dailyTokenBudget) >= 1;
+    }
+
+    // Persisted totals plus the roll-ups not flushed yet
+    private TokenTotals todaysTokens(long user) {
+        LocalDate today = LocalDate.now();
+        PersistedTotals totals = persisted;
+        boolean current = today.equals(totals.date());
+        long globalTokens = current ? totals.global() : 0;
+        long userTokens = current ? totals.byUser().getOrDefault(user, 0L) : 0;
+
+        lock.lock();
+        try {
+            for (Map<RollupKey, OcrUsageDaily> rollups : List.of(pending, flushing)) {
+                for (Map.Entry<RollupKey, OcrUsageDaily> entry : rollups.entrySet()) {
+                    if (!today.equals(entry.getKey().date())) {
+                        continue;
+                    }
+                    globalTokens += entry.getValue().getTotalTokens();
+                    if (entry.getKey().userId() == user) {
+                        userTokens += entry.getValue().getTotalTokens();
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return new TokenTotals(globalTokens, userTokens);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadPersistedTotals() {
+        if (enabled) {
+            refreshPersistedTotals();
+        }
+    }
+
+    /**
+     * Adds the roll-ups gathered since the last flush to their rows, one statement per user and model.
+     * Roll-ups that could not be written are kept for the next flush.
+     */
+    @Scheduled(fixedDelayString = "${app.ocr.usage.flush-interval-ms:60000}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+
+        Map<RollupKey, OcrUsageDaily> batch;
+        lock.lock();
+        try {
+            batch = pending;
+            pending = new HashMap<>();
+            flushing = batch;
+        } finally {
+            lock.unlock();
+        }
+
+        List<OcrUsageDaily> failed = new ArrayList<>();
+        for (OcrUsageDaily rollup : batch.values()) {
+            try {
+                persist(rollup);
+            } catch (DataAccessException e) {
+                log.warn("Failed to flush OCR usage for user {} on {}, keeping it for the next flush: {}",
+                        rollup.getUserId(), rollup.getUsageDate(), e.getMessage());
+                failed.add(rollup);
+            }
+        }
+        if (!batch.isEmpty()) {
+            log.debug("Flushed {} OCR usage roll-ups ({} failed)", batch.size(), failed.size());
+        }
+
+        // Re-read before dropping the flushed roll-ups, so the budgets never briefly undercount
+        refreshPersistedTotals();
+
+        lock.lock();
+        try {
+            flushing = Map.of();
+            for (OcrUsageDaily rollup : failed) {
+                merge(pending.computeIfAbsent(
+                        new RollupKey(rollup.getUsageDate(), rollup.getUserId(), rollup.getModel()),
+                        OcrUsageLedger::emptyRollup), rollup);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void persist(OcrUsageDaily rollup) {
+        if (repository.addUsage(rollup) > 0) {
+            return;
+        }
+        try {
+            repository.save(rollup);
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the row first
+            if (repository.addUsage(rollup) == 0) {
+                throw e;
+            }
+        }
+    }
+
+    private void refreshPersistedTotals() {
+        if (dailyTokenBudget <= 0 && userDailyTokenBudget <= 0) {
+            return;
+        }
+
+        try {
+            LocalDate today = LocalDate.now();
+            Map<Long, Long> byUser = new HashMap<>();
+            long global = 0;
+            for (OcrUsageDailyRepository.UserTokenTotal total : repository.sumTotalTokensByUser(today)) {
+                long tokens = total.getTotalTokens() != null ? total.getTotalTokens() : 0;
+                byUser.put(total.getUserId(), tokens);
+                global += tokens;
+            }
+            persisted = new PersistedTotals(today, byUser, global);
+        } catch (DataAccessException e) {
+            log.warn("Could not read today's OCR token usage, budgets use the last known totals: {}", e.getMessage());
+        }
+    }
+
+    private static OcrUsageDaily emptyRollup(RollupKey key) {
+        return OcrUsageDaily.builder()
+                .usageDate(key.date())
+                .userId(key.userId())
+                .model(key.model())
+                .build();
+    }
+
+    private static void merge(OcrUsageDaily target, OcrUsageDaily source) {
+        target.setCalls(target.getCalls() + source.getCalls());
+        target.setFailedCalls(target.getFailedCalls() + source.getFailedCalls());
+        target.setImages(target.getImages() + source.getImages());
+        target.setImageBytes(target.getImageBytes() + source.getImageBytes());
+        target.setPromptTokens(target.getPromptTokens() + source.getPromptTokens());
+        target.setCompletionTokens(target.getCompletionTokens() + source.getCompletionTokens());
+        target.setTotalTokens(target.getTotalTokens() + source.getTotalTokens());
+        target.setLatencyMs(target.getLatencyMs() + source.getLatencyMs());
+    }
+
+    private static long tokens(Integer count) {
+        return count != null ? count : 0;
+    }
+
+    private static double usedRatio(long tokens, long budget) {
+        return budget > 0 ? (double) tokens / budget : 0;
+    }
+
+    private record RollupKey(LocalDate date, long userId, String model) {
+    }
+
+    private record TokenTotals(long global, long user) {
+    }
+
+    private record PersistedTotals(LocalDate date, Map<Long, Long> byUser, long global) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.sweetpotato.service;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.function.Function;
+
+/**
+ * Who an OCR pipeline runs for, carried in the Reactor context: the user its usage is charged to, and
+ * whether it is background work (bulk uploads, deferred OCR, backfills) that may be slowed down or
+ * deferred to stay within the token budget. Interactive uploads are never held back.
+ */
+public final class OcrWorkload {
+
+    public static final String USER_KEY = OcrWorkload.class.getName() + ".user";
+    public static final String BACKGROUND_KEY = OcrWorkload.class.getName() + ".background";
+
+    private OcrWorkload() {
+    }
+
+    /**
+     * For {@code contextWrite(OcrWorkload.forUser(userId))}
+     */
+    public static Function<Context, Context> forUser(Long userId) {
+        return context -> userId == null ? context : context.put(USER_KEY, userId);
+    }
+
+    /**
+     * For {@code contextWrite(OcrWorkload::background)}
+     */
+    public static Context background(Context context) {
+        return context.put(BACKGROUND_KEY, Boolean.TRUE);
+    }
+
+    public static Long userId(ContextView context) {
+        return context.getOrDefault(USER_KEY, null);
+    }
+
+    public static boolean isBackground(ContextView context) {
+        return context.getOrDefault(BACKGROUND_KEY, Boolean.FALSE);
+    }
+}
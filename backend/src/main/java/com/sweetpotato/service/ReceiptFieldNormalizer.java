@@ -0,0 +1,438 @@
+package com.sweetpotato.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormatSymbols;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.chrono.IsoChronology;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.FormatStyle;
+import java.time.format.ResolverStyle;
+import java.time.format.SignStyle;
+import java.time.format.TextStyle;
+import java.time.temporal.ChronoField;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Turns the free-form values OCR reads off a receipt into typed fields: amounts, purchase
+ * date/times and canonical fuel types.
+ *
+ * Dates are classified by shape (field order, separator, year length, AM/PM) and parsed with the one
+ * precompiled formatter for that layout; day/month order is taken from the value when it is unambiguous
+ * and from the configured locale otherwise. Amounts are scanned by hand, so currency symbols, units and
+ * Indian ("1,23,456.50") or European ("1.234,50") grouping never cost an exception.
+ */
+@Component
+@Slf4j
+public class ReceiptFieldNormalizer {
+
+    public static final String UNKNOWN_FUEL_TYPE = "unknown";
+
+    private static final Map<String, String> FUEL_TYPES = Map.ofEntries(
+            Map.entry("petrol", "Petrol"),
+            Map.entry("gasoline", "Petrol"),
+            Map.entry("gas", "Petrol"),
+            Map.entry("ms", "Petrol"),
+            Map.entry("motor spirit", "Petrol"),
+            Map.entry("diesel", "Diesel"),
+            Map.entry("hsd", "Diesel"),
+            Map.entry("high speed diesel", "Diesel"),
+            Map.entry("cng", "CNG"),
+            Map.entry("compressed natural gas", "CNG"),
+            Map.entry("lpg", "LPG"),
+            Map.entry("autogas", "LPG"),
+            Map.entry("auto lpg", "LPG"),
+            Map.entry("liquified petroleum gas", "LPG"),
+            Map.entry("liquefied petroleum gas", "LPG"));
+
+    // Multi-word names, longest first, matched inside longer text before any single word is
+    private static final List<String> FUEL_TYPE_PHRASES = FUEL_TYPES.keySet().stream()
+            .filter(name -> name.contains(" "))
+            .sorted(Comparator.comparingInt(String::length).reversed())
+            .toList();
+
+    // Only a fuel type on its own: inside longer text "gas" is as likely LNG, natural gas or LPG as petrol
+    private static final Set<String> WHOLE_VALUE_ONLY = Set.of("gas");
+
+    private enum Order {
+        YMD, DMY, MDY, DAY_MONTH_NAME
+    }
+
+    private static final char[] SEPARATORS = {'-', '/', '.', ' '};
+
+    // [order][separator][4-digit year?][AM/PM?]
+    private static final DateTimeFormatter[][][][] FORMATTERS = buildFormatters();
+
+    private final char decimalSeparator;
+    private final boolean dayBeforeMonth;
+
+    public ReceiptFieldNormalizer(@Value("${app.receipts.normalization.locale:en-IN}") Locale locale) {
+        this.decimalSeparator = DecimalFormatSymbols.getInstance(locale).getDecimalSeparator();
+        String shortDate = DateTimeFormatterBuilder.getLocalizedDateTimePattern(
+                FormatStyle.SHORT, null, IsoChronology.INSTANCE, locale);
+        int day = shortDate.indexOf('d');
+        int month = shortDate.indexOf('M');
+        this.dayBeforeMonth = day >= 0 && (month < 0 || day < month);
+        log.info("Receipt field normalization for locale {}: decimal separator '{}', {} first",
+                locale.toLanguageTag(), decimalSeparator, dayBeforeMonth ? "day" : "month");
+    }
+
+    /**
+     * @return the amount, or null if the text contains no number
+     */
+    public BigDecimal parseAmount(String text) {
+        if (text == null) {
+            return null;
+        }
+
+        int length = text.length();
+        int start = 0;
+        while (start < length && !isDigit(text.charAt(start))) {
+            start++;
+        }
+        if (start == length) {
+            return null;
+        }
+        boolean negative = start > 0 && text.charAt(start - 1) == '-';
+
+        // The number runs over digits and separators; whatever follows (units, "/-") is ignored
+        int end = start;
+        while (end < length && (isDigit(text.charAt(end)) || isSeparator(text.charAt(end)))) {
+            end++;
+        }
+        while (!isDigit(text.charAt(end - 1))) {
+            end--;
+        }
+
+        int dots = 0;
+        int commas = 0;
+        int lastDot = -1;
+        int lastComma = -1;
+        boolean plain = true;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '.') {
+                dots++;
+                lastDot = i;
+            } else if (c == ',') {
+                commas++;
+                lastComma = i;
+                plain = false;
+            } else if (!isDigit(c)) {
+                plain = false;
+            }
+        }
+
+        // Fast path: already a plain decimal number, possibly in scientific notation as JSON numbers are rendered;
+        // "1.234" is only plain where '.' is the decimal separator
+        if (plain && dots <= 1 && (dots == 0 || decimalSeparator == '.' || end - lastDot - 1 != 3)) {
+            int exponentEnd = exponentEnd(text, end);
+            BigDecimal amount = new BigDecimal(text.substring(start, exponentEnd));
+            return negative ? amount.negate() : amount;
+        }
+
+        char decimal = resolveDecimalSeparator(end, dots, lastDot, commas, lastComma);
+        char[] digits = new char[end - start + 1];
+        int count = 0;
+        if (negative) {
+            digits[count++] = '-';
+        }
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (isDigit(c)) {
+                digits[count++] = c;
+            } else if (c == decimal && i == (decimal == '.' ? lastDot : lastComma)) {
+                digits[count++] = '.';
+            }
+        }
+        return new BigDecimal(digits, 0, count);
+    }
+
+    /**
+     * Which of '.' and ',' (if either) separates the decimals; the other is digit grouping
+     */
+    private char resolveDecimalSeparator(int end, int dots, int lastDot, int commas, int lastComma) {
+        if (dots > 0 && commas > 0) {
+            return lastDot > lastComma ? '.' : ',';
+        }
+        if (dots + commas == 0) {
+            return 0;
+        }
+
+        char separator = dots > 0 ? '.' : ',';
+        if (dots + commas > 1) {
+            // Repeated: "1.234.567" or "1,23,456"
+            return 0;
+        }
+        int position = dots > 0 ? lastDot : lastComma;
+        int fractionDigits = end - position - 1;
+        if (fractionDigits != 3) {
+            return separator;
+        }
+        // "1,234" or "1.234": grouping unless it is this locale's decimal separator
+        return separator == decimalSeparator ? separator : 0;
+    }
+
+    /**
+     * @return the date/time, at start of day for date-only values, or null if the value is not a recognised date
+     */
+    public LocalDateTime parseDateTime(String text) {
+        if (text == null) {
+            return null;
+        }
+        String value = text.trim();
+        DateTimeFormatter formatter = classify(value);
+        if (formatter == null) {
+            log.warn("Unable to parse date time: {}", text);
+            return null;
+        }
+
+        try {
+            return LocalDateTime.from(formatter.parse(value));
+        } catch (DateTimeException e) {
+            // Right layout but impossible values, e.g. 31/02/2025
+            log.warn("Unable to parse date time: {}", text);
+            return null;
+        }
+    }
+
+    private DateTimeFormatter classify(String value) {
+        int length = value.length();
+        int firstEnd = skipDigits(value, 0);
+        if (firstEnd == 0 || firstEnd == length) {
+            return null;
+        }
+
+        char separator = value.charAt(firstEnd);
+        int separatorIndex = separatorIndex(separator);
+        if (separatorIndex < 0) {
+            return null;
+        }
+
+        int secondStart = firstEnd + 1;
+        int secondEnd = skipDigits(value, secondStart);
+        Order order;
+        if (secondEnd == secondStart) {
+            // "14-Jul-2025", "14 Jul 2025"
+            secondEnd = secondStart;
+            while (secondEnd < length && Character.isLetter(value.charAt(secondEnd))) {
+                secondEnd++;
+            }
+            if (secondEnd - secondStart < 3 || firstEnd > 2) {
+                return null;
+            }
+            order = Order.DAY_MONTH_NAME;
+        } else if (firstEnd == 4) {
+            if (separator == '-' && length > 10 && value.charAt(10) == 'T') {
+                // ISO date-time, with or without an offset
+                return DateTimeFormatter.ISO_DATE_TIME;
+            }
+            order = Order.YMD;
+        } else if (firstEnd <= 2 && secondEnd - secondStart <= 2) {
+            int first = parseDigits(value, 0, firstEnd);
+            int second = parseDigits(value, secondStart, secondEnd);
+            if (first > 12) {
+                order = Order.DMY;
+            } else if (second > 12) {
+                order = Order.MDY;
+            } else {
+                order = dayBeforeMonth ? Order.DMY : Order.MDY;
+            }
+        } else {
+            return null;
+        }
+
+        if (secondEnd == length || value.charAt(secondEnd) != separator) {
+            return null;
+        }
+        int thirdStart = secondEnd + 1;
+        int thirdEnd = skipDigits(value, thirdStart);
+        int thirdDigits = thirdEnd - thirdStart;
+
+        boolean fourDigitYear;
+        if (order == Order.YMD) {
+            if (thirdDigits < 1 || thirdDigits > 2) {
+                return null;
+            }
+            fourDigitYear = true;
+        } else if (thirdDigits == 4 || thirdDigits == 2) {
+            fourDigitYear = thirdDigits == 4;
+        } else {
+            return null;
+        }
+
+        boolean amPm = length >= 2 && isAmPm(value.charAt(length - 2), value.charAt(length - 1));
+        return FORMATTERS[order.ordinal()][separatorIndex][fourDigitYear ? 1 : 0][amPm ? 1 : 0];
+    }
+
+    /**
+     * Canonical fuel type (Petrol, Diesel, CNG, LPG), or {@value #UNKNOWN_FUEL_TYPE}
+     */
+    public String normalizeFuelType(String fuelType) {
+        if (fuelType == null) {
+            return UNKNOWN_FUEL_TYPE;
+        }
+
+        String normalized = fuelType.trim().toLowerCase(Locale.ROOT);
+        String canonical = FUEL_TYPES.get(normalized);
+        if (canonical != null) {
+            return canonical;
+        }
+
+        // e.g. "Liquefied Petroleum Gas (Auto)", "Petrol (Regular)", "HSD - Diesel"
+        String[] words = normalized.split("[^a-z]+");
+        String spaced = " " + String.join(" ", words).trim() + " ";
+        for (String phrase : FUEL_TYPE_PHRASES) {
+            if (spaced.contains(" " + phrase + " ")) {
+                return FUEL_TYPES.get(phrase);
+            }
+        }
+        for (String word : words) {
+            canonical = WHOLE_VALUE_ONLY.contains(word) ? null : FUEL_TYPES.get(word);
+            if (canonical != null) {
+                return canonical;
+            }
+        }
+
+        log.info("Unknown fuel type detected: {}. Setting to '{}'", fuelType, UNKNOWN_FUEL_TYPE);
+        return UNKNOWN_FUEL_TYPE;
+    }
+
+    private static DateTimeFormatter[][][][] buildFormatters() {
+        DateTimeFormatter[][][][] formatters = new DateTimeFormatter[Order.values().length][SEPARATORS.length][2][2];
+        for (Order order : Order.values()) {
+            for (int s = 0; s < SEPARATORS.length; s++) {
+                for (int year = 0; year < 2; year++) {
+                    for (int amPm = 0; amPm < 2; amPm++) {
+                        formatters[order.ordinal()][s][year][amPm] =
+                                buildFormatter(order, SEPARATORS[s], year == 1, amPm == 1);
+                    }
+                }
+            }
+        }
+        return formatters;
+    }
+
+    private static DateTimeFormatter buildFormatter(Order order, char separator, boolean fourDigitYear, boolean amPm) {
+        DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder().parseCaseInsensitive();
+        switch (order) {
+            case YMD -> {
+                appendYear(builder, fourDigitYear);
+                builder.appendLiteral(separator);
+                builder.appendValue(ChronoField.MONTH_OF_YEAR, 1, 2, SignStyle.NOT_NEGATIVE);
+                builder.appendLiteral(separator);
+                builder.appendValue(ChronoField.DAY_OF_MONTH, 1, 2, SignStyle.NOT_NEGATIVE);
+            }
+            case DMY, DAY_MONTH_NAME -> {
+                builder.appendValue(ChronoField.DAY_OF_MONTH, 1, 2, SignStyle.NOT_NEGATIVE);
+                builder.appendLiteral(separator);
+                if (order == Order.DAY_MONTH_NAME) {
+                    builder.appendText(ChronoField.MONTH_OF_YEAR, TextStyle.SHORT);
+                } else {
+                    builder.appendValue(ChronoField.MONTH_OF_YEAR, 1, 2, SignStyle.NOT_NEGATIVE);
+                }
+                builder.appendLiteral(separator);
+                appendYear(builder, fourDigitYear);
+            }
+            case MDY -> {
+                builder.appendValue(ChronoField.MONTH_OF_YEAR, 1, 2, SignStyle.NOT_NEGATIVE);
+                builder.appendLiteral(separator);
+                builder.appendValue(ChronoField.DAY_OF_MONTH, 1, 2, SignStyle.NOT_NEGATIVE);
+                builder.appendLiteral(separator);
+                appendYear(builder, fourDigitYear);
+            }
+        }
+
+        // Optional time: "[,] 19:42[:11][ PM]"
+        builder.optionalStart()
+                .optionalStart().appendLiteral(',').optionalEnd()
+                .appendLiteral(' ')
+                .appendValue(amPm ? ChronoField.CLOCK_HOUR_OF_AMPM : ChronoField.HOUR_OF_DAY, 1, 2, SignStyle.NOT_NEGATIVE)
+                .appendLiteral(':')
+                .appendValue(ChronoField.MINUTE_OF_HOUR, 2)
+                .optionalStart().appendLiteral(':').appendValue(ChronoField.SECOND_OF_MINUTE, 2).optionalEnd();
+        if (amPm) {
+            builder.optionalStart().appendLiteral(' ').optionalEnd().appendText(ChronoField.AMPM_OF_DAY);
+        }
+        builder.optionalEnd();
+
+        if (!amPm) {
+            builder.parseDefaulting(ChronoField.HOUR_OF_DAY, 0);
+        }
+        return builder
+                .parseDefaulting(ChronoField.MINUTE_OF_HOUR, 0)
+                .parseDefaulting(ChronoField.SECOND_OF_MINUTE, 0)
+                .toFormatter(Locale.ENGLISH)
+                .withChronology(IsoChronology.INSTANCE)
+                .withResolverStyle(ResolverStyle.STRICT);
+    }
+
+    private static void appendYear(DateTimeFormatterBuilder builder, boolean fourDigitYear) {
+        if (fourDigitYear) {
+            builder.appendValue(ChronoField.YEAR, 4);
+        } else {
+            builder.appendValueReduced(ChronoField.YEAR, 2, 2, 2000);
+        }
+    }
+
+    private static int separatorIndex(char c) {
+        for (int i = 0; i < SEPARATORS.length; i++) {
+            if (SEPARATORS[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipDigits(String value, int from) {
+        int i = from;
+        while (i < value.length() && isDigit(value.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int parseDigits(String value, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            result = result * 10 + (value.charAt(i) - '0');
+        }
+        return result;
+    }
+
+    private static boolean isAmPm(char first, char second) {
+        char a = Character.toUpperCase(first);
+        return (a == 'A' || a == 'P') && Character.toUpperCase(second) == 'M';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // Decimal and grouping separators; spaces and apostrophes group thousands in "1 234,50" and "1'234.50"
+    private static boolean isSeparator(char c) {
+        return c == '.' || c == ',' || c == ' ' || c == '\u00A0' || c == '\u202F' || c == '\'';
+    }
+
+    // End of an "E7" / "e-3" exponent starting at the given index, or the index itself if there is none
+    private static int exponentEnd(String text, int from) {
+        if (from >= text.length() || (text.charAt(from) != 'E' && text.charAt(from) != 'e')) {
+            return from;
+        }
+        int i = from + 1;
+        if (i < text.length() && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            i++;
+        }
+        int digitsEnd = skipDigits(text, i);
+        return digitsEnd > i ? digitsEnd : from;
+    }
+}
@@ -0,0 +1,572 @@
+package com.sweetpotato.service;
+
+import com.sweetpotato.dto.fuel.PreprocessedReceiptImage;
+import com.sweetpotato.dto.fuel.ReceiptImage;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import jakarta.annotation.PostConstruct;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prepares receipt photos before they are stored and sent to OCR:
+ * sniffs the real format, applies EXIF orientation, crops to the receipt,
+ * downscales, converts to grayscale and re-encodes as JPEG.
+ */
+@Service
+@Slf4j
+public class ReceiptImagePreprocessor {
+
+    public enum ImageFormat {
+        JPEG, PNG, GIF, BMP, WEBP, HEIC, UNKNOWN;
+
+        /**
+         * Whether ImageIO can decode this format out of the box
+         */
+        boolean isDecodable() {
+            return this == JPEG || this == PNG || this == GIF || this == BMP;
+        }
+    }
+
+    private static final int EXIF_ORIENTATION_TAG = 0x0112;
+
+    private final DistributionSummary bytesSavedSummary;
+
+    @Value("${app.receipts.preprocessing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.receipts.preprocessing.max-dimension:1600}")
+    private int maxDimension;
+
+    @Value("${app.receipts.preprocessing.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    @Value("${app.receipts.preprocessing.grayscale:true}")
+    private boolean grayscale;
+
+    @Value("${app.receipts.preprocessing.crop:true}")
+    private boolean crop;
+
+    public ReceiptImagePreprocessor(MeterRegistry meterRegistry) {
+        this.bytesSavedSummary = DistributionSummary.builder("receipt.preprocessing.bytes.saved")
+                .description("Bytes saved per upload by receipt image preprocessing")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void disableImageIoDiskCache() {
+        // Decode and encode in memory only, no temp files per upload
+        ImageIO.setUseCache(false);
+    }
+
+    /**
+     * Detects the image format from the magic bytes, ignoring the client-supplied content type
+     */
+    public static ImageFormat sniffFormat(byte[] data) {
+        if (data == null || data.length < 12) {
+            return ImageFormat.UNKNOWN;
+        }
+        if (u8(data, 0) == 0xFF && u8(data, 1) == 0xD8 && u8(data, 2) == 0xFF) {
+            return ImageFormat.JPEG;
+        }
+        if (u8(data, 0) == 0x89 && data[1] == 'P' && data[2] == 'N' && data[3] == 'G') {
+            return ImageFormat.PNG;
+        }
+        if (data[0] == 'G' && data[1] == 'I' && data[2] == 'F' && data[3] == '8') {
+            return ImageFormat.GIF;
+        }
+        if (data[0] == 'B' && data[1] == 'M') {
+            return ImageFormat.BMP;
+        }
+        if (data[0] == 'R' && data[1] == 'I' && data[2] == 'F' && data[3] == 'F'
+                && data[8] == 'W' && data[9] == 'E' && data[10] == 'B' && data[11] == 'P') {
+            return ImageFormat.WEBP;
+        }
+        if (data[4] == 'f' && data[5] == 't' && data[6] == 'y' && data[7] == 'p') {
+            String brand = new String(data, 8, 4, java.nio.charset.StandardCharsets.US_ASCII);
+            if (brand.startsWith("hei") || brand.startsWith("hev") || brand.equals("mif1") || brand.equals("msf1")) {
+                return ImageFormat.HEIC;
+            }
+        }
+        return ImageFormat.UNKNOWN;
+    }
+
+    /**
+     * Runs the preprocessing pipeline. Falls back to the original image whenever
+     * the format cannot be decoded or processing would not make the image smaller.
+     */
+    public PreprocessedReceiptImage preprocess(ReceiptImage original) {
+        ImageFormat format = sniffFormat(original.getContent());
+        if (!enabled || !format.isDecodable()) {
+            log.debug("Skipping preprocessing for {} image ({} bytes)", format, original.getSize());
+            return unchanged(original);
+        }
+
+        long startTime = System.currentTimeMillis();
+        try {
+            List<String> steps = new ArrayList<>();
+            int orientation = format == ImageFormat.JPEG ? readExifOrientation(original.getContent()) : 1;
+
+            BufferedImage decoded = decode(original.getContent(), maxDimension);
+            if (decoded == null) {
+                log.warn("Could not decode {} receipt image, keeping original", format);
+                return unchanged(original);
+            }
+
+            BufferedImage image = scale(decoded, steps);
+            if (orientation != 1) {
+                image = orient(image, orientation);
+                steps.add("orient");
+            }
+            if (crop) {
+                image = cropToReceipt(image, steps);
+            }
+
+            byte[] encoded = encodeJpeg(image, jpegQuality);
+            steps.add("reencode");
+
+            if (encoded.length >= original.getSize() && orientation == 1) {
+                log.debug("Preprocessed image is not smaller ({} >= {} bytes), keeping original",
+                        encoded.length, original.getSize());
+                return unchanged(original);
+            }
+
+            ReceiptImage processed = ReceiptImage.builder()
+                    .content(encoded)
+                    .contentType("image/jpeg")
+                    .originalFilename(toJpegFilename(original.getOriginalFilename()))
+                    .build();
+
+            PreprocessedReceiptImage result = PreprocessedReceiptImage.builder()
+                    .image(processed)
+                    .original(original)
+                    .steps(steps)
+                    .build();
+
+            bytesSavedSummary.record(Math.max(0, result.getBytesSaved()));
+            log.info("Preprocessed receipt image: {} -> {} bytes (saved {} bytes, {}x{}, steps={}) in {}ms",
+                    original.getSize(), processed.getSize(), result.getBytesSaved(),
+                    image.getWidth(), image.getHeight(), steps, System.currentTimeMillis() - startTime);
+            return result;
+
+        } catch (IOException | RuntimeException e) {
+            log.warn("Receipt image preprocessing failed, keeping original: {}", e.getMessage());
+            return unchanged(original);
+        }
+    }
+
+    /**
+     * Renders downscaled color JPEG copies of a receipt for display, one per max dimension, in the order given.
+     * Each variant is scaled from the next larger one, so the image is only decoded once.
+     *
+     * @return the variants, or an empty list when the format cannot be decoded
+     */
+    public List<ReceiptImage> renderVariants(ReceiptImage image, float quality, int... maxDimensions) throws IOException {
+        ImageFormat format = sniffFormat(image.getContent());
+        if (!format.isDecodable() || maxDimensions.length == 0) {
+            return List.of();
+        }
+
+        int[] largestFirst = Arrays.stream(maxDimensions).boxed()
+                .sorted(Comparator.reverseOrder())
+                .mapToInt(Integer::intValue)
+                .toArray();
+        BufferedImage current = decode(image.getContent(), largestFirst[0]);
+        if (current == null) {
+            return List.of();
+        }
+        int orientation = format == ImageFormat.JPEG ? readExifOrientation(image.getContent()) : 1;
+
+        Map<Integer, ReceiptImage> variants = new HashMap<>();
+        for (int dimension : largestFirst) {
+            current = resize(current, dimension, BufferedImage.TYPE_INT_RGB);
+            // Oriented after the first downscale, which leaves far fewer pixels to remap
+            if (orientation != 1) {
+                current = orient(current, orientation);
+                orientation = 1;
+            }
+            variants.put(dimension, ReceiptImage.builder()
+                    .content(encodeJpeg(current, quality))
+                    .contentType("image/jpeg")
+                    .originalFilename(toJpegFilename(image.getOriginalFilename()))
+                    .build());
+        }
+        return Arrays.stream(maxDimensions).mapToObj(variants::get).toList();
+    }
+
+    private PreprocessedReceiptImage unchanged(ReceiptImage original) {
+        return PreprocessedReceiptImage.builder()
+                .image(original)
+                .original(original)
+                .steps(List.of())
+                .build();
+    }
+
+    /**
+     * Decodes the image, subsampling very large photos while reading so a 12MP photo
+     * never has to be fully expanded in memory
+     */
+    private BufferedImage decode(byte[] data, int targetDimension) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int largestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+
+                // Keep at least 2x the target resolution so the final smooth downscale has detail to work with
+                int subsampling = Math.max(1, largestSide / (2 * targetDimension));
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Downscales to the configured max dimension and converts to grayscale in one pass per halving step
+     */
+    private BufferedImage scale(BufferedImage source, List<String> steps) {
+        if (Math.max(source.getWidth(), source.getHeight()) > maxDimension) {
+            steps.add("downscale");
+        }
+        if (grayscale) {
+            steps.add("grayscale");
+        }
+        return resize(source, maxDimension, grayscale ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * Scales to fit within maxDimension (never up) and converts to the given image type
+     */
+    private BufferedImage resize(BufferedImage source, int maxDimension, int imageType) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double factor = Math.min(1.0, (double) maxDimension / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * factor));
+        int targetHeight = Math.max(1, (int) Math.round(height * factor));
+
+        BufferedImage current = source;
+        do {
+            // Halve at most once per step; a single large bilinear step loses thin receipt text
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            if (current == source && factor >= 0.5) {
+                width = targetWidth;
+                height = targetHeight;
+            }
+
+            BufferedImage next = new BufferedImage(width, height, imageType);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+
+        return current;
+    }
+
+    /**
+     * Applies an EXIF orientation (1-8) by remapping pixels
+     */
+    private BufferedImage orient(BufferedImage source, int orientation) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        boolean swap = orientation >= 5;
+        BufferedImage target = new BufferedImage(swap ? height : width, swap ? width : height, source.getType());
+        WritableRaster sourceRaster = source.getRaster();
+        WritableRaster targetRaster = target.getRaster();
+        int bands = sourceRaster.getNumBands();
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int targetX;
+                int targetY;
+                switch (orientation) {
+                    case 2 -> { targetX = width - 1 - x; targetY = y; }
+                    case 3 -> { targetX = width - 1 - x; targetY = height - 1 - y; }
+                    case 4 -> { targetX = x; targetY = height - 1 - y; }
+                    case 5 -> { targetX = y; targetY = x; }
+                    case 6 -> { targetX = height - 1 - y; targetY = x; }
+                    case 7 -> { targetX = height - 1 - y; targetY = width - 1 - x; }
+                    case 8 -> { targetX = y; targetY = width - 1 - x; }
+                    default -> { targetX = x; targetY = y; }
+                }
+                for (int band = 0; band < bands; band++) {
+                    targetRaster.setSample(targetX, targetY, band, sourceRaster.getSample(x, y, band));
+                }
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Crops to the bright paper region: pixels above the Otsu threshold are treated as paper,
+     * and rows/columns that are mostly paper define the receipt bounding box.
+     * The crop is skipped when the detected box is implausibly small or covers nearly everything.
+     * Color images are measured on a luminance copy and cropped in color.
+     */
+    private BufferedImage cropToReceipt(BufferedImage image, List<String> steps) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[] pixels = ((DataBufferByte) luminance(image).getRaster().getDataBuffer()).getData();
+        int threshold = otsuThreshold(pixels);
+
+        int top = -1;
+        int bottom = -1;
+        for (int y = 0; y < height; y++) {
+            int bright = 0;
+            for (int x = 0; x < width; x++) {
+                if ((pixels[y * width + x] & 0xFF) > threshold) {
+                    bright++;
+                }
+            }
+            if (bright * 4 >= width) {
+                if (top < 0) {
+                    top = y;
+                }
+                bottom = y;
+            }
+        }
+        if (top < 0) {
+            return image;
+        }
+
+        int left = -1;
+        int right = -1;
+        int rows = bottom - top + 1;
+        for (int x = 0; x < width; x++) {
+            int bright = 0;
+            for (int y = top; y <= bottom; y++) {
+                if ((pixels[y * width + x] & 0xFF) > threshold) {
+                    bright++;
+                }
+            }
+            if (bright * 2 >= rows) {
+                if (left < 0) {
+                    left = x;
+                }
+                right = x;
+            }
+        }
+        if (left < 0) {
+            return image;
+        }
+
+        long boxArea = (long) (right - left + 1) * rows;
+        long area = (long) width * height;
+        if (boxArea < area / 5 || boxArea > area * 9 / 10) {
+            return image;
+        }
+
+        int marginX = width / 50;
+        int marginY = height / 50;
+        int x0 = Math.max(0, left - marginX);
+        int y0 = Math.max(0, top - marginY);
+        int x1 = Math.min(width - 1, right + marginX);
+        int y1 = Math.min(height - 1, bottom + marginY);
+
+        steps.add("crop");
+        BufferedImage cropped = new BufferedImage(x1 - x0 + 1, y1 - y0 + 1, image.getType());
+        Graphics2D graphics = cropped.createGraphics();
+        try {
+            graphics.drawImage(image.getSubimage(x0, y0, x1 - x0 + 1, y1 - y0 + 1), 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return cropped;
+    }
+
+    private static BufferedImage luminance(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            return image;
+        }
+        BufferedImage gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = gray.createGraphics();
+        try {
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return gray;
+    }
+
+    private static int otsuThreshold(byte[] pixels) {
+        int[] histogram = new int[256];
+        for (byte pixel : pixels) {
+            histogram[pixel & 0xFF]++;
+        }
+
+        long total = pixels.length;
+        long sum = 0;
+        for (int i = 0; i < 256; i++) {
+            sum += (long) i * histogram[i];
+        }
+
+        long sumBackground = 0;
+        long weightBackground = 0;
+        double bestVariance = -1;
+        int threshold = 127;
+        for (int i = 0; i < 256; i++) {
+            weightBackground += histogram[i];
+            if (weightBackground == 0) {
+                continue;
+            }
+            long weightForeground = total - weightBackground;
+            if (weightForeground == 0) {
+                break;
+            }
+            sumBackground += (long) i * histogram[i];
+            double meanBackground = (double) sumBackground / weightBackground;
+            double meanForeground = (double) (sum - sumBackground) / weightForeground;
+            double variance = (double) weightBackground * weightForeground
+                    * (meanBackground - meanForeground) * (meanBackground - meanForeground);
+            if (variance > bestVariance) {
+                bestVariance = variance;
+                threshold = i;
+            }
+        }
+        return threshold;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            throw new IOException("No JPEG writer available");
+        }
+
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(output)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(imageOutput);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Reads the EXIF orientation tag from a JPEG's APP1 segment without decoding the image.
+     * Returns 1 (normal) when there is no EXIF data or it cannot be parsed.
+     */
+    static int readExifOrientation(byte[] data) {
+        int position = 2;
+        while (position + 4 <= data.length) {
+            if (u8(data, position) != 0xFF) {
+                return 1;
+            }
+            int marker = u8(data, position + 1);
+            if (marker == 0xDA || marker == 0xD9) {
+                // Start of scan / end of image: no more metadata segments
+                return 1;
+            }
+            int segmentLength = readUnsignedShort(data, position + 2, false);
+            int segmentStart = position + 4;
+            int segmentEnd = Math.min(data.length, position + 2 + segmentLength);
+            if (marker == 0xE1 && segmentStart + 6 <= segmentEnd
+                    && data[segmentStart] == 'E' && data[segmentStart + 1] == 'x'
+                    && data[segmentStart + 2] == 'i' && data[segmentStart + 3] == 'f') {
+                return readTiffOrientation(data, segmentStart + 6, segmentEnd);
+            }
+            position += 2 + segmentLength;
+        }
+        return 1;
+    }
+
+    private static int readTiffOrientation(byte[] data, int tiffStart, int end) {
+        if (tiffStart + 8 > end) {
+            return 1;
+        }
+        boolean littleEndian = data[tiffStart] == 'I' && data[tiffStart + 1] == 'I';
+        if (!littleEndian && !(data[tiffStart] == 'M' && data[tiffStart + 1] == 'M')) {
+            return 1;
+        }
+
+        long ifdOffset = readUnsignedInt(data, tiffStart + 4, littleEndian);
+        if (ifdOffset < 8 || tiffStart + ifdOffset + 2 > end) {
+            return 1;
+        }
+        int ifdStart = (int) (tiffStart + ifdOffset);
+        int entries = readUnsignedShort(data, ifdStart, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifdStart + 2 + i * 12;
+            if (entry + 12 > end) {
+                break;
+            }
+            if (readUnsignedShort(data, entry, littleEndian) == EXIF_ORIENTATION_TAG) {
+                int orientation = readUnsignedShort(data, entry + 8, littleEndian);
+                return orientation >= 1 && orientation <= 8 ? orientation : 1;
+            }
+        }
+        return 1;
+    }
+
+    private static String toJpegFilename(String filename) {
+        if (filename == null || filename.isBlank()) {
+            return "receipt.jpg";
+        }
+        int dot = filename.lastIndexOf('.');
+        return (dot > 0 ? filename.substring(0, dot) : filename) + ".jpg";
+    }
+
+    private static int u8(byte[] data, int index) {
+        return data[index] & 0xFF;
+    }
+
+    private static int readUnsignedShort(byte[] data, int index, boolean littleEndian) {
+        return littleEndian
+                ? u8(data, index) | (u8(data, index + 1) << 8)
+                : (u8(data, index) << 8) | u8(data, index + 1);
+    }
+
+    private static long readUnsignedInt(byte[] data, int index, boolean littleEndian) {
+        return littleEndian
+                ? (long) readUnsignedShort(data, index, true) | ((long) readUnsignedShort(data, index + 2, true) << 16)
+                : ((long) readUnsignedShort(data, index, false) << 16) | readUnsignedShort(data, index + 2, false);
+    }
+}
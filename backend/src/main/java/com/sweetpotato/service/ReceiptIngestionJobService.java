@@ -0,0 +1,397 @@
+package com.sweetpotato.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetpotato.dto.fuel.ExtractedFuelData;
+import com.sweetpotato.dto.fuel.FuelReceiptResponse;
+import com.sweetpotato.dto.fuel.FuelReceiptUploadRequest;
+import com.sweetpotato.dto.fuel.ReceiptIngestionJobResponse;
+import com.sweetpotato.dto.fuel.ReceiptIngestionJobResponse.Status;
+import com.sweetpotato.entity.ReceiptIngestionJob;
+import com.sweetpotato.entity.User;
+import com.sweetpotato.repository.ReceiptIngestionJobRepository;
+import com.sweetpotato.util.Deadline;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs receipt uploads as background jobs and keeps their status for polling or SSE.
+ * A job runs on the node that accepted it, which also streams its partial results. Every status change is
+ * written to receipt_ingestion_jobs as well, so polls and SSE subscriptions that land on another node
+ * (e.g. after an idempotent replay of the 202) can follow it too. Finished jobs are evicted after the
+ * retention period.
+ */
+@Service
+@Slf4j
+public class ReceiptIngestionJobService {
+
+    private final FuelRecordService fuelRecordService;
+    private final AsyncTaskExecutor executor;
+    private final ReceiptIngestionJobRepository jobRepository;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    @Value("${app.receipts.ingestion.timeout-seconds:60}")
+    private long jobTimeoutSeconds;
+
+    @Value("${app.receipts.ingestion.retention-minutes:15}")
+    private long retentionMinutes;
+
+    @Value("${app.receipts.ingestion.sse-timeout-seconds:60}")
+    private long sseTimeoutSeconds;
+
+    // A subscriber whose write of a partial result takes longer than this is disconnected
+    @Value("${app.receipts.ingestion.sse-send-timeout-ms:2000}")
+    private long sseSendTimeoutMs;
+
+    // How often an SSE subscription to a job running on another node re-reads its stored status
+    @Value("${app.receipts.ingestion.remote-poll-ms:1000}")
+    private long remotePollMs;
+
+    public ReceiptIngestionJobService(FuelRecordService fuelRecordService,
+                                      @Qualifier("receiptIngestionExecutor") AsyncTaskExecutor executor,
+                                      ReceiptIngestionJobRepository jobRepository,
+                                      ObjectMapper objectMapper) {
+        this.fuelRecordService = fuelRecordService;
+        this.executor = executor;
+        this.jobRepository = jobRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Queues the upload for background processing.
+     * @param onFinished callback run on the worker thread with the final job status
+     * @throws java.util.concurrent.RejectedExecutionException if the ingestion queue is full
+     */
+    public ReceiptIngestionJobResponse submit(FuelReceiptUploadRequest request, User user,
+                                              Consumer<ReceiptIngestionJobResponse> onFinished) {
+        Job job = new Job(UUID.randomUUID().toString(), user.getId());
+        store(job);
+        jobs.put(job.id, job);
+
+        try {
+            executor.execute(() -> {
+                try {
+                    run(job, request, user);
+                } finally {
+                    onFinished.accept(job.toResponse());
+                }
+            });
+        } catch (RuntimeException e) {
+            jobs.remove(job.id);
+            throw e;
+        }
+
+        log.info("Queued receipt ingestion job {} for user: {}", job.id, user.getId());
+        return job.toResponse();
+    }
+
+    private void run(Job job, FuelReceiptUploadRequest request, User user) {
+        job.status = Status.PROCESSING;
+        store(job);
+        try {
+            Deadline deadline = Deadline.in(Duration.ofSeconds(jobTimeoutSeconds));
+            OcrProgressListener progress = partial -> publishPreview(job, partial);
+            FuelReceiptResponse result = fuelRecordService.processReceiptUpload(request, user)
+                    .contextWrite(progress::putInto)
+                    .contextWrite(deadline::putInto)
+                    .block(deadline.remaining());
+            if (result == null) {
+                finish(job, Status.FAILED, null, "Receipt processing returned no result");
+            } else {
+                finish(job, Status.COMPLETED, result, null);
+            }
+        } catch (Exception e) {
+            log.error("Receipt ingestion job {} failed", job.id, e);
+            finish(job, Status.FAILED, null, "Receipt processing failed");
+        }
+    }
+
+    /**
+     * Shares fields that streaming OCR has already extracted. Nothing is saved until the job finishes,
+     * so the preview is advisory and may still change (or the job may fail).
+     *
+     * Runs on the OCR client's I/O thread, so it only records the preview; the SSE writes, which block on
+     * the client's socket, happen on boundedElastic. A subscriber still stuck on an earlier write is dropped.
+     */
+    private void publishPreview(Job job, ExtractedFuelData partial) {
+        if (job.isFinished()) {
+            return;
+        }
+        job.preview = partial;
+
+        long now = System.nanoTime();
+        for (SseEmitter emitter : job.emitters) {
+            Long sendingSince = job.previewSends.putIfAbsent(emitter, now);
+            if (sendingSince == null) {
+                Schedulers.boundedElastic().schedule(() -> deliverPreviews(job, emitter));
+            } else if (now - sendingSince > TimeUnit.MILLISECONDS.toNanos(sseSendTimeoutMs)
+                    && job.emitters.remove(emitter)) {
+                log.debug("Dropping slow SSE subscriber of job {}", job.id);
+                // Completing waits for the stuck write, so it must not happen here either
+                Schedulers.boundedElastic().schedule(emitter::complete);
+            }
+            // Otherwise the running delivery picks up the newest preview when its write returns
+        }
+    }
+
+    // Sends the newest preview until the subscriber has caught up; partials that arrive meanwhile are coalesced
+    private void deliverPreviews(Job job, SseEmitter emitter) {
+        ExtractedFuelData sent = null;
+        try {
+            ExtractedFuelData latest;
+            while (!job.isFinished() && job.emitters.contains(emitter) && (latest = job.preview) != sent) {
+                job.previewSends.put(emitter, System.nanoTime());
+                // SseEmitter serializes concurrent sends, so this can run alongside finish()
+                emitter.send(SseEmitter.event().name("partial").data(latest));
+                sent = latest;
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Could not deliver partial result for job {}: {}", job.id, e.getMessage());
+            job.emitters.remove(emitter);
+            emitter.completeWithError(e);
+            return;
+        } finally {
+            job.previewSends.remove(emitter);
+        }
+
+        // A partial published between the last check and the removal above found the delivery still running
+        if (job.preview != sent && !job.isFinished() && job.emitters.contains(emitter)
+                && job.previewSends.putIfAbsent(emitter, System.nanoTime()) == null) {
+            Schedulers.boundedElastic().schedule(() -> deliverPreviews(job, emitter));
+        }
+    }
+
+    private void finish(Job job, Status status, FuelReceiptResponse result, String error) {
+        job.result = result;
+        job.error = error;
+        job.completedAt = LocalDateTime.now();
+        job.status = status;
+        // Stored before onFinished replaces the idempotent 202, so a replayed job id resolves on every node
+        store(job);
+        log.info("Receipt ingestion job {} finished with status {}", job.id, status);
+
+        for (SseEmitter emitter : job.emitters) {
+            if (job.emitters.remove(emitter)) {
+                sendFinalEvent(job.id, job.toResponse(), emitter);
+            }
+        }
+    }
+
+    // Best effort: if the write fails, only nodes other than this one see an older status
+    private void store(Job job) {
+        try {
+            jobRepository.save(ReceiptIngestionJob.builder()
+                    .id(job.id)
+                    .userId(job.userId)
+                    .status(job.status)
+                    .result(job.result != null ? objectMapper.writeValueAsString(job.result) : null)
+                    .error(job.error)
+                    .createdAt(job.createdAt)
+                    .completedAt(job.completedAt)
+                    .build());
+        } catch (JsonProcessingException | DataAccessException e) {
+            log.warn("Could not store status of receipt ingestion job {}", job.id, e);
+        }
+    }
+
+    /**
+     * Gets the job status if the job exists and belongs to the user. Jobs running on another node are read
+     * from the shared table and come without a preview.
+     */
+    public Optional<ReceiptIngestionJobResponse> getJob(String jobId, Long userId) {
+        Optional<Job> job = findJob(jobId, userId);
+        if (job.isPresent()) {
+            return job.map(Job::toResponse);
+        }
+        return findStoredJob(jobId, userId);
+    }
+
+    /**
+     * Opens an SSE stream that emits the current job status, any partial OCR results as "partial" events,
+     * and the final job status once before completing. Partial results are only streamed by the node running
+     * the job; elsewhere the stream polls the shared table until the job finishes.
+     */
+    public Optional<SseEmitter> subscribe(String jobId, Long userId) {
+        Optional<Job> jobOpt = findJob(jobId, userId);
+        if (jobOpt.isEmpty()) {
+            return findStoredJob(jobId, userId).map(stored -> subscribeStored(jobId, userId, stored));
+        }
+
+        Job job = jobOpt.get();
+        SseEmitter emitter = new SseEmitter(Duration.ofSeconds(sseTimeoutSeconds).toMillis());
+        emitter.onCompletion(() -> job.emitters.remove(emitter));
+        emitter.onTimeout(() -> job.emitters.remove(emitter));
+        job.emitters.add(emitter);
+
+        try {
+            emitter.send(SseEmitter.event().name("status").data(job.toResponse()));
+        } catch (IOException e) {
+            job.emitters.remove(emitter);
+            emitter.completeWithError(e);
+            return Optional.of(emitter);
+        }
+
+        // The job may have finished between registration and now; whoever removes the emitter sends the result
+        if (job.isFinished() && job.emitters.remove(emitter)) {
+            sendFinalEvent(job.id, job.toResponse(), emitter);
+        }
+        return Optional.of(emitter);
+    }
+
+    private SseEmitter subscribeStored(String jobId, Long userId, ReceiptIngestionJobResponse current) {
+        SseEmitter emitter = new SseEmitter(Duration.ofSeconds(sseTimeoutSeconds).toMillis());
+        try {
+            emitter.send(SseEmitter.event().name("status").data(current));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        if (isFinished(current.getStatus())) {
+            sendFinalEvent(jobId, current, emitter);
+            return emitter;
+        }
+
+        Disposable poll = Flux.interval(Duration.ofMillis(remotePollMs), Schedulers.boundedElastic())
+                .concatMap(tick -> Mono.fromCallable(() -> findStoredJob(jobId, userId))
+                        .onErrorResume(DataAccessException.class, e -> {
+                            log.debug("Could not read status of receipt ingestion job {}: {}", jobId, e.getMessage());
+                            return Mono.empty();
+                        }))
+                // A job evicted meanwhile ends the stream without a final event
+                .filter(stored -> stored.map(response -> isFinished(response.getStatus())).orElse(true))
+                .next()
+                .subscribe(stored -> stored.ifPresentOrElse(response -> sendFinalEvent(jobId, response, emitter),
+                        emitter::complete));
+        emitter.onCompletion(poll::dispose);
+        emitter.onTimeout(poll::dispose);
+        emitter.onError(error -> poll.dispose());
+        return emitter;
+    }
+
+    private void sendFinalEvent(String jobId, ReceiptIngestionJobResponse response, SseEmitter emitter) {
+        try {
+            String eventName = response.getStatus() == Status.COMPLETED ? "completed" : "failed";
+            emitter.send(SseEmitter.event().name(eventName).data(response));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Could not deliver final event for job {}: {}", jobId, e.getMessage());
+            emitter.completeWithError(e);
+        }
+    }
+
+    private Optional<Job> findJob(String jobId, Long userId) {
+        Job job = jobs.get(jobId);
+        if (job == null || !job.userId.equals(userId)) {
+            return Optional.empty();
+        }
+        return Optional.of(job);
+    }
+
+    private Optional<ReceiptIngestionJobResponse> findStoredJob(String jobId, Long userId) {
+        return jobRepository.findByIdAndUserId(jobId, userId).map(this::toResponse);
+    }
+
+    private ReceiptIngestionJobResponse toResponse(ReceiptIngestionJob stored) {
+        ReceiptIngestionJobResponse response = ReceiptIngestionJobResponse.builder()
+                .jobId(stored.getId())
+                .status(stored.getStatus())
+                .createdAt(stored.getCreatedAt())
+                .completedAt(stored.getCompletedAt())
+                .error(stored.getError())
+                .build();
+        if (stored.getResult() != null) {
+            try {
+                response.setResult(objectMapper.readValue(stored.getResult(), FuelReceiptResponse.class));
+            } catch (JsonProcessingException e) {
+                log.warn("Stored result of receipt ingestion job {} is not valid JSON", stored.getId());
+            }
+        }
+        // Still unfinished after the retention period: the node running it went away
+        if (!isFinished(stored.getStatus())
+                && stored.getCreatedAt().isBefore(LocalDateTime.now().minusMinutes(retentionMinutes))) {
+            response.setStatus(Status.FAILED);
+            response.setError("Receipt processing was interrupted");
+        }
+        return response;
+    }
+
+    /**
+     * Evicts finished jobs older than the retention period
+     */
+    @Scheduled(fixedDelayString = "${app.receipts.ingestion.eviction-interval-ms:60000}")
+    public void evictFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        int before = jobs.size();
+        jobs.values().removeIf(job -> job.isFinished() && job.completedAt.isBefore(cutoff));
+        int evicted = before - jobs.size();
+        // Interrupted jobs stay visible for one retention period after they are reported as failed
+        int stored = jobRepository.deleteExpired(cutoff, cutoff.minusMinutes(retentionMinutes));
+        if (evicted > 0 || stored > 0) {
+            log.debug("Evicted {} finished receipt ingestion jobs, {} stored", evicted, stored);
+        }
+    }
+
+    private static boolean isFinished(Status status) {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    private static class Job {
+        final String id;
+        final Long userId;
+        final LocalDateTime createdAt = LocalDateTime.now();
+        final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+        // Emitters with a partial-result delivery in progress, and when their current write started
+        final Map<SseEmitter, Long> previewSends = new ConcurrentHashMap<>();
+
+        volatile Status status = Status.PENDING;
+        volatile LocalDateTime completedAt;
+        volatile ExtractedFuelData preview;
+        volatile FuelReceiptResponse result;
+        volatile String error;
+
+        Job(String id, Long userId) {
+            this.id = id;
+            this.userId = userId;
+        }
+
+        boolean isFinished() {
+            return ReceiptIngestionJobService.isFinished(status);
+        }
+
+        ReceiptIngestionJobResponse toResponse() {
+            return ReceiptIngestionJobResponse.builder()
+                    .jobId(id)
+                    .status(status)
+                    .createdAt(createdAt)
+                    .completedAt(completedAt)
+                    // A late partial from a hedged OCR call may land after the job finished
+                    .preview(isFinished() ? null : preview)
+                    .result(result)
+                    .error(error)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.sweetpotato.service;
+
+import com.sweetpotato.dto.fuel.ExtractedFuelData;
+import com.sweetpotato.dto.fuel.ReceiptImage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Receipt OCR pipeline in front of the configured {@link OcrEngine}: result cache, then retries,
+ * hedging, circuit breaking and admission control around each engine call.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ReceiptOcrService {
+
+    private final OcrEngine ocrEngine;
+    private final S3UploadService s3UploadService;
+    private final OcrResilienceService ocrResilienceService;
+    private final OcrResultCache ocrResultCache;
+    private final OcrBatcher ocrBatcher;
+    private final OcrAdmissionService ocrAdmissionService;
+
+    @Value("${app.ocr.attempt-timeout-seconds:12}")
+    private long attemptTimeoutSeconds;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpEngine() {
+        log.info("Using OCR engine: {} (prompt version {})", ocrEngine.getModel(), ocrEngine.getPromptVersion());
+        ocrEngine.warmUp();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void purgeStaleCachedResults() {
+        try {
+            ocrResultCache.purgeStale(ocrEngine.getModel(), ocrEngine.getPromptVersion());
+        } catch (Exception e) {
+            log.warn("Failed to purge stale cached OCR results", e);
+        }
+    }
+
+    /**
+     * Runs OCR on a receipt that is already stored in S3 (e.g. re-processing).
+     * The image is downloaded from S3 first.
+     */
+    public Mono<ExtractedFuelData> processReceiptImage(String imageUrl) {
+        log.info("Processing stored fuel receipt image with {}: {}", ocrEngine.getModel(), imageUrl);
+
+        return downloadImage(imageUrl)
+                .flatMap(image -> cachedOcr(image, determineImageFormat(imageUrl)))
+                .doOnError(error -> log.error("Error running receipt OCR", error));
+    }
+
+    /**
+     * Runs OCR directly on the uploaded bytes, without a round trip through S3
+     */
+    public Mono<ExtractedFuelData> processReceiptImage(ReceiptImage image) {
+        log.info("Processing uploaded fuel receipt image with {}: {} ({} bytes)",
+                ocrEngine.getModel(), image.getOriginalFilename(), image.getSize());
+
+        return cachedOcr(image, determineImageFormat(image))
+                .doOnError(error -> log.error("Error running receipt OCR", error));
+    }
+
+    // Identical images (re-uploads, re-processing, receipts shared between accounts) are served from the cache.
+    // The batcher caches what it extracts itself, including answers that arrive after the caller gave up.
+    private Mono<ExtractedFuelData> cachedOcr(ReceiptImage image, String format) {
+        return Mono.deferContextual(context -> {
+            String imageDigest = image.contentSha256();
+            String model = ocrEngine.getModel();
+            String promptVersion = ocrEngine.getPromptVersion();
+            boolean batched = ocrBatcher.isRequested(context);
+            return ocrResultCache.get(imageDigest, model, promptVersion)
+                    .switchIfEmpty(Mono.defer(() -> extractResiliently(image, format)
+                            .doOnNext(extractedData -> {
+                                if (!batched) {
+                                    ocrResultCache.put(imageDigest, model, promptVersion, extractedData);
+                                }
+                            })));
+        });
+    }
+
+    // Retries, hedging, circuit breaking and the bulkhead; each attempt is capped by the request deadline.
+    // Bulk pipelines that allow batching share multi-image calls instead, and background work has to stay
+    // within the token budget.
+    private Mono<ExtractedFuelData> extractResiliently(ReceiptImage image, String format) {
+        return Mono.deferContextual(context -> {
+            Supplier<Mono<ExtractedFuelData>> extraction = () -> ocrBatcher.isRequested(context)
+                    ? ocrBatcher.extract(image, format)
+                    : ocrResilienceService.execute(() -> ocrEngine.extract(image, format),
+                            Duration.ofSeconds(attemptTimeoutSeconds));
+            return OcrWorkload.isBackground(context)
+                    ? ocrAdmissionService.admitBackground(OcrWorkload.userId(context), extraction)
+                    : extraction.get();
+        });
+    }
+
+    private Mono<ReceiptImage> downloadImage(String imageUrl) {
+        return Mono.fromCallable(() -> s3UploadService.extractKeyFromUrl(imageUrl))
+                .doOnNext(s3Key -> log.info("Downloading image from S3 with key: {}", s3Key))
+                .flatMap(s3UploadService::downloadReceiptImageAsync)
+                .doOnError(error -> log.error("Error in downloadImage: {}", error.getMessage()));
+    }
+
+    private String determineImageFormat(ReceiptImage image) {
+        String contentType = image.getContentType();
+        if (contentType != null && contentType.startsWith("image/") && contentType.length() > "image/".length()) {
+            return contentType.substring("image/".length());
+        }
+        return determineImageFormat(image.getOriginalFilename() != null ? image.getOriginalFilename() : "");
+    }
+
+    private String determineImageFormat(String imageUrl) {
+        String lowerUrl = imageUrl.toLowerCase();
+        if (lowerUrl.contains(".png")) {
+            return "png";
+        } else if (lowerUrl.contains(".gif")) {
+            return "gif";
+        } else if (lowerUrl.contains(".webp")) {
+            return "webp";
+        } else {
+            return "jpeg"; // default
+        }
+    }
+}
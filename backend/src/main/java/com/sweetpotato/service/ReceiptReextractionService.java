@@ -0,0 +1,388 @@
+package com.sweetpotato.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetpotato.dto.fuel.ExtractedFuelData;
+import com.sweetpotato.dto.fuel.ReceiptReextractionReport;
+import com.sweetpotato.dto.fuel.ReceiptReextractionRunResponse;
+import com.sweetpotato.entity.FuelRecord;
+import com.sweetpotato.entity.ReceiptReextractionRun;
+import com.sweetpotato.entity.ReceiptReextractionRun.Status;
+import com.sweetpotato.repository.FuelRecordRepository;
+import com.sweetpotato.repository.ReceiptReextractionRunRepository;
+import com.sweetpotato.util.ThrottledChunkRunner;
+import com.sweetpotato.util.ThrottledChunkRunner.Chunk;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Re-runs the current response parsing and field normalization over the model output stored with every
+ * fuel record, so parser fixes reach old receipts without paying for OCR again.
+ *
+ * A run walks the records in id order, one keyset chunk at a time and at a capped rate. Each chunk's changes
+ * are written in one JDBC batch in the same transaction as the run's checkpoint, so a stopped run resumes
+ * after the last committed chunk. A dry run only builds the report.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ReceiptReextractionService {
+
+    private static final String UPDATE_SQL = "UPDATE fuel_records SET station_name = ?, station_brand = ?, "
+            + "fuel_type = ?, amount = ?, liters = ?, price_per_liter = ?, location = ?, purchase_date = ?, "
+            + "extracted_data = ?, updated_at = ? WHERE id = ? AND extracted_data = ?";
+
+    private static final int[] UPDATE_TYPES = {Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.NUMERIC,
+            Types.NUMERIC, Types.NUMERIC, Types.VARCHAR, Types.TIMESTAMP, Types.VARCHAR, Types.TIMESTAMP,
+            Types.BIGINT, Types.VARCHAR};
+
+    // Re-derived record fields, in UPDATE_SQL order. Fields the user can enter at upload are only replaced
+    // while they still hold what the old extraction produced; the rest always come from OCR.
+    private static final List<RecordField> FIELDS = List.of(
+            new RecordField("stationName", FuelRecord::getStationName, true),
+            new RecordField("stationBrand", FuelRecord::getStationBrand, true),
+            new RecordField("fuelType", FuelRecord::getFuelType, false),
+            new RecordField("amount", FuelRecord::getAmount, false),
+            new RecordField("liters", FuelRecord::getLiters, false),
+            new RecordField("pricePerLiter", FuelRecord::getPricePerLiter, false),
+            new RecordField("location", FuelRecord::getLocation, true),
+            new RecordField("purchaseDate", FuelRecord::getPurchaseDate, true));
+
+    private static final int AMOUNT = 3;
+    private static final int LITERS = 4;
+    private static final int PRICE_PER_LITER = 5;
+
+    private final FuelRecordRepository fuelRecordRepository;
+    private final ReceiptReextractionRunRepository runRepository;
+    private final FuelRecordService fuelRecordService;
+    private final MistralResponseParser responseParser;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.receipts.reextraction.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${app.receipts.reextraction.records-per-second:100}")
+    private int recordsPerSecond;
+
+    @Value("${app.receipts.reextraction.report-samples:50}")
+    private int reportSamples;
+
+    @Value("${app.receipts.reextraction.stale-after-minutes:10}")
+    private long staleAfterMinutes;
+
+    private final ThrottledChunkRunner runner = new ThrottledChunkRunner("Re-extraction run");
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock
+    private Long activeRunId;
+
+    /**
+     * Starts a run over all records with stored OCR output
+     *
+     * @throws IllegalStateException if a run is already in progress
+     */
+    public ReceiptReextractionRunResponse start(boolean dryRun, String requestedBy) {
+        ReceiptReextractionReport report = new ReceiptReextractionReport();
+        ReceiptReextractionRun run = ReceiptReextractionRun.builder()
+                .status(Status.RUNNING)
+                .dryRun(dryRun)
+                .requestedBy(requestedBy)
+                .lastRecordId(0L)
+                .report(writeReport(report))
+                .build();
+        return launch(run, report);
+    }
+
+    /**
+     * Continues a stopped run from its last checkpoint, with the same dry-run setting
+     *
+     * @throws IllegalStateException if the run has completed or is still in progress
+     */
+    public Optional<ReceiptReextractionRunResponse> resume(Long runId) {
+        return runRepository.findById(runId).map(run -> {
+            if (run.getStatus() == Status.COMPLETED || (run.getStatus() == Status.RUNNING && !isStale(run))) {
+                throw new IllegalStateException("Re-extraction run " + runId + " is " + run.getStatus());
+            }
+            run.setStatus(Status.RUNNING);
+            run.setError(null);
+            run.setFinishedAt(null);
+            return launch(run, readReport(run));
+        });
+    }
+
+    /**
+     * Stops the run after its current chunk
+     *
+     * @return false if the run is not in progress on this instance
+     */
+    public boolean cancel(Long runId) {
+        lock.lock();
+        try {
+            return runId.equals(activeRunId) && runner.cancel();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Optional<ReceiptReextractionRunResponse> getRun(Long runId) {
+        return runRepository.findById(runId).map(run -> toResponse(run, readReport(run)));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        runner.shutdown();
+    }
+
+    private ReceiptReextractionRunResponse launch(ReceiptReextractionRun run, ReceiptReextractionReport report) {
+        lock.lock();
+        try {
+            if (activeRunId != null) {
+                throw new IllegalStateException("Re-extraction run " + activeRunId + " is already in progress");
+            }
+            // A run another instance stopped checkpointing long ago died with it
+            for (ReceiptReextractionRun other : runRepository.findByStatus(Status.RUNNING)) {
+                if (other.getId().equals(run.getId())) {
+                    continue;
+                }
+                if (!isStale(other)) {
+                    throw new IllegalStateException("Re-extraction run " + other.getId() + " is already in progress");
+                }
+                other.setStatus(Status.INTERRUPTED);
+                runRepository.save(other);
+            }
+
+            ReceiptReextractionRun saved = runRepository.save(run);
+            activeRunId = saved.getId();
+            runner.start("receipt-reextraction-" + saved.getId(), saved.getLastRecordId(), recordsPerSecond,
+                    afterId -> processChunk(saved, report, afterId),
+                    (outcome, error) -> finish(saved.getId(), report, Status.valueOf(outcome.name()), error));
+            log.info("Re-extraction run {} started after record {} (dry run: {})",
+                    saved.getId(), saved.getLastRecordId(), saved.isDryRun());
+            // The worker keeps updating the live report
+            return toResponse(saved, readReport(saved));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Chunk processChunk(ReceiptReextractionRun run, ReceiptReextractionReport report, long afterId) {
+        List<FuelRecord> records = fuelRecordRepository.findWithExtractedDataAfter(afterId,
+                PageRequest.of(0, chunkSize));
+        if (records.isEmpty()) {
+            return null;
+        }
+
+        ReceiptReextractionReport chunk = new ReceiptReextractionReport();
+        List<Object[]> updates = new ArrayList<>();
+        for (FuelRecord record : records) {
+            Object[] update = reextract(record, chunk);
+            if (update != null) {
+                updates.add(update);
+            }
+        }
+        long lastRecordId = records.get(records.size() - 1).getId();
+        commitChunk(run, lastRecordId, run.isDryRun() ? List.of() : updates, chunk, report);
+        return new Chunk(records.size(), lastRecordId);
+    }
+
+    // The chunk's row updates and the checkpoint commit together, so a resumed run neither skips nor repeats work
+    private void commitChunk(ReceiptReextractionRun run, long lastRecordId, List<Object[]> updates,
+                             ReceiptReextractionReport chunk, ReceiptReextractionReport report) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!updates.isEmpty()) {
+                for (int count : jdbcTemplate.batchUpdate(UPDATE_SQL, updates, UPDATE_TYPES)) {
+                    if (count == 0) {
+                        chunk.setConflicts(chunk.getConflicts() + 1);
+                    } else if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                        chunk.setUpdated(chunk.getUpdated() + 1);
+                    }
+                }
+            }
+            report.add(chunk, reportSamples);
+            run.setLastRecordId(lastRecordId);
+            run.setReport(writeReport(report));
+            runRepository.save(run);
+        });
+    }
+
+    private void finish(Long runId, ReceiptReextractionReport report, Status status, String error) {
+        try {
+            // Reloaded, so a chunk that failed to commit is not recorded as done
+            runRepository.findById(runId).ifPresent(run -> {
+                run.setStatus(status);
+                run.setError(error);
+                run.setFinishedAt(LocalDateTime.now());
+                runRepository.save(run);
+            });
+        } catch (DataAccessException e) {
+            log.error("Failed to record the end of re-extraction run {}", runId, e);
+        } finally {
+            lock.lock();
+            try {
+                activeRunId = null;
+            } finally {
+                lock.unlock();
+            }
+        }
+        log.info("Re-extraction run {} {}: scanned={}, changed={}, updated={}, skipped={}, failed={}, conflicts={}",
+                runId, status, report.getScanned(), report.getChanged(), report.getUpdated(), report.getSkipped(),
+                report.getFailed(), report.getConflicts());
+    }
+
+    /**
+     * Re-parses one record's stored model output and diffs the result against the record
+     *
+     * @return the UPDATE_SQL parameters, or null if nothing would change
+     */
+    private Object[] reextract(FuelRecord record, ReceiptReextractionReport chunk) {
+        chunk.setScanned(chunk.getScanned() + 1);
+        ExtractedFuelData stored = readStored(record);
+        String rawText = stored != null ? stored.getRawText() : null;
+        if (rawText == null || !MistralResponseParser.stripCodeFences(rawText).startsWith("{")) {
+            chunk.setSkipped(chunk.getSkipped() + 1);
+            return null;
+        }
+
+        ExtractedFuelData fresh;
+        try {
+            fresh = responseParser.reparse(rawText);
+        } catch (IOException | RuntimeException e) {
+            log.debug("Stored OCR output of record {} cannot be re-parsed: {}", record.getId(), e.getMessage());
+            chunk.setFailed(chunk.getFailed() + 1);
+            return null;
+        }
+
+        FuelRecord before = fuelRecordService.toRecordFields(stored);
+        FuelRecord after = fuelRecordService.toRecordFields(fresh);
+        Object[] values = new Object[FIELDS.size()];
+        for (int i = 0; i < FIELDS.size(); i++) {
+            RecordField field = FIELDS.get(i);
+            Object current = field.getter().apply(record);
+            Object extracted = field.getter().apply(after);
+            if (!field.userEditable() || sameValue(current, field.getter().apply(before))) {
+                values[i] = extracted;
+            } else {
+                values[i] = current;
+                if (!sameValue(current, extracted)) {
+                    chunk.setKeptUserValues(chunk.getKeptUserValues() + 1);
+                }
+            }
+        }
+        // Price per liter follows amount and liters, as FuelRecord#onUpdate does
+        BigDecimal amount = (BigDecimal) values[AMOUNT];
+        BigDecimal liters = (BigDecimal) values[LITERS];
+        if (amount != null && liters != null && liters.compareTo(BigDecimal.ZERO) > 0) {
+            values[PRICE_PER_LITER] = amount.divide(liters, 3, RoundingMode.HALF_UP);
+        }
+
+        boolean changed = !fresh.equals(stored);
+        for (int i = 0; i < FIELDS.size(); i++) {
+            Object current = FIELDS.get(i).getter().apply(record);
+            if (sameValue(current, values[i])) {
+                continue;
+            }
+            changed = true;
+            String name = FIELDS.get(i).name();
+            chunk.getFieldChanges().merge(name, 1L, Long::sum);
+            if (chunk.getSamples().size() < reportSamples) {
+                chunk.getSamples().add(new ReceiptReextractionReport.FieldChange(record.getId(), name,
+                        Objects.toString(current, null), Objects.toString(values[i], null)));
+            }
+        }
+        if (!changed) {
+            chunk.setUnchanged(chunk.getUnchanged() + 1);
+            return null;
+        }
+        chunk.setChanged(chunk.getChanged() + 1);
+
+        String extractedData = fresh.equals(stored) ? record.getExtractedData() : after.getExtractedData();
+        Object[] update = new Object[UPDATE_TYPES.length];
+        System.arraycopy(values, 0, update, 0, values.length);
+        update[FIELDS.size()] = extractedData;
+        update[FIELDS.size() + 1] = LocalDateTime.now();
+        update[FIELDS.size() + 2] = record.getId();
+        // Optimistic check: skipped if the record was re-processed or deleted since it was read
+        update[FIELDS.size() + 3] = record.getExtractedData();
+        return update;
+    }
+
+    private ExtractedFuelData readStored(FuelRecord record) {
+        try {
+            return objectMapper.readValue(record.getExtractedData(), ExtractedFuelData.class);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private boolean isStale(ReceiptReextractionRun run) {
+        return run.getUpdatedAt() == null
+                || run.getUpdatedAt().isBefore(LocalDateTime.now().minusMinutes(staleAfterMinutes));
+    }
+
+    private String writeReport(ReceiptReextractionReport report) {
+        try {
+            return objectMapper.writeValueAsString(report);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize re-extraction report", e);
+        }
+    }
+
+    private ReceiptReextractionReport readReport(ReceiptReextractionRun run) {
+        if (run.getReport() == null) {
+            return new ReceiptReextractionReport();
+        }
+        try {
+            return objectMapper.readValue(run.getReport(), ReceiptReextractionReport.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Stored report of re-extraction run {} is not valid JSON, starting a new one", run.getId());
+            return new ReceiptReextractionReport();
+        }
+    }
+
+    private static ReceiptReextractionRunResponse toResponse(ReceiptReextractionRun run,
+                                                             ReceiptReextractionReport report) {
+        return ReceiptReextractionRunResponse.builder()
+                .id(run.getId())
+                .status(run.getStatus())
+                .dryRun(run.isDryRun())
+                .requestedBy(run.getRequestedBy())
+                .lastRecordId(run.getLastRecordId())
+                .createdAt(run.getCreatedAt())
+                .updatedAt(run.getUpdatedAt())
+                .finishedAt(run.getFinishedAt())
+                .error(run.getError())
+                .report(report)
+                .build();
+    }
+
+    private static boolean sameValue(Object a, Object b) {
+        if (a instanceof BigDecimal x && b instanceof BigDecimal y) {
+            return x.compareTo(y) == 0;
+        }
+        return Objects.equals(a, b);
+    }
+
+    private record RecordField(String name, Function<FuelRecord, Object> getter, boolean userEditable) {
+    }
+}
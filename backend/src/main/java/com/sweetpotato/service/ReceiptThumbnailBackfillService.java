@@ -0,0 +1,188 @@
+package com.sweetpotato.service;
+
+import com.sweetpotato.dto.fuel.ReceiptThumbnailBackfillResponse;
+import com.sweetpotato.dto.fuel.ReceiptThumbnailBackfillResponse.Status;
+import com.sweetpotato.entity.FuelRecord;
+import com.sweetpotato.repository.FuelRecordRepository;
+import com.sweetpotato.service.ReceiptThumbnailService.Thumbnails;
+import com.sweetpotato.util.ThrottledChunkRunner;
+import com.sweetpotato.util.ThrottledChunkRunner.Chunk;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Generates the missing thumbnails of records stored before thumbnails existed, or whose thumbnails failed
+ * at ingest. A run walks those records in id order, one keyset chunk at a time and at a capped rate,
+ * rendering each chunk's thumbnails in parallel.
+ *
+ * Progress is only kept in memory: a record counts as done once its thumbnail URL is set, so a new run
+ * after a restart simply picks up whatever is still missing.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ReceiptThumbnailBackfillService {
+
+    private final FuelRecordRepository fuelRecordRepository;
+    private final ReceiptThumbnailService receiptThumbnailService;
+    private final S3UploadService s3UploadService;
+
+    @Value("${app.receipts.thumbnails.backfill.chunk-size:100}")
+    private int chunkSize;
+
+    @Value("${app.receipts.thumbnails.backfill.concurrency:4}")
+    private int concurrency;
+
+    @Value("${app.receipts.thumbnails.backfill.records-per-second:20}")
+    private int recordsPerSecond;
+
+    private final ThrottledChunkRunner runner = new ThrottledChunkRunner("Thumbnail backfill");
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock
+    private ReceiptThumbnailBackfillResponse current = ReceiptThumbnailBackfillResponse.builder()
+            .status(Status.IDLE)
+            .build();
+
+    /**
+     * Starts a run over all records with a receipt image but no thumbnails
+     *
+     * @throws IllegalStateException if thumbnails are disabled or a run is already in progress
+     */
+    public ReceiptThumbnailBackfillResponse start(String requestedBy) {
+        if (!receiptThumbnailService.isEnabled()) {
+            throw new IllegalStateException("Receipt thumbnails are disabled");
+        }
+        lock.lock();
+        try {
+            if (current.getStatus() == Status.RUNNING) {
+                throw new IllegalStateException("Thumbnail backfill started by " + current.getRequestedBy()
+                        + " is already in progress");
+            }
+            current = ReceiptThumbnailBackfillResponse.builder()
+                    .status(Status.RUNNING)
+                    .requestedBy(requestedBy)
+                    .startedAt(LocalDateTime.now())
+                    .lastRecordId(0L)
+                    .build();
+            runner.start("receipt-thumbnail-backfill", 0, recordsPerSecond, this::processChunk,
+                    (outcome, error) -> finish(Status.valueOf(outcome.name()), error));
+            log.info("Thumbnail backfill started");
+            return snapshot();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the run after its current chunk
+     *
+     * @return false if no run is in progress
+     */
+    public boolean cancel() {
+        return runner.cancel();
+    }
+
+    /**
+     * The current or last run on this instance
+     */
+    public ReceiptThumbnailBackfillResponse getStatus() {
+        lock.lock();
+        try {
+            return snapshot();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        runner.shutdown();
+    }
+
+    private Chunk processChunk(long afterId) {
+        List<FuelRecord> records = fuelRecordRepository.findMissingThumbnailsAfter(afterId,
+                PageRequest.of(0, chunkSize));
+        if (records.isEmpty()) {
+            return null;
+        }
+
+        List<Tuple2<Long, Thumbnails>> results = Flux.fromIterable(records)
+                .flatMap(record -> receiptThumbnailService.generate(record.getReceiptImageUrl())
+                        .map(thumbnails -> Tuples.of(record.getId(), thumbnails)), concurrency)
+                .collectList()
+                .block();
+
+        int generated = 0;
+        int failed = 0;
+        for (Tuple2<Long, Thumbnails> result : results) {
+            Thumbnails thumbnails = result.getT2();
+            if (thumbnails.thumbnailUrl() == null) {
+                failed++;
+            } else if (fuelRecordRepository.setThumbnails(result.getT1(), thumbnails.thumbnailUrl(),
+                    thumbnails.previewUrl()) > 0) {
+                generated++;
+            } else {
+                // The record was deleted or got thumbnails at ingest meanwhile, so nothing references these
+                deleteThumbnail(thumbnails.thumbnailUrl());
+                deleteThumbnail(thumbnails.previewUrl());
+            }
+        }
+        long lastRecordId = records.get(records.size() - 1).getId();
+        record(records.size(), generated, failed, lastRecordId);
+        return new Chunk(records.size(), lastRecordId);
+    }
+
+    // Failed records keep null thumbnails, so the next run retries them
+    private void record(int scanned, int generated, int failed, long lastRecordId) {
+        lock.lock();
+        try {
+            current.setScanned(current.getScanned() + scanned);
+            current.setGenerated(current.getGenerated() + generated);
+            current.setFailed(current.getFailed() + failed);
+            current.setLastRecordId(lastRecordId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void finish(Status status, String error) {
+        ReceiptThumbnailBackfillResponse finished;
+        lock.lock();
+        try {
+            current.setStatus(status);
+            current.setError(error);
+            current.setFinishedAt(LocalDateTime.now());
+            finished = snapshot();
+        } finally {
+            lock.unlock();
+        }
+        log.info("Thumbnail backfill {}: scanned={}, generated={}, failed={}", status, finished.getScanned(),
+                finished.getGenerated(), finished.getFailed());
+    }
+
+    private ReceiptThumbnailBackfillResponse snapshot() {
+        return current.toBuilder().build();
+    }
+
+    private void deleteThumbnail(String url) {
+        if (url == null) {
+            return;
+        }
+        try {
+            s3UploadService.deleteFile(url);
+        } catch (Exception e) {
+            log.warn("Failed to delete unreferenced receipt thumbnail from S3: {}", url, e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.sweetpotato.service;
+
+import com.sweetpotato.config.PipelineSchedulers;
+import com.sweetpotato.dto.fuel.ReceiptImage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Renders the small and medium receipt previews shown by the history list and the detail screen,
+ * so neither has to load the full-size image, and stores them next to it in S3.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ReceiptThumbnailService {
+
+    private final ReceiptImagePreprocessor receiptImagePreprocessor;
+    private final S3UploadService s3UploadService;
+    private final PipelineSchedulers pipelineSchedulers;
+
+    @Value("${app.receipts.thumbnails.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.receipts.thumbnails.prefix:receipt-thumbnails}")
+    private String prefix;
+
+    @Value("${app.receipts.thumbnails.thumbnail-size:240}")
+    private int thumbnailSize;
+
+    @Value("${app.receipts.thumbnails.preview-size:960}")
+    private int previewSize;
+
+    @Value("${app.receipts.thumbnails.jpeg-quality:0.75}")
+    private float jpegQuality;
+
+    /**
+     * URLs of a receipt's previews; both null when none could be made
+     */
+    public record Thumbnails(String thumbnailUrl, String previewUrl) {
+        public static final Thumbnails NONE = new Thumbnails(null, null);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Renders and uploads both previews. Never fails: an image that cannot be decoded, or an upload error,
+     * gives {@link Thumbnails#NONE} and the record simply keeps showing the full image until a backfill.
+     */
+    public Mono<Thumbnails> generate(ReceiptImage image) {
+        if (!enabled) {
+            return Mono.just(Thumbnails.NONE);
+        }
+
+        return Mono.fromCallable(() -> receiptImagePreprocessor.renderVariants(image, jpegQuality,
+                        thumbnailSize, previewSize))
+                .subscribeOn(pipelineSchedulers.getOcr())
+                .flatMap(this::upload)
+                .onErrorResume(e -> {
+                    log.warn("Failed to generate receipt thumbnails for {}: {}", image.getOriginalFilename(),
+                            e.getMessage());
+                    return Mono.just(Thumbnails.NONE);
+                });
+    }
+
+    /**
+     * Same as {@link #generate(ReceiptImage)} for a receipt that is already stored
+     */
+    public Mono<Thumbnails> generate(String imageUrl) {
+        return Mono.fromCallable(() -> s3UploadService.extractKeyFromUrl(imageUrl))
+                .flatMap(s3UploadService::downloadReceiptImageAsync)
+                .flatMap(this::generate)
+                .onErrorResume(e -> {
+                    log.warn("Failed to download {} for thumbnails: {}", imageUrl, e.getMessage());
+                    return Mono.just(Thumbnails.NONE);
+                });
+    }
+
+    private Mono<Thumbnails> upload(List<ReceiptImage> variants) {
+        if (variants.isEmpty()) {
+            log.debug("Receipt image format has no decoder, skipping thumbnails");
+            return Mono.just(Thumbnails.NONE);
+        }
+
+        ReceiptImage thumbnail = variants.get(0);
+        ReceiptImage preview = variants.get(1);
+        thumbnail.setOriginalFilename(withSuffix(thumbnail.getOriginalFilename(), "thumb"));
+        preview.setOriginalFilename(withSuffix(preview.getOriginalFilename(), "preview"));
+        return Mono.zip(s3UploadService.uploadFileAsync(thumbnail, prefix, null),
+                        s3UploadService.uploadFileAsync(preview, prefix, null))
+                .map(urls -> new Thumbnails(urls.getT1(), urls.getT2()));
+    }
+
+    // receipts/abc_receipt.jpg -> abc_receipt_thumb.jpg; the key gets its own unique prefix on upload
+    private static String withSuffix(String filename, String suffix) {
+        filename = filename.substring(filename.lastIndexOf('/') + 1);
+        int dot = filename.lastIndexOf('.');
+        return dot > 0
+                ? filename.substring(0, dot) + "_" + suffix + filename.substring(dot)
+                : filename + "_" + suffix;
+    }
+}
@@ -0,0 +1,155 @@
+package com.sweetpotato.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetpotato.dto.fuel.ExtractedFuelData;
+import com.sweetpotato.dto.fuel.ReceiptImage;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Captures real OCR results to disk and serves them back, so load tests see real extractions
+ * (and, optionally, real latencies) without calling the OCR provider.
+ *
+ * RECORD passes every call through to the delegate engine and writes the result to
+ * {@code <directory>/<image sha256>.json}. REPLAY loads all recordings at startup and answers from
+ * them; images that were never recorded go to the fallback engine, or fail if there is none.
+ */
+@Slf4j
+public class RecordReplayOcrEngine implements OcrEngine {
+
+    public enum Mode {
+        RECORD, REPLAY
+    }
+
+    private static final String REPLAY_MODEL = "replay";
+
+    private final Mode mode;
+    private final OcrEngine delegate;
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private final Scheduler ioScheduler;
+    private final boolean replayLatency;
+    private final Map<String, Recording> recordings = new ConcurrentHashMap<>();
+
+    /**
+     * @param delegate the engine to record in RECORD mode, or the fallback for unrecorded images in REPLAY mode (may be null)
+     */
+    public RecordReplayOcrEngine(Mode mode, OcrEngine delegate, Path directory, ObjectMapper objectMapper,
+                                 Scheduler ioScheduler, boolean replayLatency) {
+        if (mode == Mode.RECORD && delegate == null) {
+            throw new IllegalArgumentException("RECORD mode needs an engine to record");
+        }
+        this.mode = mode;
+        this.delegate = delegate;
+        this.directory = directory;
+        this.objectMapper = objectMapper;
+        this.ioScheduler = ioScheduler;
+        this.replayLatency = replayLatency;
+
+        try {
+            Files.createDirectories(directory);
+            if (mode == Mode.REPLAY) {
+                loadRecordings();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open OCR recordings directory " + directory, e);
+        }
+    }
+
+    @Override
+    public String getModel() {
+        return mode == Mode.RECORD ? delegate.getModel() : REPLAY_MODEL;
+    }
+
+    // In REPLAY mode, a changed set of recordings must not be answered from results cached for the old set
+    @Override
+    public String getPromptVersion() {
+        return mode == Mode.RECORD ? delegate.getPromptVersion() : String.valueOf(recordings.size());
+    }
+
+    @Override
+    public void warmUp() {
+        if (delegate != null) {
+            delegate.warmUp();
+        }
+    }
+
+    @Override
+    public Mono<ExtractedFuelData> extract(ReceiptImage image, String format) {
+        return mode == Mode.RECORD ? record(image, format) : replay(image, format);
+    }
+
+    private Mono<ExtractedFuelData> record(ReceiptImage image, String format) {
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            return delegate.extract(image, format)
+                    .flatMap(extractedData -> Mono.fromRunnable(() -> write(image.contentSha256(), new Recording(
+                                    delegate.getModel(), delegate.getPromptVersion(),
+                                    Duration.ofNanos(System.nanoTime() - startNanos).toMillis(), extractedData)))
+                            .subscribeOn(ioScheduler)
+                            .onErrorResume(e -> {
+                                log.warn("Failed to record OCR response: {}", e.getMessage());
+                                return Mono.empty();
+                            })
+                            .thenReturn(extractedData));
+        });
+    }
+
+    private Mono<ExtractedFuelData> replay(ReceiptImage image, String format) {
+        return Mono.defer(() -> {
+            Recording recording = recordings.get(image.contentSha256());
+            if (recording == null) {
+                if (delegate == null) {
+                    return Mono.error(new IllegalStateException(
+                            "No recorded OCR response for image " + image.contentSha256()));
+                }
+                return delegate.extract(image, format);
+            }
+
+            Mono<ExtractedFuelData> result = Mono.just(recording.result());
+            return replayLatency ? result.delayElement(Duration.ofMillis(recording.latencyMs())) : result;
+        });
+    }
+
+    private void write(String imageDigest, Recording recording) {
+        Path target = directory.resolve(imageDigest + ".json");
+        try {
+            // Write then rename, so a concurrent reader never sees a partial file
+            Path temp = Files.createTempFile(directory, imageDigest, ".tmp");
+            objectMapper.writeValue(temp.toFile(), recording);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Recorded OCR response for image {}", imageDigest);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void loadRecordings() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(".json")).forEach(file -> {
+                String fileName = file.getFileName().toString();
+                try {
+                    recordings.put(fileName.substring(0, fileName.length() - ".json".length()),
+                            objectMapper.readValue(file.toFile(), Recording.class));
+                } catch (IOException e) {
+                    log.warn("Skipping unreadable OCR recording {}: {}", file, e.getMessage());
+                }
+            });
+        }
+        log.info("Loaded {} OCR recordings from {}", recordings.size(), directory);
+    }
+
+    private record Recording(String model, String promptVersion, long latencyMs, ExtractedFuelData result) {
+    }
+}
@@ -1,55 +1,95 @@
 package com.sweetpotato.service;
 
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
-import com.amazonaws.auth.BasicAWSCredentials;
-import com.amazonaws.regions.Regions;
+import com.amazonaws.HttpMethod;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
 import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.StorageClass;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.sweetpotato.config.AwsClientFactory;
 import com.sweetpotato.config.DynamicConfigurationProperties;
+import com.sweetpotato.config.PipelineSchedulers;
+import com.sweetpotato.config.S3AsyncClient;
+import com.sweetpotato.exception.ReceiptUploadRejectedException;
+import com.sweetpotato.dto.fuel.ReceiptImage;
+import com.sweetpotato.dto.fuel.ReceiptUploadTicketResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.annotation.Bean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Mono;
 
 import jakarta.annotation.PostConstruct;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class S3UploadService {
 
+    // S3 rejects multipart-upload parts below 5 MB, except the last one
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
     private final DynamicConfigurationProperties configProperties;
-    private AmazonS3 s3Client;
+    private final PipelineSchedulers pipelineSchedulers;
+    private final AwsClientFactory awsClientFactory;
+    private final S3AsyncClient s3AsyncClient;
 
-    @PostConstruct
-    public void initializeS3Client() {
-        BasicAWSCredentials awsCredentials = new BasicAWSCredentials(
-                configProperties.getAwsAccessKey(), 
-                configProperties.getAwsSecretKey()
-        );
-        
-        this.s3Client = AmazonS3ClientBuilder.standard()
-                .withRegion(Regions.fromName(configProperties.getAwsRegion()))
-                .withCredentials(new AWSStaticCredentialsProvider(awsCredentials))
-                .build();
+    private int partSize;
+
+    @Value("${app.receipts.preprocessing.original-prefix:receipts-original}")
+    private String originalsPrefix;
+
+    @Value("${app.receipts.preprocessing.original-storage-class:STANDARD_IA}")
+    private String originalsStorageClass;
+
+    @Value("${app.receipts.direct-upload.url-expiry-seconds:300}")
+    private long directUploadExpirySeconds;
+
+    @Value("${app.s3.multipart.part-size-mb:5}")
+    private int partSizeMb;
+
+    @Value("${app.s3.multipart.timeout-seconds:60}")
+    private long multipartTimeoutSeconds;
+
+    // User metadata the presigned PUT signs in, so only the requesting user can finalize the object
+    private static final String OWNER_METADATA = "owner";
+
+    /**
+     * What finalizing needs to know about a directly uploaded object, without downloading it
+     */
+    public record StoredObject(String key, String owner, String contentType, long size) {
     }
 
-    @Bean
-    public AmazonS3 amazonS3Client() {
-        BasicAWSCredentials awsCredentials = new BasicAWSCredentials(
-                configProperties.getAwsAccessKey(), 
-                configProperties.getAwsSecretKey()
-        );
-        
-        return AmazonS3ClientBuilder.standard()
-                .withRegion(Regions.fromName(configProperties.getAwsRegion()))
-                .withCredentials(new AWSStaticCredentialsProvider(awsCredentials))
-                .build();
+    @PostConstruct
+    public void initializePartSize() {
+        this.partSize = Math.max(MIN_PART_SIZE, partSizeMb * 1024 * 1024);
     }
 
     public String uploadFile(MultipartFile file, String folder) throws IOException {
@@ -66,9 +106,9 @@ public class S3UploadService {
         try {
             String bucketName = configProperties.getAwsBucketName();
             PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, fileName, file.getInputStream(), metadata);
-            s3Client.putObject(putObjectRequest);
+            awsClientFactory.s3().putObject(putObjectRequest);
             
-            String fileUrl = s3Client.getUrl(bucketName, fileName).toString();
+            String fileUrl = awsClientFactory.s3().getUrl(bucketName, fileName).toString();
             log.info("File uploaded successfully to S3: {}", fileUrl);
             
             return fileUrl;
@@ -78,14 +118,342 @@ public class S3UploadService {
         }
     }
 
+    public String uploadFile(ReceiptImage image, String folder) {
+        return uploadFile(image, folder, null);
+    }
+
+    public String uploadFile(ReceiptImage image, String folder, StorageClass storageClass) {
+        if (image.isEmpty()) {
+            throw new IllegalArgumentException("File cannot be empty");
+        }
+
+        String fileName = newKey(folder, image.getOriginalFilename());
+
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(image.getContentType());
+        metadata.setContentLength(image.getSize());
+
+        try {
+            String bucketName = configProperties.getAwsBucketName();
+            PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, fileName,
+                    new ByteArrayInputStream(image.getContent()), metadata);
+            if (storageClass != null) {
+                putObjectRequest.setStorageClass(storageClass);
+            }
+            awsClientFactory.s3().putObject(putObjectRequest);
+
+            String fileUrl = awsClientFactory.s3().getUrl(bucketName, fileName).toString();
+            log.info("File uploaded successfully to S3: {}", fileUrl);
+
+            return fileUrl;
+        } catch (Exception e) {
+            log.error("Error uploading file to S3", e);
+            throw new RuntimeException("Failed to upload file to S3", e);
+        }
+    }
+
     public String uploadReceiptImage(MultipartFile file) throws IOException {
         return uploadFile(file, "receipts");
     }
 
+    public String uploadReceiptImage(ReceiptImage image) {
+        return uploadFile(image, "receipts");
+    }
+
+    /**
+     * Archives the unprocessed original of a receipt under the cold prefix
+     */
+    public String uploadOriginalReceiptImage(ReceiptImage image) {
+        return uploadFile(image, originalsPrefix, StorageClass.fromValue(originalsStorageClass));
+    }
+
+    /**
+     * Non-blocking {@link #uploadFile(ReceiptImage, String, StorageClass)} for the reactive pipeline
+     *
+     * @return the object URL
+     */
+    public Mono<String> uploadFileAsync(ReceiptImage image, String folder, StorageClass storageClass) {
+        if (image.isEmpty()) {
+            return Mono.error(new IllegalArgumentException("File cannot be empty"));
+        }
+
+        String key = newKey(folder, image.getOriginalFilename());
+        return s3AsyncClient.putObject(key, image.getContent(), image.getContentType(), storageClass)
+                .then(Mono.fromCallable(() -> getFileUrl(key)))
+                .doOnNext(fileUrl -> log.info("File uploaded successfully to S3: {}", fileUrl))
+                .onErrorMap(e -> !(e instanceof IllegalArgumentException),
+                        e -> new RuntimeException("Failed to upload file to S3", e));
+    }
+
+    public Mono<String> uploadReceiptImageAsync(ReceiptImage image) {
+        return uploadFileAsync(image, "receipts", null);
+    }
+
+    public Mono<String> uploadOriginalReceiptImageAsync(ReceiptImage image) {
+        return uploadFileAsync(image, originalsPrefix, StorageClass.fromValue(originalsStorageClass));
+    }
+
+    /**
+     * Non-blocking {@link #downloadReceiptImage}
+     */
+    public Mono<ReceiptImage> downloadReceiptImageAsync(String key) {
+        return s3AsyncClient.getObject(key)
+                .map(object -> {
+                    log.info("Downloaded receipt image from S3: {} ({} bytes)", key, object.content().length);
+                    return ReceiptImage.builder()
+                            .content(object.content())
+                            .contentType(object.contentType())
+                            .originalFilename(key)
+                            .sha256(HexFormat.of().formatHex(ReceiptImage.newSha256().digest(object.content())))
+                            .build();
+                })
+                .onErrorMap(e -> new RuntimeException("Failed to download file from S3", e));
+    }
+
+    private String newKey(String folder, String originalFilename) {
+        return folder + "/" + UUID.randomUUID() + "_" + originalFilename;
+    }
+
+    /**
+     * Presigns a PUT of one receipt image to a fresh key, so the client sends the bytes straight to S3.
+     * The content type and the owner metadata are part of the signature and must be sent as given.
+     */
+    public ReceiptUploadTicketResponse presignReceiptUpload(Long userId, String contentType) {
+        String key = "receipts/" + UUID.randomUUID();
+        Instant expiresAt = Instant.now().plusSeconds(directUploadExpirySeconds);
+        String ownerHeader = "x-amz-meta-" + OWNER_METADATA;
+
+        GeneratePresignedUrlRequest request = new GeneratePresignedUrlRequest(
+                configProperties.getAwsBucketName(), key, HttpMethod.PUT)
+                .withExpiration(Date.from(expiresAt))
+                .withContentType(contentType);
+        request.putCustomRequestHeader(ownerHeader, String.valueOf(userId));
+
+        String uploadUrl = awsClientFactory.s3().generatePresignedUrl(request).toString();
+        log.info("Presigned direct receipt upload for user {}: {}", userId, key);
+        return ReceiptUploadTicketResponse.builder()
+                .key(key)
+                .uploadUrl(uploadUrl)
+                .method(HttpMethod.PUT.name())
+                .headers(Map.of("Content-Type", contentType, ownerHeader, String.valueOf(userId)))
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    /**
+     * @return the object's metadata, or empty if nothing has been uploaded to the key
+     */
+    public Optional<StoredObject> findObject(String key) {
+        try {
+            ObjectMetadata metadata = awsClientFactory.s3().getObjectMetadata(configProperties.getAwsBucketName(), key);
+            return Optional.of(new StoredObject(key, metadata.getUserMetaDataOf(OWNER_METADATA),
+                    metadata.getContentType(), metadata.getContentLength()));
+        } catch (AmazonS3Exception e) {
+            if (e.getStatusCode() == 404) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a stored receipt image into memory, hashing it on the way like an upload
+     */
+    public ReceiptImage downloadReceiptImage(String key) {
+        MessageDigest digest = ReceiptImage.newSha256();
+        try (S3Object object = awsClientFactory.s3().getObject(configProperties.getAwsBucketName(), key);
+             InputStream input = new DigestInputStream(object.getObjectContent(), digest)) {
+            byte[] content = input.readAllBytes();
+            log.info("Downloaded receipt image from S3: {} ({} bytes)", key, content.length);
+            return ReceiptImage.builder()
+                    .content(content)
+                    .contentType(object.getObjectMetadata().getContentType())
+                    .originalFilename(key)
+                    .sha256(HexFormat.of().formatHex(digest.digest()))
+                    .build();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to download file from S3", e);
+        }
+    }
+
+    /**
+     * Starts streaming a receipt image to a fresh key while it is still being received
+     *
+     * @param maxBytes writes beyond this size are rejected with 413
+     */
+    public StreamingUpload startStreamingReceiptUpload(String contentType, long maxBytes) {
+        return new StreamingUpload("receipts/" + UUID.randomUUID(), contentType, maxBytes);
+    }
+
+    /**
+     * One object sent to S3 while it is being received. Bytes are kept in memory, since OCR needs them
+     * afterwards; every time another part's worth has arrived that range of the buffer is sent as a
+     * multipart-upload part in the background, so the upload overlaps the receive. Written ranges are never
+     * modified (growing the buffer copies into a new array), so parts read them without a copy of their own.
+     * Objects smaller than one part go out as a single PUT on {@link #complete}.
+     *
+     * Not thread-safe: written and completed by the receiving thread.
+     */
+    public final class StreamingUpload {
+
+        private final String key;
+        private final String contentType;
+        private final long maxBytes;
+        // Held for the whole upload, so every part goes through the client that initiated it
+        private final AmazonS3 s3Client = awsClientFactory.s3();
+        private final List<CompletableFuture<PartETag>> parts = new ArrayList<>();
+        private byte[] content = new byte[64 * 1024];
+        private int size;
+        private int sent;
+        private String uploadId;
+
+        private StreamingUpload(String key, String contentType, long maxBytes) {
+            this.key = key;
+            this.contentType = contentType;
+            this.maxBytes = maxBytes;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public void write(byte[] data, int offset, int length) {
+            if (size + (long) length > maxBytes) {
+                throw new ReceiptUploadRejectedException(HttpStatus.PAYLOAD_TOO_LARGE,
+                        "File is larger than " + maxBytes / (1024 * 1024) + "MB");
+            }
+            if (size + length > content.length) {
+                content = Arrays.copyOf(content, (int) Math.min(maxBytes, Math.max(size + length, 2L * content.length)));
+            }
+            System.arraycopy(data, offset, content, size, length);
+            size += length;
+
+            while (size - sent >= partSize) {
+                sendPart(partSize);
+            }
+        }
+
+        /**
+         * Sends what is left, waits for the parts in flight and completes the object
+         *
+         * @return everything written, for OCR
+         */
+        public byte[] complete() {
+            String bucketName = configProperties.getAwsBucketName();
+            if (uploadId == null) {
+                ObjectMetadata metadata = new ObjectMetadata();
+                metadata.setContentType(contentType);
+                metadata.setContentLength(size);
+                s3Client.putObject(new PutObjectRequest(bucketName, key,
+                        new ByteArrayInputStream(content, 0, size), metadata));
+                log.info("Streamed receipt image uploaded to S3 with a single PUT: {} ({} bytes)", key, size);
+                return received();
+            }
+
+            if (size > sent) {
+                sendPart(size - sent);
+            }
+            List<PartETag> etags = new ArrayList<>(parts.size());
+            for (CompletableFuture<PartETag> part : parts) {
+                etags.add(await(part));
+            }
+            s3Client.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, key, uploadId, etags));
+            log.info("Streamed receipt image uploaded to S3 in {} parts: {} ({} bytes)", etags.size(), key, size);
+            return received();
+        }
+
+        // The buffer itself once it is exactly full; trimmed otherwise, as the image must be an exact array
+        private byte[] received() {
+            return content.length == size ? content : Arrays.copyOf(content, size);
+        }
+
+        /**
+         * Drops the object; parts still in flight are waited for, so none lands after the abort
+         */
+        public void abort() {
+            for (CompletableFuture<PartETag> part : parts) {
+                try {
+                    part.get(multipartTimeoutSeconds, TimeUnit.SECONDS);
+                } catch (ExecutionException | TimeoutException e) {
+                    // The upload is being dropped anyway
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (uploadId == null) {
+                return;
+            }
+            try {
+                s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(
+                        configProperties.getAwsBucketName(), key, uploadId));
+                log.info("Aborted streamed receipt upload {}", key);
+            } catch (RuntimeException e) {
+                log.warn("Failed to abort multipart upload {} ({}); the bucket's lifecycle rule has to clean it up",
+                        key, uploadId, e);
+            }
+        }
+
+        private void sendPart(int length) {
+            String bucketName = configProperties.getAwsBucketName();
+            if (uploadId == null) {
+                ObjectMetadata metadata = new ObjectMetadata();
+                metadata.setContentType(contentType);
+                uploadId = s3Client.initiateMultipartUpload(
+                        new InitiateMultipartUploadRequest(bucketName, key, metadata)).getUploadId();
+            }
+
+            UploadPartRequest request = new UploadPartRequest()
+                    .withBucketName(bucketName)
+                    .withKey(key)
+                    .withUploadId(uploadId)
+                    .withPartNumber(parts.size() + 1)
+                    .withInputStream(new ByteArrayInputStream(content, sent, length))
+                    .withPartSize(length);
+            sent += length;
+            parts.add(Mono.fromCallable(() -> s3Client.uploadPart(request).getPartETag())
+                    .subscribeOn(pipelineSchedulers.getS3())
+                    .toFuture());
+        }
+
+        private PartETag await(CompletableFuture<PartETag> part) {
+            try {
+                return part.get(multipartTimeoutSeconds, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Failed to upload part to S3", e.getCause());
+            } catch (TimeoutException e) {
+                throw new RuntimeException("Timed out uploading part to S3", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while uploading to S3", e);
+            }
+        }
+    }
+
+    public String getFileUrl(String key) {
+        return awsClientFactory.s3().getUrl(configProperties.getAwsBucketName(), key).toString();
+    }
+
+    public void deleteObject(String key) {
+        try {
+            awsClientFactory.s3().deleteObject(configProperties.getAwsBucketName(), key);
+            log.info("File deleted successfully from S3: {}", key);
+        } catch (Exception e) {
+            log.error("Error deleting file from S3", e);
+            throw new RuntimeException("Failed to delete file from S3", e);
+        }
+    }
+
+    public Mono<Void> deleteObjectAsync(String key) {
+        return s3AsyncClient.deleteObject(key)
+                .doOnSuccess(done -> log.info("File deleted successfully from S3: {}", key))
+                .onErrorMap(e -> new RuntimeException("Failed to delete file from S3", e));
+    }
+
     public void deleteFile(String fileUrl) {
         try {
-            String fileName = extractFileNameFromUrl(fileUrl);
-            s3Client.deleteObject(configProperties.getAwsBucketName(), fileName);
+            String fileName = extractKeyFromUrl(fileUrl);
+            awsClientFactory.s3().deleteObject(configProperties.getAwsBucketName(), fileName);
             log.info("File deleted successfully from S3: {}", fileName);
         } catch (Exception e) {
             log.error("Error deleting file from S3", e);
@@ -93,9 +461,47 @@ public class S3UploadService {
         }
     }
 
-    private String extractFileNameFromUrl(String fileUrl) {
-        // Extract the file name from the S3 URL
-        // Format: https://bucket.s3.region.amazonaws.com/filename
-        return fileUrl.substring(fileUrl.lastIndexOf('/') + 1);
+    /**
+     * The object key of a URL returned by {@link #getFileUrl}, virtual-hosted or path-style
+     */
+    public String extractKeyFromUrl(String s3Url) {
+        // S3 URL format: https://bucket-name.s3.region.amazonaws.com/key
+        // Example: https://sweet-potato-receipts.s3.ap-south-1.amazonaws.com/receipts/filename.jpg
+        // Key should be: receipts/filename.jpg
+        
+        try {
+            String bucketName = configProperties.getAwsBucketName();
+            log.debug("Extracting S3 key from URL: {}", s3Url);
+            log.debug("Expected bucket name: {}", bucketName);
+            
+            // Look for the pattern: bucketName.s3.region.amazonaws.com/
+            String domainPattern = bucketName + ".s3.";
+            int domainStart = s3Url.indexOf(domainPattern);
+            
+            if (domainStart != -1) {
+                // Find the first slash after the domain
+                int domainEnd = domainStart + domainPattern.length();
+                int regionEnd = s3Url.indexOf(".amazonaws.com/", domainEnd);
+                
+                if (regionEnd != -1) {
+                    // Extract everything after ".amazonaws.com/"
+                    String key = s3Url.substring(regionEnd + ".amazonaws.com/".length());
+                    log.debug("Extracted S3 key: {}", key);
+                    return key;
+                }
+            }
+            
+            // Path-style URLs, as S3-compatible stand-ins (app.s3.endpoint) return: endpoint/bucketName/key
+            String pathPattern = "/" + bucketName + "/";
+            int pathStart = s3Url.indexOf(pathPattern);
+            if (pathStart != -1) {
+                return s3Url.substring(pathStart + pathPattern.length());
+            }
+            
+            throw new IllegalArgumentException("Could not extract S3 key from URL: " + s3Url);
+        } catch (Exception e) {
+            log.error("Error extracting S3 key from URL: {} - {}", s3Url, e.getMessage());
+            throw new IllegalArgumentException("Invalid S3 URL format: " + s3Url, e);
+        }
     }
 }
@@ -0,0 +1,175 @@
+package com.sweetpotato.service;
+
+import com.sweetpotato.dto.fuel.FuelReceiptUploadRequest;
+import com.sweetpotato.dto.fuel.ReceiptImage;
+import com.sweetpotato.exception.ReceiptUploadRejectedException;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpInputMessage;
+import org.springframework.http.codec.multipart.FilePartEvent;
+import org.springframework.http.codec.multipart.FormPartEvent;
+import org.springframework.http.codec.multipart.PartEvent;
+import org.springframework.http.codec.multipart.PartEventHttpMessageReader;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Receives a multipart receipt upload part by part and streams the image into S3 as it arrives,
+ * instead of letting the servlet container spool the whole request before the controller runs.
+ * Relies on spring.servlet.multipart.resolve-lazily, so the request body is still unread here.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StreamingReceiptUploadService {
+
+    public static final String FILE_PART = "receiptImage";
+
+    private final S3UploadService s3UploadService;
+
+    @Value("${app.s3.multipart.read-chunk-kb:64}")
+    private int readChunkKb;
+
+    /**
+     * A receipt that has been stored in S3 under {@code key}, with the form fields that came with it
+     */
+    public record StreamedReceipt(String key, FuelReceiptUploadRequest uploadRequest) {
+    }
+
+    /**
+     * Reads the request body, uploading the {@value #FILE_PART} part to S3 while it is received
+     *
+     * @throws ReceiptUploadRejectedException when the form is invalid or the image too large; nothing is left in S3
+     */
+    public StreamedReceipt receive(HttpServletRequest request, long maxBytes) {
+        PartEventHttpMessageReader reader = new PartEventHttpMessageReader();
+        reader.setMaxParts(16);
+
+        FuelReceiptUploadRequest uploadRequest = new FuelReceiptUploadRequest();
+        S3UploadService.StreamingUpload upload = null;
+        ReceiptImage.ReceiptImageBuilder image = null;
+        MessageDigest digest = null;
+        String storedKey = null;
+        byte[] scratch = new byte[0];
+        boolean received = false;
+
+        // Closing the stream cancels the reader, so an early rejection stops reading the body
+        try (Stream<PartEvent> events = reader.read(ResolvableType.forClass(PartEvent.class),
+                new ServletInputMessage(request, readChunkKb * 1024), Collections.emptyMap()).toStream(1)) {
+            Iterator<PartEvent> iterator = events.iterator();
+            while (iterator.hasNext()) {
+                PartEvent event = iterator.next();
+                try {
+                    if (event instanceof FormPartEvent form) {
+                        applyFormField(uploadRequest, form.name(), form.value());
+                        continue;
+                    }
+                    if (!(event instanceof FilePartEvent file) || !FILE_PART.equals(event.name())) {
+                        continue;
+                    }
+
+                    if (upload == null) {
+                        if (storedKey != null) {
+                            throw new ReceiptUploadRejectedException(HttpStatus.BAD_REQUEST,
+                                    "Only one receipt image is allowed");
+                        }
+                        MediaType contentType = event.headers().getContentType();
+                        if (contentType == null || !"image".equals(contentType.getType())) {
+                            throw new ReceiptUploadRejectedException(HttpStatus.BAD_REQUEST, "File is not an image");
+                        }
+                        upload = s3UploadService.startStreamingReceiptUpload(contentType.toString(), maxBytes);
+                        digest = ReceiptImage.newSha256();
+                        image = ReceiptImage.builder()
+                                .contentType(contentType.toString())
+                                .originalFilename(file.filename());
+                    }
+
+                    DataBuffer content = event.content();
+                    int length = content.readableByteCount();
+                    if (scratch.length < length) {
+                        scratch = new byte[length];
+                    }
+                    content.read(scratch, 0, length);
+                    digest.update(scratch, 0, length);
+                    upload.write(scratch, 0, length);
+
+                    if (event.isLast()) {
+                        byte[] bytes = upload.complete();
+                        storedKey = upload.getKey();
+                        upload = null;
+                        uploadRequest.setReceiptImage(image
+                                .content(bytes)
+                                .sha256(HexFormat.of().formatHex(digest.digest()))
+                                .build());
+                    }
+                } finally {
+                    DataBufferUtils.release(event.content());
+                }
+            }
+
+            if (storedKey == null || uploadRequest.getReceiptImage().isEmpty()) {
+                throw new ReceiptUploadRejectedException(HttpStatus.BAD_REQUEST, "Receipt image is required");
+            }
+            received = true;
+            return new StreamedReceipt(storedKey, uploadRequest);
+        } catch (DataBufferLimitException e) {
+            throw new ReceiptUploadRejectedException(HttpStatus.PAYLOAD_TOO_LARGE, e.getMessage());
+        } catch (DecodingException e) {
+            log.warn("Rejected malformed multipart upload: {}", e.getMessage());
+            throw new ReceiptUploadRejectedException(HttpStatus.BAD_REQUEST, "Malformed multipart request");
+        } finally {
+            if (upload != null) {
+                upload.abort();
+            }
+            if (!received && storedKey != null) {
+                s3UploadService.deleteObject(storedKey);
+            }
+        }
+    }
+
+    private void applyFormField(FuelReceiptUploadRequest uploadRequest, String name, String value) {
+        switch (name) {
+            case "stationName" -> uploadRequest.setStationName(value);
+            case "stationBrand" -> uploadRequest.setStationBrand(value);
+            case "location" -> uploadRequest.setLocation(value);
+            case "purchaseDate" -> uploadRequest.setPurchaseDate(value);
+            default -> log.debug("Ignoring unknown form field: {}", name);
+        }
+    }
+
+    /**
+     * The servlet request body as a reactive message; buffers are read from the input stream on demand
+     */
+    private record ServletInputMessage(HttpServletRequest request, int chunkSize) implements ReactiveHttpInputMessage {
+
+        @Override
+        public HttpHeaders getHeaders() {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.CONTENT_TYPE, request.getContentType());
+            return headers;
+        }
+
+        @Override
+        public Flux<DataBuffer> getBody() {
+            return DataBufferUtils.readInputStream(request::getInputStream, DefaultDataBufferFactory.sharedInstance,
+                    chunkSize);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.sweetpotato.util;
+
+import lombok.Getter;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking concurrency limiter for a downstream dependency, with an AIMD-adjusted limit
+ * and a bounded FIFO wait queue.
+ *
+ * The limit grows by roughly one per limit's worth of successful calls while it is being used,
+ * and is cut multiplicatively when a call fails with an overload signal (e.g. 429 or a timeout)
+ * or takes longer than the latency threshold. Callers beyond the limit wait in the queue; when
+ * the queue is full or the wait times out they fail with {@link LimitExceededException}.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private enum Outcome {
+        SUCCESS, DROPPED, IGNORED
+    }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueueSize;
+    private final Duration maxQueueWait;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final Predicate<Throwable> overloadSignal;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<MonoSink<Permit>> waiters = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private double averageLatencyNanos;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueueSize,
+                                      Duration maxQueueWait, double backoffRatio, Duration latencyThreshold,
+                                      Predicate<Throwable> overloadSignal) {
+        if (minLimit < 1 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= minLimit <= maxLimit");
+        }
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueueSize = maxQueueSize;
+        this.maxQueueWait = maxQueueWait;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.overloadSignal = overloadSignal;
+    }
+
+    /**
+     * Subscribes to the call once a slot is free; the slot is held until the call terminates
+     */
+    public <T> Mono<T> execute(Supplier<Mono<T>> call) {
+        return Mono.usingWhen(acquire(),
+                permit -> Mono.defer(call),
+                permit -> Mono.fromRunnable(() -> permit.release(Outcome.SUCCESS)),
+                (permit, error) -> Mono.fromRunnable(() ->
+                        permit.release(overloadSignal.test(error) ? Outcome.DROPPED : Outcome.IGNORED)),
+                permit -> Mono.fromRunnable(() -> permit.release(Outcome.IGNORED)));
+    }
+
+    private Mono<Permit> acquire() {
+        return Mono.<Permit>create(sink -> {
+                    Permit granted = null;
+                    boolean queued = false;
+                    lock.lock();
+                    try {
+                        if (inFlight < (int) limit) {
+                            inFlight++;
+                            granted = new Permit();
+                        } else if (waiters.size() < maxQueueSize) {
+                            waiters.addLast(sink);
+                            queued = true;
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+
+                    if (granted != null) {
+                        sink.success(granted);
+                    } else if (queued) {
+                        sink.onCancel(() -> removeWaiter(sink));
+                    } else {
+                        sink.error(new LimitExceededException("Wait queue is full", estimateRetryAfter()));
+                    }
+                })
+                .timeout(maxQueueWait, Mono.defer(() -> Mono.error(
+                        new LimitExceededException("Timed out waiting for a slot", estimateRetryAfter()))))
+                // A permit handed to a waiter that was cancelled at the same moment is dropped, not leaked
+                .doOnDiscard(Permit.class, permit -> permit.release(Outcome.IGNORED));
+    }
+
+    private void removeWaiter(MonoSink<Permit> sink) {
+        lock.lock();
+        try {
+            waiters.remove(sink);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onRelease(Permit permit, Outcome outcome) {
+        List<MonoSink<Permit>> admitted = new ArrayList<>();
+        lock.lock();
+        try {
+            long latencyNanos = System.nanoTime() - permit.startNanos;
+            boolean saturated = inFlight >= limit / 2;
+            inFlight--;
+
+            if (outcome == Outcome.SUCCESS) {
+                averageLatencyNanos = averageLatencyNanos == 0
+                        ? latencyNanos
+                        : averageLatencyNanos * 0.9 + latencyNanos * 0.1;
+                if (latencyNanos > latencyThresholdNanos) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                } else if (saturated) {
+                    limit = Math.min(maxLimit, limit + 1.0 / limit);
+                }
+            } else if (outcome == Outcome.DROPPED) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            }
+
+            while (!waiters.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                admitted.add(waiters.pollFirst());
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (MonoSink<Permit> waiter : admitted) {
+            waiter.success(new Permit());
+        }
+    }
+
+    // Roughly how long until the current queue has drained through the current limit
+    private Duration estimateRetryAfter() {
+        lock.lock();
+        try {
+            double nanos = averageLatencyNanos * (waiters.size() / limit + 1);
+            return Duration.ofNanos(Math.max((long) nanos, Duration.ofSeconds(1).toNanos()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueued() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private class Permit {
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        void release(Outcome outcome) {
+            if (released.compareAndSet(false, true)) {
+                onRelease(this, outcome);
+            }
+        }
+    }
+
+    /**
+     * Thrown when a call is rejected because the queue is full or the wait timed out
+     */
+    @Getter
+    public static class LimitExceededException extends RuntimeException {
+        private final Duration retryAfter;
+
+        public LimitExceededException(String message, Duration retryAfter) {
+            super(message);
+            this.retryAfter = retryAfter;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.sweetpotato.util;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Size-bounded in-memory cache with per-entry expiry.
+ * When full, the least recently used entry is evicted; expired entries are
+ * dropped on access and by {@link #evictExpired()}.
+ */
+public class BoundedExpiringCache<K, V> {
+
+    private final int maxEntries;
+    private final Clock clock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    public BoundedExpiringCache(int maxEntries) {
+        this(maxEntries, Clock.systemUTC());
+    }
+
+    public BoundedExpiringCache(int maxEntries, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > BoundedExpiringCache.this.maxEntries;
+            }
+        };
+    }
+
+    public V get(K key) {
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAtMillis <= clock.millis()) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(K key, V value, Duration ttl) {
+        lock.lock();
+        try {
+            entries.put(key, new Entry<>(value, clock.millis() + ttl.toMillis()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(K key) {
+        lock.lock();
+        try {
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all expired entries and returns how many were dropped
+     */
+    public int evictExpired() {
+        long now = clock.millis();
+        int evicted = 0;
+        lock.lock();
+        try {
+            Iterator<Entry<V>> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().expiresAtMillis <= now) {
+                    iterator.remove();
+                    evicted++;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return evicted;
+    }
+
+    private record Entry<V>(V value, long expiresAtMillis) {
+    }
+}
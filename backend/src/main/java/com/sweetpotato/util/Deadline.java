@@ -0,0 +1,74 @@
+package com.sweetpotato.util;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Point in time by which a request must be answered. Carried in the Reactor Context so every
+ * stage of a pipeline can cap its own timeout at the time the caller has left.
+ */
+public final class Deadline {
+
+    public static final String CONTEXT_KEY = Deadline.class.getName();
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static Deadline in(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * For {@code contextWrite(deadline::putInto)}
+     */
+    public Context putInto(Context context) {
+        return context.put(CONTEXT_KEY, this);
+    }
+
+    /**
+     * Times out the stage after {@code stageTimeout} or when the deadline in the context is reached,
+     * whichever comes first. A null stage timeout means only the deadline applies.
+     */
+    public static <T> Function<Mono<T>, Mono<T>> bound(Duration stageTimeout) {
+        return bound(stageTimeout, Duration.ZERO);
+    }
+
+    /**
+     * Like {@link #bound(Duration)}, but keeps {@code reserve} of the remaining time for the stages that follow
+     */
+    public static <T> Function<Mono<T>, Mono<T>> bound(Duration stageTimeout, Duration reserve) {
+        return mono -> Mono.deferContextual(context -> {
+            Duration timeout = stageTimeout;
+            Deadline deadline = context.getOrDefault(CONTEXT_KEY, null);
+            if (deadline != null) {
+                Duration left = deadline.remaining().minus(reserve);
+                if (timeout == null || left.compareTo(timeout) < 0) {
+                    timeout = left;
+                }
+            }
+
+            if (timeout == null) {
+                return mono;
+            }
+            if (timeout.isNegative() || timeout.isZero()) {
+                return Mono.error(new TimeoutException("Request deadline exceeded"));
+            }
+            return mono.timeout(timeout);
+        });
+    }
+}
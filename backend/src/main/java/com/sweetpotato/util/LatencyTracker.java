@@ -0,0 +1,61 @@
+package com.sweetpotato.util;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the most recent latency samples in a ring buffer and answers percentile queries over them
+ */
+public class LatencyTracker {
+
+    private final long[] samplesNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private int next;
+    private int count;
+
+    public LatencyTracker(int capacity) {
+        this.samplesNanos = new long[capacity];
+    }
+
+    public void record(Duration latency) {
+        lock.lock();
+        try {
+            samplesNanos[next] = latency.toNanos();
+            next = (next + 1) % samplesNanos.length;
+            count = Math.min(count + 1, samplesNanos.length);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCount() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param percentile between 0 and 1
+     * @return the latency at that percentile, or null if nothing has been recorded yet
+     */
+    public Duration percentile(double percentile) {
+        long[] snapshot;
+        lock.lock();
+        try {
+            if (count == 0) {
+                return null;
+            }
+            snapshot = Arrays.copyOf(samplesNanos, count);
+        } finally {
+            lock.unlock();
+        }
+
+        Arrays.sort(snapshot);
+        int index = (int) Math.ceil(percentile * snapshot.length) - 1;
+        return Duration.ofNanos(snapshot[Math.max(0, Math.min(index, snapshot.length - 1))]);
+    }
+}
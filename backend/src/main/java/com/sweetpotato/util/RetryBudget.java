@@ -0,0 +1,83 @@
+package com.sweetpotato.util;
+
+import java.time.Clock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caps retries at a fraction of recent requests (plus a small per-second floor), so retries
+ * cannot multiply load on a dependency that is already failing. Counts are kept in one-second
+ * buckets over a sliding window.
+ */
+public class RetryBudget {
+
+    private final double ratio;
+    private final int minRetriesPerSecond;
+    private final Clock clock;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final long[] bucketSeconds;
+    private final int[] requests;
+    private final int[] retries;
+
+    public RetryBudget(double ratio, int minRetriesPerSecond, int windowSeconds) {
+        this(ratio, minRetriesPerSecond, windowSeconds, Clock.systemUTC());
+    }
+
+    public RetryBudget(double ratio, int minRetriesPerSecond, int windowSeconds, Clock clock) {
+        this.ratio = ratio;
+        this.minRetriesPerSecond = minRetriesPerSecond;
+        this.clock = clock;
+        this.bucketSeconds = new long[windowSeconds];
+        this.requests = new int[windowSeconds];
+        this.retries = new int[windowSeconds];
+    }
+
+    public void recordRequest() {
+        lock.lock();
+        try {
+            requests[currentBucket()]++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Withdraws one retry if the budget allows it
+     */
+    public boolean tryAcquire() {
+        lock.lock();
+        try {
+            int bucket = currentBucket();
+            long nowSeconds = bucketSeconds[bucket];
+            int windowRequests = 0;
+            int windowRetries = 0;
+            for (int i = 0; i < bucketSeconds.length; i++) {
+                if (nowSeconds - bucketSeconds[i] < bucketSeconds.length) {
+                    windowRequests += requests[i];
+                    windowRetries += retries[i];
+                }
+            }
+
+            double allowed = windowRequests * ratio + (double) minRetriesPerSecond * bucketSeconds.length;
+            if (windowRetries + 1 > allowed) {
+                return false;
+            }
+            retries[bucket]++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Index of the bucket for the current second, cleared if it still holds an older second
+    private int currentBucket() {
+        long nowSeconds = clock.millis() / 1000;
+        int bucket = (int) (nowSeconds % bucketSeconds.length);
+        if (bucketSeconds[bucket] != nowSeconds) {
+            bucketSeconds[bucket] = nowSeconds;
+            requests[bucket] = 0;
+            retries[bucket] = 0;
+        }
+        return bucket;
+    }
+}
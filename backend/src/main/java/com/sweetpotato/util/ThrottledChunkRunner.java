@@ -0,0 +1,155 @@
+package com.sweetpotato.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs one background job at a time that walks records in id order, one keyset chunk at a time and at a
+ * capped rate, on its own platform thread. A stop takes effect after the current chunk.
+ */
+@Slf4j
+public class ThrottledChunkRunner {
+
+    public enum Outcome {
+        COMPLETED, CANCELLED, INTERRUPTED, FAILED
+    }
+
+    /**
+     * Handles the chunk of records after the given id
+     */
+    @FunctionalInterface
+    public interface ChunkProcessor {
+
+        /**
+         * @return the chunk just handled, or null once no records are left
+         */
+        Chunk process(long afterId);
+    }
+
+    public record Chunk(int records, long lastId) {
+    }
+
+    private final String name;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock
+    private Thread worker;
+    private CountDownLatch stopSignal = new CountDownLatch(0);
+    private volatile Outcome stopWith;
+
+    public ThrottledChunkRunner(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Starts walking the records after {@code afterId}. {@code onFinish} runs on the worker thread once the
+     * runner is free again, with the failure message if the outcome is FAILED.
+     *
+     * @throws IllegalStateException if a job is already in progress
+     */
+    public void start(String threadName, long afterId, int recordsPerSecond, ChunkProcessor processor,
+                      BiConsumer<Outcome, String> onFinish) {
+        lock.lock();
+        try {
+            if (worker != null) {
+                throw new IllegalStateException(name + " is already in progress");
+            }
+            stopWith = null;
+            CountDownLatch signal = new CountDownLatch(1);
+            stopSignal = signal;
+            worker = Thread.ofPlatform()
+                    .name(threadName)
+                    .daemon(true)
+                    .start(() -> execute(afterId, recordsPerSecond, processor, signal, onFinish));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the job after its current chunk
+     *
+     * @return false if no job is in progress
+     */
+    public boolean cancel() {
+        lock.lock();
+        try {
+            if (worker == null) {
+                return false;
+            }
+            stop(Outcome.CANCELLED);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Interrupts the job after its current chunk and waits up to 30 seconds for it to finish
+     */
+    public void shutdown() throws InterruptedException {
+        Thread running;
+        lock.lock();
+        try {
+            if (worker == null) {
+                return;
+            }
+            stop(Outcome.INTERRUPTED);
+            running = worker;
+        } finally {
+            lock.unlock();
+        }
+        running.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    private void stop(Outcome outcome) {
+        stopWith = outcome;
+        stopSignal.countDown();
+    }
+
+    private void execute(long afterId, int recordsPerSecond, ChunkProcessor processor, CountDownLatch stopSignal,
+                         BiConsumer<Outcome, String> onFinish) {
+        Outcome outcome = Outcome.COMPLETED;
+        String error = null;
+        try {
+            while (stopWith == null) {
+                long started = System.nanoTime();
+                Chunk chunk = processor.process(afterId);
+                if (chunk == null) {
+                    break;
+                }
+                afterId = chunk.lastId();
+
+                long remaining = throttleNanos(chunk.records(), recordsPerSecond) - (System.nanoTime() - started);
+                if (remaining > 0 && stopSignal.await(remaining, TimeUnit.NANOSECONDS)) {
+                    break;
+                }
+            }
+            if (stopWith != null) {
+                outcome = stopWith;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            outcome = Outcome.INTERRUPTED;
+        } catch (RuntimeException e) {
+            log.error("{} ({}) failed after record {}", name, Thread.currentThread().getName(), afterId, e);
+            outcome = Outcome.FAILED;
+            error = e.getMessage();
+        }
+
+        lock.lock();
+        try {
+            worker = null;
+        } finally {
+            lock.unlock();
+        }
+        onFinish.accept(outcome, error);
+    }
+
+    private static long throttleNanos(int records, int recordsPerSecond) {
+        return recordsPerSecond > 0 ? records * TimeUnit.SECONDS.toNanos(1) / recordsPerSecond : 0;
+    }
+}
@@ -0,0 +1,142 @@
+package com.sweetpotato.controller;
+
+import com.sweetpotato.config.PipelineSchedulers;
+import com.sweetpotato.dto.fuel.FuelReceiptResponse;
+import com.sweetpotato.dto.fuel.ReceiptImage;
+import com.sweetpotato.dto.fuel.ReceiptUploadFinalizeRequest;
+import com.sweetpotato.entity.UploadIdempotencyRecord;
+import com.sweetpotato.entity.User;
+import com.sweetpotato.repository.UploadIdempotencyRepository;
+import com.sweetpotato.service.FuelRecordService;
+import com.sweetpotato.service.IdempotencyService;
+import com.sweetpotato.service.ReceiptIngestionJobService;
+import com.sweetpotato.service.S3UploadService;
+import com.sweetpotato.service.StreamingReceiptUploadService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Finalizing the same direct upload twice must create one record; the idempotency table stands in for
+ * Postgres with a map that enforces the (user, key) unique constraint
+ */
+class FuelRecordControllerDirectUploadTest {
+
+    private static final String KEY = "receipts/0b6f2c1e-3d4a-4f5b-8c6d-7e8f9a0b1c2d";
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 16, 'J', 'F', 'I', 'F', 0, 1};
+
+    private final Map<String, UploadIdempotencyRecord> rows = new ConcurrentHashMap<>();
+    private final FuelRecordService fuelRecordService = mock(FuelRecordService.class);
+    private final S3UploadService s3UploadService = mock(S3UploadService.class);
+    private FuelRecordController controller;
+
+    @BeforeEach
+    void setUp() {
+        UploadIdempotencyRepository repository = mock(UploadIdempotencyRepository.class);
+        when(repository.saveAndFlush(any())).thenAnswer(invocation -> {
+            UploadIdempotencyRecord record = invocation.getArgument(0);
+            if (rows.putIfAbsent(row(record.getUserId(), record.getIdempotencyKey()), record) != null) {
+                throw new DataIntegrityViolationException("uk_upload_idempotency_user_key");
+            }
+            record.setId((long) rows.size());
+            return record;
+        });
+        when(repository.save(any())).thenAnswer(invocation -> {
+            UploadIdempotencyRecord record = invocation.getArgument(0);
+            rows.put(row(record.getUserId(), record.getIdempotencyKey()), record);
+            return record;
+        });
+        when(repository.findByUserIdAndIdempotencyKey(anyLong(), anyString())).thenAnswer(invocation ->
+                Optional.ofNullable(rows.get(row(invocation.getArgument(0), invocation.getArgument(1)))));
+        when(repository.deleteByUserIdAndIdempotencyKey(anyLong(), anyString())).thenAnswer(invocation ->
+                rows.remove(row(invocation.getArgument(0), invocation.getArgument(1))) != null ? 1 : 0);
+
+        IdempotencyService idempotencyService = new IdempotencyService(repository,
+                Jackson2ObjectMapperBuilder.json().build(), 100, 24, 120);
+        controller = new FuelRecordController(fuelRecordService, mock(ReceiptIngestionJobService.class),
+                idempotencyService, mock(PipelineSchedulers.class), s3UploadService,
+                mock(StreamingReceiptUploadService.class));
+
+        User user = User.builder().id(7L).email("driver@example.com").build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, List.of()));
+
+        when(s3UploadService.findObject(KEY)).thenReturn(Optional.of(
+                new S3UploadService.StoredObject(KEY, "7", "image/jpeg", JPEG.length)));
+        when(s3UploadService.downloadReceiptImage(KEY)).thenAnswer(invocation -> ReceiptImage.builder()
+                .content(JPEG)
+                .contentType("image/jpeg")
+                .originalFilename(KEY)
+                .sha256("5a1f3c")
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void concurrentFinalizeOfTheSameKeyIsRejected() {
+        // The second finalize arrives while the first one is still running OCR
+        AtomicReference<ResponseEntity<?>> concurrent = new AtomicReference<>();
+        when(fuelRecordService.processDirectUpload(eq(KEY), any(), any(), any())).thenAnswer(invocation -> {
+            concurrent.set(controller.finalizeDirectUpload(finalizeRequest(), null));
+            return Mono.just(FuelReceiptResponse.builder().id(1L).receiptImageUrl(KEY).build());
+        });
+
+        ResponseEntity<?> first = controller.finalizeDirectUpload(finalizeRequest(), null);
+
+        assertEquals(200, first.getStatusCode().value());
+        assertEquals(409, concurrent.get().getStatusCode().value());
+        verify(fuelRecordService, times(1)).processDirectUpload(eq(KEY), any(), any(), any());
+    }
+
+    @Test
+    void retriedFinalizeReplaysTheFirstResponse() {
+        when(fuelRecordService.processDirectUpload(eq(KEY), any(), any(), any()))
+                .thenReturn(Mono.just(FuelReceiptResponse.builder().id(1L).receiptImageUrl(KEY).build()));
+
+        ResponseEntity<?> first = controller.finalizeDirectUpload(finalizeRequest(), null);
+        ResponseEntity<?> retry = controller.finalizeDirectUpload(finalizeRequest(), null);
+
+        assertEquals(200, first.getStatusCode().value());
+        assertEquals(200, retry.getStatusCode().value());
+        assertEquals("true", retry.getHeaders().getFirst("Idempotent-Replayed"));
+        assertTrue(String.valueOf(retry.getBody()).contains("\"id\":1"));
+        verify(fuelRecordService, times(1)).processDirectUpload(eq(KEY), any(), any(), any());
+    }
+
+    private static ReceiptUploadFinalizeRequest finalizeRequest() {
+        ReceiptUploadFinalizeRequest request = new ReceiptUploadFinalizeRequest();
+        request.setKey(KEY);
+        return request;
+    }
+
+    private static String row(Long userId, String key) {
+        return userId + ":" + key;
+    }
+}
@@ -0,0 +1,77 @@
+#!/bin/bash
+
+# Side-by-side load benchmark for receipt uploads: platform threads vs virtual threads
+#
+# Start two backend instances against the same database/bucket, e.g.
+#   PORT=8086 mvn spring-boot:run
+#   PORT=8087 VIRTUAL_THREADS_ENABLED=true mvn spring-boot:run
+# then run:
+#   TOKEN=<jwt> IMAGE=receipt.jpg ./scripts/benchmark-upload-concurrency.sh
+#
+# Each upload gets a few random trailing bytes so content-hash deduplication doesn't short-circuit it.
+# Add -Djdk.tracePinnedThreads=short to the virtual-thread instance to log any carrier-thread pinning.
+
+set -e
+
+PLATFORM_URL=${PLATFORM_URL:-"http://localhost:8086/api"}
+VIRTUAL_URL=${VIRTUAL_URL:-"http://localhost:8087/api"}
+CONCURRENCY_LEVELS=${CONCURRENCY_LEVELS:-"16 64 128 256"}
+REQUESTS_PER_CLIENT=${REQUESTS_PER_CLIENT:-4}
+REQUEST_TIMEOUT=${REQUEST_TIMEOUT:-60}
+
+if [ -z "$TOKEN" ] || [ -z "$IMAGE" ] || [ ! -f "$IMAGE" ]; then
+    echo "❌ Set TOKEN (JWT access token) and IMAGE (path to a receipt image)"
+    exit 1
+fi
+
+WORK_DIR=$(mktemp -d)
+trap 'rm -rf "$WORK_DIR"' EXIT
+
+# Sends one upload and prints "<http status> <seconds>"
+upload() {
+    local url=$1 id=$2
+    local file="$WORK_DIR/receipt-$id.jpg"
+    { cat "$IMAGE"; head -c 32 /dev/urandom; } > "$file"
+    curl -s -o /dev/null -m "$REQUEST_TIMEOUT" \
+        -w "%{http_code} %{time_total}\n" \
+        -H "Authorization: Bearer $TOKEN" \
+        -H "Idempotency-Key: bench-$id" \
+        -F "receiptImage=@$file;type=image/jpeg" \
+        "$url/fuel-records/upload-receipt" || echo "000 $REQUEST_TIMEOUT"
+    rm -f "$file"
+}
+export -f upload
+export WORK_DIR IMAGE TOKEN REQUEST_TIMEOUT
+
+# Runs one concurrency level against one instance and prints a result row
+run_level() {
+    local label=$1 url=$2 concurrency=$3
+    local total=$((concurrency * REQUESTS_PER_CLIENT))
+    local results="$WORK_DIR/$label-$concurrency.txt"
+    local run_id="$label-$concurrency-$$-$RANDOM"
+
+    local start end
+    start=$(date +%s.%N)
+    seq 1 "$total" | xargs -P "$concurrency" -I{} bash -c "upload '$url' '$run_id-{}'" > "$results"
+    end=$(date +%s.%N)
+
+    sort -k2 -n "$results" | awk -v label="$label" -v c="$concurrency" -v start="$start" -v end="$end" '
+        { n++; t[n] = $2; if ($1 == "200") ok++ }
+        END {
+            elapsed = end - start
+            printf "%-9s %6d %7d %7d %9.1f %8.2f %8.2f %8.2f\n", label, c, n, ok, ok / elapsed,
+                t[int(n * 0.50) > 0 ? int(n * 0.50) : 1], t[int(n * 0.95) > 0 ? int(n * 0.95) : 1],
+                t[int(n * 0.99) > 0 ? int(n * 0.99) : 1]
+        }'
+}
+
+echo "🥔 Receipt upload concurrency benchmark"
+echo "   Platform threads: $PLATFORM_URL"
+echo "   Virtual threads:  $VIRTUAL_URL"
+echo
+printf "%-9s %6s %7s %7s %9s %8s %8s %8s\n" "mode" "conc" "sent" "ok" "ok/s" "p50(s)" "p95(s)" "p99(s)"
+
+for concurrency in $CONCURRENCY_LEVELS; do
+    run_level "platform" "$PLATFORM_URL" "$concurrency"
+    run_level "virtual" "$VIRTUAL_URL" "$concurrency"
+done
@@ -14,7 +14,7 @@ command_exists() {
 echo "Checking prerequisites..."
 
 if ! command_exists java; then
-    echo "❌ Java is not installed. Please install Java 17+"
+    echo "❌ Java is not installed. Please install Java 21+"
     exit 1
 fi
 